@@ -0,0 +1,63 @@
+package com.hospital.Soraka.benchmark;
+
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Especialidad;
+import com.hospital.Soraka.entity.Medico;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entidades en memoria para los benchmarks, con ids asignados como si vinieran de la base de datos.
+ */
+public final class DatosBenchmark {
+
+    private static final int MEDICOS = 10;
+
+    private DatosBenchmark() {
+    }
+
+    public static Usuario usuario(long id, Rol rol) {
+        Usuario usuario = new Usuario("Usuario " + id, "usuario" + id + "@soraka.com", "x".repeat(60), rol);
+        usuario.setActivo(true);
+        ReflectionTestUtils.setField(usuario, "id", id);
+        return usuario;
+    }
+
+    /**
+     * Citas repartidas entre {@value #MEDICOS} médicos en huecos de 30 minutos;
+     * una de cada tres está confirmada por un paciente.
+     *
+     * @param cantidad número de citas
+     */
+    public static List<Cita> citas(int cantidad) {
+        List<Medico> medicos = new ArrayList<>();
+        for (long i = 1; i <= MEDICOS; i++) {
+            Especialidad especialidad = new Especialidad("Especialidad " + i);
+            ReflectionTestUtils.setField(especialidad, "id", i);
+            Medico medico = new Medico(usuario(i, Rol.MEDICO), especialidad, null);
+            ReflectionTestUtils.setField(medico, "id", i);
+            medicos.add(medico);
+        }
+
+        LocalDateTime inicio = LocalDate.now().plusDays(1).atTime(8, 0);
+        List<Cita> citas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Cita cita = new Cita(medicos.get(i % MEDICOS), inicio.plusMinutes(30L * (i / MEDICOS)));
+            ReflectionTestUtils.setField(cita, "id", (long) i + 1);
+            if (i % 3 == 0) {
+                cita.setPaciente(usuario(1000L + i, Rol.PACIENTE));
+                cita.setEstado(EstadoCita.CONFIRMADA);
+                cita.setMotivo("Consulta de revisión general");
+            }
+            citas.add(cita);
+        }
+        return citas;
+    }
+}
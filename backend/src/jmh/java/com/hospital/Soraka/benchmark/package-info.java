@@ -0,0 +1,11 @@
+/**
+ * Utilidades comunes de los benchmarks JMH (perfil {@code jmh}).
+ *
+ * <p>
+ * Cada benchmark vive en el mismo paquete que el código que mide, de modo que puede llamar
+ * directamente, sin contexto de Spring, a los métodos de paquete que aíslan los caminos
+ * calientes: {@code CitaService.buildResponse}, {@code CitaService.calcularHuecos} y
+ * {@code LoginRateLimitFilter.getBucket}. Esos métodos no son privados solo por este motivo.
+ * </p>
+ */
+package com.hospital.Soraka.benchmark;
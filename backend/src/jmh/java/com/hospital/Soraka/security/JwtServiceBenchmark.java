@@ -0,0 +1,55 @@
+package com.hospital.Soraka.security;
+
+import com.hospital.Soraka.benchmark.DatosBenchmark;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.Rol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de emitir y validar tokens JWT: {@code isTokenValid} se ejecuta en cada petición
+ * autenticada, a través de {@link JwtAuthenticationFilter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private Usuario usuario;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "SECRET_KEY", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        usuario = DatosBenchmark.usuario(1, Rol.PACIENTE);
+        claims = Map.of("nombre", usuario.getNombre(), "rol", usuario.getRol().name());
+        token = jwtService.generateToken(usuario, claims);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(usuario, claims);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, usuario);
+    }
+}
@@ -0,0 +1,53 @@
+package com.hospital.Soraka.security;
+
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda del bucket de una IP en {@link LoginRateLimitFilter} con distintas cantidades
+ * de IPs ya registradas, y con varios hilos compitiendo por el mapa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoginRateLimitBenchmark {
+
+    @Param({"100", "100000"})
+    public int ips;
+
+    private LoginRateLimitFilter filtro;
+    private String[] direcciones;
+
+    @Setup
+    public void preparar() {
+        filtro = new LoginRateLimitFilter(new SimpleMeterRegistry());
+        direcciones = new String[ips];
+        for (int i = 0; i < ips; i++) {
+            direcciones[i] = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+            filtro.getBucket(direcciones[i]);
+        }
+    }
+
+    @Benchmark
+    public Bucket bucketExistente() {
+        return filtro.getBucket(direcciones[ThreadLocalRandom.current().nextInt(ips)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean consumirConcurrente() {
+        return filtro.getBucket(direcciones[ThreadLocalRandom.current().nextInt(ips)]).tryConsume(1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.hospital.Soraka.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.hospital.Soraka.benchmark.DatosBenchmark;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización y lectura de un listado de {@link CitaResponseDTO} en JSON, CBOR y Smile, con
+ * la misma configuración de Jackson que usan los conversores de la aplicación. El tamaño de
+ * cada codificación se imprime al preparar el benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitaResponseFormatosBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String formato;
+
+    @Param({"100", "5000"})
+    public int citas;
+
+    private ObjectMapper objectMapper;
+    private List<CitaResponseDTO> listado;
+    private byte[] codificado;
+
+    @Setup
+    public void preparar() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = switch (formato) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        CitaService citaService = new CitaService();
+        listado = DatosBenchmark.citas(citas).stream().map(citaService::buildResponse).toList();
+        codificado = objectMapper.writeValueAsBytes(listado);
+        System.out.printf("%n%s, %d citas: %d bytes%n", formato, citas, codificado.length);
+    }
+
+    @Benchmark
+    public byte[] serializarListado() throws Exception {
+        return objectMapper.writeValueAsBytes(listado);
+    }
+
+    @Benchmark
+    public JsonNode leerListado() throws Exception {
+        return objectMapper.readTree(codificado);
+    }
+}
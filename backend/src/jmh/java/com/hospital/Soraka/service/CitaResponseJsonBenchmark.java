@@ -0,0 +1,48 @@
+package com.hospital.Soraka.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hospital.Soraka.benchmark.DatosBenchmark;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de un listado de {@link CitaResponseDTO}, con la misma configuración
+ * de Jackson que usa Spring Boot (fechas ISO-8601 en lugar de timestamps).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitaResponseJsonBenchmark {
+
+    @Param({"100", "5000"})
+    public int citas;
+
+    private ObjectMapper objectMapper;
+    private List<CitaResponseDTO> listado;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        CitaService citaService = new CitaService();
+        listado = DatosBenchmark.citas(citas).stream().map(citaService::buildResponse).toList();
+    }
+
+    @Benchmark
+    public byte[] serializarListado() throws Exception {
+        return objectMapper.writeValueAsBytes(listado);
+    }
+}
@@ -0,0 +1,86 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.benchmark.DatosBenchmark;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.repository.CitaJdbcRepository.NuevaCita;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partes de {@link CitaService} que no dependen de la base de datos: el mapeo a
+ * {@link CitaResponseDTO} de los listados y el cálculo de huecos de la generación nocturna.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitaServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Listado {
+
+        /** Citas del listado que se mapea. */
+        @Param({"100", "5000"})
+        public int citas;
+
+        final CitaService citaService = new CitaService();
+        List<Cita> entidades;
+
+        @Setup
+        public void preparar() {
+            entidades = DatosBenchmark.citas(citas);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Semana {
+
+        /** Porcentaje de los huecos de la semana que ya están ocupados. */
+        @Param({"0", "50"})
+        public int ocupacion;
+
+        LocalDateTime desde;
+        LocalDateTime hasta;
+        LocalDateTime ahora;
+        Set<LocalDateTime> ocupadas;
+
+        @Setup
+        public void preparar() {
+            LocalDate hoy = LocalDate.now();
+            ahora = hoy.atTime(12, 0);
+            desde = hoy.plusDays(1).atStartOfDay();
+            hasta = hoy.plusDays(8).atStartOfDay();
+            ocupadas = new HashSet<>();
+            int i = 0;
+            for (LocalDate fecha = desde.toLocalDate(); fecha.isBefore(hasta.toLocalDate()); fecha = fecha.plusDays(1)) {
+                for (LocalDateTime hora = fecha.atTime(8, 0); hora.isBefore(fecha.atTime(15, 0)); hora = hora.plusMinutes(30)) {
+                    if (i++ % 100 < ocupacion) {
+                        ocupadas.add(hora);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> mapearListado(Listado listado) {
+        return listado.entidades.stream().map(listado.citaService::buildResponse).toList();
+    }
+
+    @Benchmark
+    public List<NuevaCita> calcularHuecosSemana(Semana semana) {
+        return CitaService.calcularHuecos(1L, semana.desde, semana.hasta, semana.ahora, semana.ocupadas);
+    }
+}
@@ -0,0 +1,102 @@
+package com.hospital.Soraka.config;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cuenta las sentencias SQL que ejecuta Hibernate en el hilo actual.
+ * <p>
+ * Una medición se abre con {@link #iniciar()} y se cierra con {@link #finalizar(Medicion)};
+ * mientras está abierta, {@link ContadorSqlInspector} registra cada sentencia preparada y
+ * {@link ContadorSqlListener} el tiempo de ejecución en la base de datos. Las mediciones
+ * pueden anidarse: una sentencia cuenta en la medición actual y en todas las que la contienen.
+ * <p>
+ * Solo se ven las sentencias que pasan por Hibernate; las de {@code JdbcTemplate}
+ * (inserciones en lote, leases) no se cuentan.
+ */
+public final class ContadorSql {
+
+    /** Sentencias distintas que se guardan por medición para detectar repeticiones. */
+    private static final int MAX_SENTENCIAS_DISTINTAS = 200;
+
+    private static final ThreadLocal<Medicion> ACTUAL = new ThreadLocal<>();
+
+    private ContadorSql() {
+    }
+
+    /**
+     * Abre una medición en el hilo actual.
+     *
+     * @return la medición, que debe cerrarse con {@link #finalizar(Medicion)}
+     */
+    public static Medicion iniciar() {
+        Medicion medicion = new Medicion(ACTUAL.get());
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    /**
+     * Cierra una medición y restaura la que la contenía, si había alguna.
+     *
+     * @param medicion medición abierta con {@link #iniciar()}
+     */
+    public static void finalizar(Medicion medicion) {
+        if (medicion.padre != null) {
+            ACTUAL.set(medicion.padre);
+        } else {
+            ACTUAL.remove();
+        }
+    }
+
+    static void registrarSentencia(String sql) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.padre) {
+            m.consultas++;
+            if (m.repeticiones.size() < MAX_SENTENCIAS_DISTINTAS || m.repeticiones.containsKey(sql)) {
+                m.repeticiones.merge(sql, 1, Integer::sum);
+            }
+        }
+    }
+
+    static void registrarTiempo(long nanos) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.padre) {
+            m.tiempoNanos += nanos;
+        }
+    }
+
+    /**
+     * Sentencias y tiempo de base de datos acumulados por una medición.
+     */
+    public static final class Medicion {
+
+        private final Medicion padre;
+        private final Map<String, Integer> repeticiones = new HashMap<>();
+        private int consultas;
+        private long tiempoNanos;
+
+        private Medicion(Medicion padre) {
+            this.padre = padre;
+        }
+
+        /** Número de sentencias ejecutadas. */
+        public int getConsultas() {
+            return consultas;
+        }
+
+        /** Tiempo total de ejecución de las sentencias, en milisegundos. */
+        public long getTiempoMs() {
+            return tiempoNanos / 1_000_000;
+        }
+
+        /** Veces que se ha ejecutado cada sentencia distinta. */
+        public Map<String, Integer> getRepeticiones() {
+            return Map.copyOf(repeticiones);
+        }
+
+        /** La sentencia que más veces se ha repetido, típica de un problema N+1. */
+        public Optional<Map.Entry<String, Integer>> getMasRepetida() {
+            return repeticiones.entrySet().stream().max(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.hospital.Soraka.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Registra en {@link ContadorSql} cada sentencia que prepara Hibernate, sin modificarla.
+ * <p>
+ * Se configura con {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class ContadorSqlInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        ContadorSql.registrarSentencia(sql);
+        return sql;
+    }
+}
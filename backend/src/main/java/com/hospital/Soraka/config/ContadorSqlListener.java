@@ -0,0 +1,35 @@
+package com.hospital.Soraka.config;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Acumula en {@link ContadorSql} el tiempo que pasan en la base de datos las sentencias
+ * y lotes JDBC de una sesión de Hibernate.
+ * <p>
+ * Hibernate crea una instancia por sesión ({@code spring.jpa.properties.hibernate.session.events.auto}),
+ * y cada sesión se usa desde un único hilo.
+ */
+public class ContadorSqlListener implements SessionEventListener {
+
+    private long inicio;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        ContadorSql.registrarTiempo(System.nanoTime() - inicio);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        ContadorSql.registrarTiempo(System.nanoTime() - inicio);
+    }
+}
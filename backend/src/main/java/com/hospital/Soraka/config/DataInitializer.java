@@ -1,24 +1,37 @@
 package com.hospital.Soraka.config;
 
-import com.hospital.Soraka.entity.Cita;
 import com.hospital.Soraka.entity.Especialidad;
 import com.hospital.Soraka.entity.Medico;
 import com.hospital.Soraka.entity.Usuario;
 import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
 import com.hospital.Soraka.enums.Rol;
-import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.CitaJdbcRepository;
+import com.hospital.Soraka.repository.CitaJdbcRepository.NuevaCita;
 import com.hospital.Soraka.repository.EspecialidadRepository;
 import com.hospital.Soraka.repository.MedicoRepository;
 import com.hospital.Soraka.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,10 +47,16 @@ import java.util.Set;
  * </ul>
  *
  * <p><strong>Especialidades demo:</strong> Medicina General, Pediatría, Dermatología.</p>
+ *
+ * <p>Con {@code demo.seed.asincrono=true} la siembra se hace en segundo plano tras
+ * {@link ApplicationReadyEvent}, de modo que la aplicación atiende peticiones desde el
+ * primer momento.</p>
  */
 @Component
 public class DataInitializer implements ApplicationRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
     // ── Emails protegidos ────────────────────────────────────────────────────────
     public static final String EMAIL_ADMIN            = "admin.demo@soraka.com";
     public static final String EMAIL_MEDICO           = "medico.demo@soraka.com";
@@ -45,6 +64,14 @@ public class DataInitializer implements ApplicationRunner {
     public static final String EMAIL_MEDICO_DERMATO   = "medico.dermato.demo@soraka.com";
     public static final String EMAIL_PACIENTE         = "paciente.demo@soraka.com";
 
+    public static final Set<String> EMAILS_DEMO = Set.of(
+            EMAIL_ADMIN,
+            EMAIL_MEDICO,
+            EMAIL_MEDICO_PEDIATRIA,
+            EMAIL_MEDICO_DERMATO,
+            EMAIL_PACIENTE
+    );
+
     // ── Especialidades protegidas ────────────────────────────────────────────────
     public static final Set<String> ESPECIALIDADES_DEMO = Set.of(
             "Medicina General",
@@ -60,157 +87,224 @@ public class DataInitializer implements ApplicationRunner {
     private static final String FOTO_DEMO_DERMATO   =
             "https://randomuser.me/api/portraits/men/4.jpg";
 
-    @Autowired private UsuarioRepository      usuarioRepository;
-    @Autowired private MedicoRepository       medicoRepository;
-    @Autowired private EspecialidadRepository especialidadRepository;
-    @Autowired private CitaRepository         citaRepository;
-    @Autowired private PasswordEncoder        passwordEncoder;
+    private static final int DIAS_FUTURAS   = 3;
+    private static final int DIAS_HISTORIAL = 8;
+
+    /** Usuarios demo en orden de creación. */
+    private static final List<UsuarioDemo> USUARIOS_DEMO = List.of(
+            new UsuarioDemo(EMAIL_ADMIN,            "Administrador Demo",        Rol.ADMIN),
+            new UsuarioDemo(EMAIL_MEDICO,           "Dr. Demo Medicina General", Rol.MEDICO),
+            new UsuarioDemo(EMAIL_MEDICO_PEDIATRIA, "Dra. Demo Pediatría",       Rol.MEDICO),
+            new UsuarioDemo(EMAIL_MEDICO_DERMATO,   "Dr. Demo Dermatología",     Rol.MEDICO),
+            new UsuarioDemo(EMAIL_PACIENTE,         "Paciente Demo",             Rol.PACIENTE)
+    );
+
+    /** Médicos demo, indexados por el email de su usuario. */
+    private static final List<MedicoDemo> MEDICOS_DEMO = List.of(
+            new MedicoDemo(EMAIL_MEDICO,           "Medicina General", FOTO_DEMO_MEDGEN),
+            new MedicoDemo(EMAIL_MEDICO_PEDIATRIA, "Pediatría",        FOTO_DEMO_PEDIATRIA),
+            new MedicoDemo(EMAIL_MEDICO_DERMATO,   "Dermatología",     FOTO_DEMO_DERMATO)
+    );
+
+    private record UsuarioDemo(String email, String nombre, Rol rol) {}
+
+    private record MedicoDemo(String email, String especialidad, String foto) {}
+
+    @Autowired private UsuarioRepository         usuarioRepository;
+    @Autowired private MedicoRepository          medicoRepository;
+    @Autowired private EspecialidadRepository    especialidadRepository;
+    @Autowired private CitaJdbcRepository        citaJdbcRepository;
+    @Autowired private PasswordEncoder           passwordEncoder;
+    @Autowired private DemoSnapshot              demoSnapshot;
+    @Autowired private TransactionTemplate       transactionTemplate;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Si es {@code true}, los datos demo se siembran en segundo plano cuando la aplicación
+     * ya está lista, en lugar de retrasar el arranque hasta terminar.
+     */
+    @Value("${demo.seed.asincrono:false}")
+    private boolean sembrarAsincrono;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+
+    /** Hash de {@link #PASSWORD_DEMO}, calculado una sola vez (BCrypt es caro a propósito). */
+    private volatile String passwordDemoCifrada;
 
     // ── ApplicationRunner ────────────────────────────────────────────────────────
 
     @Override
     public void run(ApplicationArguments args) {
-        inicializarDemoData();
+        if (!sembrarAsincrono) {
+            sembrarDemo();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        if (sembrarAsincrono) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("demo-seed-");
+            executor.setVirtualThreads(hilosVirtuales);
+            executor.execute(() -> {
+                sembrarDemo();
+                // La aplicación ya estaba lista: los índices de disponibilidad deben recargarse
+                eventPublisher.publishEvent(CitaCambioEvent.regeneradas());
+            });
+        }
+    }
+
+    private void sembrarDemo() {
+        long inicio = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> inicializarDemoData());
+            demoSnapshot.capturar();
+            log.info(">>> [DemoSeed] Datos demo sembrados en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            log.error(">>> [DemoSeed] Error sembrando los datos demo: {}", e.getMessage());
+        }
     }
 
     // ── Método público llamado por DemoResetScheduler ────────────────────────────
 
+    /**
+     * Crea o restaura los datos demo.
+     * <p>
+     * Las filas existentes se cargan de una vez (especialidades por nombre y usuarios por
+     * email junto con su médico) y solo se insertan las que faltan, en lugar de una
+     * búsqueda y un guardado por fila. La contraseña demo se cifra una única vez.
+     */
     @Transactional
     public void inicializarDemoData() {
 
         // 1. Especialidades demo
-        Especialidad medGen    = upsertEspecialidad("Medicina General");
-        Especialidad pediatria = upsertEspecialidad("Pediatría");
-        Especialidad dermato   = upsertEspecialidad("Dermatología");
-
-        // 2. Usuarios demo
-        upsertUsuario(EMAIL_ADMIN,            "Administrador Demo",        Rol.ADMIN);
-        Usuario uMedGen    = upsertUsuario(EMAIL_MEDICO,           "Dr. Demo Medicina General", Rol.MEDICO);
-        Usuario uPediatria = upsertUsuario(EMAIL_MEDICO_PEDIATRIA, "Dra. Demo Pediatría",       Rol.MEDICO);
-        Usuario uDermato   = upsertUsuario(EMAIL_MEDICO_DERMATO,   "Dr. Demo Dermatología",     Rol.MEDICO);
-        Usuario paciente   = upsertUsuario(EMAIL_PACIENTE,         "Paciente Demo",             Rol.PACIENTE);
-
-        // 3. Entidades Medico
-        Medico medicoMedGen    = upsertMedico(uMedGen,    medGen,    FOTO_DEMO_MEDGEN);
-        Medico medicoPediatria = upsertMedico(uPediatria, pediatria, FOTO_DEMO_PEDIATRIA);
-        Medico medicoDermato   = upsertMedico(uDermato,   dermato,   FOTO_DEMO_DERMATO);
-
-        // 4. Citas futuras (DISPONIBLES) para los próximos 7 días
-        generarCitasFuturas(medicoMedGen);
-        generarCitasFuturas(medicoPediatria);
-        generarCitasFuturas(medicoDermato);
-
-        // 5. Historial de citas pasadas (si aún no existe)
-        generarHistorial(medicoMedGen,    paciente);
-        generarHistorial(medicoPediatria, paciente);
-        generarHistorial(medicoDermato,   paciente);
-    }
+        Map<String, Especialidad> especialidades = new HashMap<>();
+        especialidadRepository.findByNombreIn(ESPECIALIDADES_DEMO)
+                .forEach(e -> especialidades.put(e.getNombre(), e));
+        List<Especialidad> nuevasEspecialidades = ESPECIALIDADES_DEMO.stream()
+                .filter(nombre -> !especialidades.containsKey(nombre))
+                .map(nombre -> {
+                    Especialidad nueva = new Especialidad();
+                    nueva.setNombre(nombre);
+                    return nueva;
+                })
+                .toList();
+        especialidadRepository.saveAll(nuevasEspecialidades)
+                .forEach(e -> especialidades.put(e.getNombre(), e));
 
-    // ── Citas futuras ────────────────────────────────────────────────────────────
+        // 2. Usuarios demo (con su médico, si existe)
+        String password = passwordDemoCifrada();
+        Map<String, Usuario> usuarios = new HashMap<>();
+        usuarioRepository.findConMedicoByEmailIn(EMAILS_DEMO)
+                .forEach(u -> usuarios.put(u.getEmail(), u));
 
-    /**
-     * Genera citas DISPONIBLES de 30 min entre las 08:00 y las 15:00
-     * para los próximos 7 días, omitiendo los slots que ya existan.
-     */
-    private void generarCitasFuturas(Medico medico) {
-        LocalDate hoy = LocalDate.now();
-        // Bajamos a 3 días para no saturar la RAM en Railway
-        LocalDate fechaFin = hoy.plusDays(3); 
-        
-        java.util.List<Cita> nuevasCitas = new java.util.ArrayList<>();
-
-        for (LocalDate fecha = hoy.plusDays(1); !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
-            LocalDateTime slot = fecha.atTime(8, 0);
-            LocalDateTime fin = fecha.atTime(15, 0);
-
-            while (slot.isBefore(fin)) {
-                if (!citaRepository.existsByMedicoAndFechaHora(medico, slot)) {
-                    Cita cita = new Cita();
-                    cita.setMedico(medico);
-                    cita.setFechaHora(slot);
-                    cita.setEstado(EstadoCita.DISPONIBLE);
-                    nuevasCitas.add(cita);
+        List<Usuario> usuariosAGuardar = new ArrayList<>();
+        for (UsuarioDemo demo : USUARIOS_DEMO) {
+            Usuario u = usuarios.get(demo.email());
+            if (u == null) {
+                u = new Usuario(demo.nombre(), demo.email(), password, demo.rol());
+                usuarios.put(demo.email(), u);
+            } else {
+                u.setNombre(demo.nombre());
+                u.setRol(demo.rol());
+                if (!password.equals(u.getPassword())) {
+                    u.setPassword(password);
                 }
-                slot = slot.plusMinutes(30);
             }
+            u.setActivo(true);
+            usuariosAGuardar.add(u);
         }
-        // Guardamos todas de golpe al final del bucle del médico
-        if (!nuevasCitas.isEmpty()) {
-            citaRepository.saveAll(nuevasCitas);
-            citaRepository.flush(); // Aseguramos que se escriba y libere memoria
+        usuarioRepository.saveAll(usuariosAGuardar);
+
+        // 3. Entidades Medico
+        List<Medico> medicos = new ArrayList<>();
+        for (MedicoDemo demo : MEDICOS_DEMO) {
+            Usuario usuario = usuarios.get(demo.email());
+            Especialidad especialidad = especialidades.get(demo.especialidad());
+            Medico medico = usuario.getMedico();
+            if (medico == null) {
+                medico = new Medico(usuario, especialidad, demo.foto());
+            } else {
+                medico.setEspecialidad(especialidad);
+                medico.setUrlFoto(demo.foto());
+            }
+            medicos.add(medico);
         }
+        medicoRepository.saveAll(medicos);
+
+        // 4. Citas futuras (DISPONIBLES) e historial de citas pasadas
+        sembrarCitasDemo(
+                medicos.stream().map(Medico::getId).toList(),
+                usuarios.get(EMAIL_PACIENTE).getId());
+    }
+
+    private String passwordDemoCifrada() {
+        if (passwordDemoCifrada == null) {
+            passwordDemoCifrada = passwordEncoder.encode(PASSWORD_DEMO);
+        }
+        return passwordDemoCifrada;
     }
 
-    // ── Historial de citas pasadas ───────────────────────────────────────────────
+    // ── Citas demo ───────────────────────────────────────────────────────────────
 
     /**
-     * Genera 8 citas pasadas por médico (4 REALIZADAS y 4 CADUCADAS),
-     * distribuidas en los últimos 14 días, solo si no existen ya.
-     * Las REALIZADAS tienen paciente asignado, las CADUCADAS no.
+     * Inserta las citas demo que falten para los médicos indicados.
+     * <p>
+     * Las fechas ya ocupadas se cargan con una única consulta por rango y las
+     * citas nuevas se insertan en lotes JDBC, en lugar de comprobar e insertar
+     * hueco a hueco. También lo usa {@link DemoResetScheduler} al restaurar la
+     * instantánea demo.
+     *
+     * @param medicoIds  ids de los médicos demo
+     * @param pacienteId id del paciente demo, asignado a las citas REALIZADAS
+     * @return número de citas insertadas
      */
-    private void generarHistorial(Medico medico, Usuario paciente) {
+    public int sembrarCitasDemo(List<Long> medicoIds, Long pacienteId) {
         LocalDate hoy = LocalDate.now();
+        Map<Long, Set<LocalDateTime>> ocupadas = citaJdbcRepository.findFechasOcupadas(
+                medicoIds,
+                hoy.minusDays(DIAS_HISTORIAL).atStartOfDay(),
+                hoy.plusDays(DIAS_FUTURAS + 1).atStartOfDay());
 
-        // Slots pasados: 1 por día en los últimos 8 días a las 10:00
-        for (int i = 1; i <= 8; i++) {
-            LocalDateTime slot = hoy.minusDays(i).atTime(10, 0);
-
-            if (!citaRepository.existsByMedicoAndFechaHora(medico, slot)) {
-                Cita cita = new Cita();
-                cita.setMedico(medico);
-                cita.setFechaHora(slot);
-
-                if (i % 2 == 0) {
-                    // Par → REALIZADA (con paciente y motivo)
-                    cita.setEstado(EstadoCita.REALIZADA);
-                    cita.setPaciente(paciente);
-                    cita.setMotivo("Consulta de revisión general");
-                } else {
-                    // Impar → CADUCADA (sin paciente)
-                    cita.setEstado(EstadoCita.CADUCADA);
+        List<NuevaCita> nuevas = new ArrayList<>();
+        for (Long medicoId : medicoIds) {
+            Set<LocalDateTime> delMedico = ocupadas.getOrDefault(medicoId, Set.of());
+            for (NuevaCita cita : citasDemo(medicoId, pacienteId, hoy)) {
+                if (!delMedico.contains(cita.fechaHora())) {
+                    nuevas.add(cita);
                 }
-
-                citaRepository.save(cita);
             }
         }
+        return citaJdbcRepository.insertarLote(nuevas);
     }
 
-    // ── Helpers ──────────────────────────────────────────────────────────────────
-
-    private Especialidad upsertEspecialidad(String nombre) {
-        return especialidadRepository.findByNombre(nombre)
-                .orElseGet(() -> {
-                    Especialidad nueva = new Especialidad();
-                    nueva.setNombre(nombre);
-                    return especialidadRepository.save(nueva);
-                });
-    }
+    /**
+     * Citas demo de un médico:
+     * <ul>
+     *   <li>DISPONIBLES de 30 min entre las 08:00 y las 15:00 para los próximos
+     *       {@value #DIAS_FUTURAS} días.</li>
+     *   <li>Historial de {@value #DIAS_HISTORIAL} citas pasadas, una por día a las 10:00:
+     *       los días pares REALIZADA (con paciente y motivo) y los impares CADUCADA (sin paciente).</li>
+     * </ul>
+     */
+    private List<NuevaCita> citasDemo(Long medicoId, Long pacienteId, LocalDate hoy) {
+        List<NuevaCita> citas = new ArrayList<>();
 
-    private Usuario upsertUsuario(String email, String nombre, Rol rol) {
-        return usuarioRepository.findByEmail(email)
-                .map(u -> {
-                    u.setNombre(nombre);
-                    u.setPassword(passwordEncoder.encode(PASSWORD_DEMO));
-                    u.setActivo(true);
-                    u.setRol(rol);
-                    return usuarioRepository.save(u);
-                })
-                .orElseGet(() -> {
-                    Usuario nuevo = new Usuario(nombre, email,
-                            passwordEncoder.encode(PASSWORD_DEMO), rol);
-                    nuevo.setActivo(true);
-                    return usuarioRepository.save(nuevo);
-                });
-    }
+        for (LocalDate fecha = hoy.plusDays(1); !fecha.isAfter(hoy.plusDays(DIAS_FUTURAS)); fecha = fecha.plusDays(1)) {
+            for (LocalDateTime slot = fecha.atTime(8, 0); slot.isBefore(fecha.atTime(15, 0)); slot = slot.plusMinutes(30)) {
+                citas.add(NuevaCita.disponible(medicoId, slot));
+            }
+        }
 
-    private Medico upsertMedico(Usuario usuario, Especialidad especialidad, String foto) {
-        return medicoRepository.findByUsuarioId(usuario.getId())
-                .map(m -> {
-                    m.setEspecialidad(especialidad);
-                    m.setUrlFoto(foto);
-                    return medicoRepository.save(m);
-                })
-                .orElseGet(() -> medicoRepository.save(
-                        new Medico(usuario, especialidad, foto)));
+        for (int i = 1; i <= DIAS_HISTORIAL; i++) {
+            LocalDateTime slot = hoy.minusDays(i).atTime(10, 0);
+            if (i % 2 == 0) {
+                citas.add(new NuevaCita(medicoId, pacienteId, slot, EstadoCita.REALIZADA,
+                        "Consulta de revisión general"));
+            } else {
+                citas.add(new NuevaCita(medicoId, null, slot, EstadoCita.CADUCADA, null));
+            }
+        }
+        return citas;
     }
-}
\ No newline at end of file
+}
@@ -1,32 +1,115 @@
 package com.hospital.Soraka.config;
 
+import com.hospital.Soraka.config.EjecutorTareas.Planificacion;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Restaura periódicamente el entorno demo.
+ * <p>
+ * Dos modos, seleccionables con {@code demo.reset.modo}:
+ * <ul>
+ *   <li>{@code snapshot} (por defecto): restaura la {@link DemoSnapshot} capturada tras
+ *       sembrar los datos, con sentencias sobre conjuntos en una única transacción corta.
+ *       Si la instantánea no está disponible o la restauración falla, se recurre al modo completo.</li>
+ *   <li>{@code completo}: borra los datos de visitantes paso a paso y vuelve a ejecutar
+ *       {@link DataInitializer#inicializarDemoData()}.</li>
+ * </ul>
+ * La duración de cada reset se publica en la métrica {@code soraka.demo.reset}. Al terminar
+ * se publica un {@link CitaCambioEvent} de huecos regenerados para que los índices en memoria
+ * y los clientes suscritos recarguen la disponibilidad.
+ */
 @Component
 public class DemoResetScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(DemoResetScheduler.class);
 
+    private static final String MODO_SNAPSHOT = "snapshot";
+    private static final String MODO_COMPLETO = "completo";
+
+    private static final long INTERVALO_MS = 1800000;
+
     @PersistenceContext
     private EntityManager em;
 
     @Autowired
     private DataInitializer dataInitializer;
 
+    @Autowired
+    private DemoSnapshot demoSnapshot;
+
     @Autowired
     private TransactionTemplate transactionTemplate;
 
-    @Scheduled(fixedDelay = 1800000)
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EjecutorTareas ejecutorTareas;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${demo.reset.modo:snapshot}")
+    private String modo;
+
+    // El arranque ya siembra los datos demo: el primer reset espera un intervalo completo
+    @Scheduled(fixedDelay = INTERVALO_MS, initialDelay = INTERVALO_MS, scheduler = PlanificadoresConfig.DEMO)
     public void resetearDemo() {
+        ejecutorTareas.ejecutar("demo-reset", Planificacion.retardoFijo(INTERVALO_MS), () -> {
+            if (MODO_SNAPSHOT.equals(modo) && demoSnapshot.isCapturada()) {
+                Integer filas = resetearDesdeSnapshot();
+                if (filas != null) {
+                    eventPublisher.publishEvent(CitaCambioEvent.regeneradas());
+                    return filas;
+                }
+            }
+            resetearCompleto();
+            eventPublisher.publishEvent(CitaCambioEvent.regeneradas());
+            return 0;
+        });
+    }
+
+    /**
+     * Restaura la instantánea demo y regenera las citas demo en una sola transacción.
+     *
+     * @return filas afectadas, o {@code null} si la restauración falló
+     */
+    private Integer resetearDesdeSnapshot() {
+        log.info(">>> [DemoReset] Iniciando reset desde instantánea...");
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            Integer filas = transactionTemplate.execute(status ->
+                    demoSnapshot.restaurar()
+                            + dataInitializer.sembrarCitasDemo(demoSnapshot.getMedicoIds(), demoSnapshot.getPacienteId()));
+
+            long nanos = sample.stop(timer(MODO_SNAPSHOT, "ok"));
+            log.info(">>> [DemoReset] Reset desde instantánea completado: {} filas en {} ms",
+                    filas, nanos / 1_000_000);
+            return filas;
+
+        } catch (Exception e) {
+            sample.stop(timer(MODO_SNAPSHOT, "error"));
+            log.error(">>> [DemoReset] Error restaurando la instantánea, se usa el reset completo: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void resetearCompleto() {
         log.info(">>> [DemoReset] Iniciando reset seguro de la base de datos...");
+        Timer.Sample sample = Timer.start(meterRegistry);
 
         try {
             ejecutarPasoSeguro("Borrar citas visitantes", """
@@ -60,7 +143,7 @@ public class DemoResetScheduler {
             // Borrado de especialidades
             transactionTemplate.execute(status -> {
                 return em.createNativeQuery("""
-                    DELETE FROM especialidades 
+                    DELETE FROM especialidades
                     WHERE nombre NOT IN ('Medicina General', 'Pediatría', 'Dermatología')
                 """).executeUpdate();
             });
@@ -72,13 +155,28 @@ public class DemoResetScheduler {
                 return null;
             });
 
+            // Con los datos demo restaurados, los siguientes resets pueden usar la instantánea
+            if (!demoSnapshot.isCapturada()) {
+                demoSnapshot.capturar();
+            }
+
+            sample.stop(timer(MODO_COMPLETO, "ok"));
             log.info(">>> [DemoReset] Reset completado con éxito.");
 
         } catch (Exception e) {
+            sample.stop(timer(MODO_COMPLETO, "error"));
             log.error(">>> [DemoReset] Error durante el reset: {}", e.getMessage());
         }
     }
 
+    private Timer timer(String modo, String resultado) {
+        return Timer.builder("soraka.demo.reset")
+                .description("Duración del reset del entorno demo")
+                .tag("modo", modo)
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
     private void ejecutarPasoSeguro(String nombre, String sql) {
         try {
             transactionTemplate.execute(status -> {
@@ -95,4 +193,4 @@ public class DemoResetScheduler {
             log.warn(">>> [DemoReset] Saltado {}: {}", nombre, e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+package com.hospital.Soraka.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Instantánea canónica de los datos demo (especialidades, usuarios y médicos).
+ * <p>
+ * Se captura una sola vez tras sembrar los datos demo y permite a
+ * {@link DemoResetScheduler} restaurarlos con sentencias sobre conjuntos
+ * (un DELETE por tabla y UPDATE en lote de las filas demo), sin las subconsultas
+ * anidadas del reset completo ni los {@code existsBy} y cifrados BCrypt de
+ * {@link DataInitializer#inicializarDemoData()}. La contraseña se restaura con el
+ * hash capturado.
+ * <p>
+ * {@link #restaurar()} no abre transacción propia ni regenera las citas: el llamador
+ * debe ejecutarlo dentro de una única transacción corta, junto con
+ * {@link DataInitializer#sembrarCitasDemo(List, Long)}.
+ */
+@Component
+public class DemoSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(DemoSnapshot.class);
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    private volatile Instantanea instantanea;
+
+    public DemoSnapshot(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+    }
+
+    record EspecialidadDemo(Long id, String nombre) {}
+
+    record UsuarioDemo(Long id, String nombre, String email, String password, String rol, boolean activo) {}
+
+    record MedicoDemo(Long id, Long usuarioId, Long especialidadId, String urlFoto) {}
+
+    record Instantanea(List<EspecialidadDemo> especialidades,
+                       List<UsuarioDemo> usuarios,
+                       List<MedicoDemo> medicos,
+                       Long pacienteId) {
+
+        List<Long> especialidadIds() { return especialidades.stream().map(EspecialidadDemo::id).toList(); }
+
+        List<Long> usuarioIds() { return usuarios.stream().map(UsuarioDemo::id).toList(); }
+
+        List<Long> medicoIds() { return medicos.stream().map(MedicoDemo::id).toList(); }
+    }
+
+    public boolean isCapturada() {
+        return instantanea != null;
+    }
+
+    /** @return ids de los médicos demo de la instantánea */
+    public List<Long> getMedicoIds() {
+        return instantanea.medicoIds();
+    }
+
+    /** @return id del paciente demo de la instantánea */
+    public Long getPacienteId() {
+        return instantanea.pacienteId();
+    }
+
+    /**
+     * Lee de la base de datos las filas demo y las guarda como instantánea.
+     * Si los datos demo están incompletos no se captura nada.
+     *
+     * @return {@code true} si la instantánea quedó capturada
+     */
+    public boolean capturar() {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("emails", DataInitializer.EMAILS_DEMO)
+                .addValue("especialidades", DataInitializer.ESPECIALIDADES_DEMO);
+
+        List<EspecialidadDemo> especialidades = namedJdbc.query(
+                "SELECT id, nombre FROM especialidades WHERE nombre IN (:especialidades)",
+                params,
+                (rs, i) -> new EspecialidadDemo(rs.getLong("id"), rs.getString("nombre")));
+
+        List<UsuarioDemo> usuarios = namedJdbc.query(
+                "SELECT id, nombre, email, password, rol, is_activo FROM usuarios WHERE email IN (:emails)",
+                params,
+                (rs, i) -> new UsuarioDemo(rs.getLong("id"), rs.getString("nombre"), rs.getString("email"),
+                        rs.getString("password"), rs.getString("rol"), rs.getBoolean("is_activo")));
+
+        List<Long> usuarioIds = usuarios.stream().map(UsuarioDemo::id).toList();
+        List<MedicoDemo> medicos = usuarioIds.isEmpty() ? List.of() : namedJdbc.query(
+                "SELECT id, usuario_id, especialidad_id, foto_url FROM medicos WHERE usuario_id IN (:usuarios)",
+                new MapSqlParameterSource("usuarios", usuarioIds),
+                (rs, i) -> new MedicoDemo(rs.getLong("id"), rs.getLong("usuario_id"),
+                        rs.getLong("especialidad_id"), rs.getString("foto_url")));
+
+        Long pacienteId = usuarios.stream()
+                .filter(u -> DataInitializer.EMAIL_PACIENTE.equals(u.email()))
+                .map(UsuarioDemo::id)
+                .findFirst()
+                .orElse(null);
+
+        if (especialidades.size() != DataInitializer.ESPECIALIDADES_DEMO.size()
+                || usuarios.size() != DataInitializer.EMAILS_DEMO.size()
+                || medicos.size() != DataInitializer.ESPECIALIDADES_DEMO.size()
+                || pacienteId == null) {
+            log.warn(">>> [DemoReset] Datos demo incompletos; no se captura la instantánea");
+            return false;
+        }
+
+        instantanea = new Instantanea(List.copyOf(especialidades), List.copyOf(usuarios),
+                List.copyOf(medicos), pacienteId);
+        log.info(">>> [DemoReset] Instantánea demo capturada");
+        return true;
+    }
+
+    /**
+     * Restaura los datos demo a partir de la instantánea.
+     * <p>
+     * El orden de los pasos respeta las claves foráneas: primero se recolocan
+     * los médicos demo (por si un visitante los apuntó a otro usuario o especialidad)
+     * y después se borra todo lo que no forma parte de la instantánea.
+     *
+     * @return número de filas afectadas
+     * @throws IllegalStateException si la instantánea no se ha capturado
+     */
+    public int restaurar() {
+        Instantanea demo = instantanea;
+        if (demo == null) {
+            throw new IllegalStateException("La instantánea demo no está capturada");
+        }
+
+        MapSqlParameterSource ids = new MapSqlParameterSource()
+                .addValue("especialidades", demo.especialidadIds())
+                .addValue("usuarios", demo.usuarioIds())
+                .addValue("medicos", demo.medicoIds());
+
+        int filas = 0;
+
+        // Solo se conservan las citas CONFIRMADAS de médicos y pacientes demo
+        filas += namedJdbc.update("""
+                DELETE FROM citas
+                WHERE estado <> 'CONFIRMADA' OR medico_id NOT IN (:medicos) OR paciente_id NOT IN (:usuarios)""", ids);
+        filas += namedJdbc.update("DELETE FROM token_confirmacion WHERE usuario_id NOT IN (:usuarios)", ids);
+
+        filas += sum(jdbc.batchUpdate(
+                "UPDATE medicos SET usuario_id = ?, especialidad_id = ?, foto_url = ? WHERE id = ?",
+                demo.medicos().stream()
+                        .map(m -> new Object[]{m.usuarioId(), m.especialidadId(), m.urlFoto(), m.id()})
+                        .toList()));
+        filas += namedJdbc.update("DELETE FROM medicos WHERE id NOT IN (:medicos)", ids);
+        filas += namedJdbc.update("DELETE FROM usuarios WHERE id NOT IN (:usuarios)", ids);
+        filas += namedJdbc.update("DELETE FROM especialidades WHERE id NOT IN (:especialidades)", ids);
+
+        filas += sum(jdbc.batchUpdate(
+                "UPDATE especialidades SET nombre = ? WHERE id = ?",
+                demo.especialidades().stream()
+                        .map(e -> new Object[]{e.nombre(), e.id()})
+                        .toList()));
+        filas += sum(jdbc.batchUpdate(
+                "UPDATE usuarios SET nombre = ?, email = ?, password = ?, rol = ?, is_activo = ? WHERE id = ?",
+                demo.usuarios().stream()
+                        .map(u -> new Object[]{u.nombre(), u.email(), u.password(), u.rol(), u.activo(), u.id()})
+                        .toList()));
+        return filas;
+    }
+
+    private static int sum(int[] filas) {
+        int total = 0;
+        for (int f : filas) {
+            total += Math.max(f, 0);
+        }
+        return total;
+    }
+}
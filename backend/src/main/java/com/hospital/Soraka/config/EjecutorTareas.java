@@ -0,0 +1,317 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.jfr.TareaProgramadaEvent;
+import com.hospital.Soraka.repository.LeaseTareaRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Envoltorio común de las tareas programadas.
+ * <p>
+ * Cada ejecución:
+ * <ul>
+ *   <li>Se descarta si las tareas están deshabilitadas ({@code tareas.habilitadas=false}).</li>
+ *   <li>Aplica la política de solapamiento de la tarea si otra ejecución local sigue en curso:
+ *       {@code omitir} (por defecto) la descarta y {@code esperar} espera a que termine.
+ *       Se configura con {@code tareas.solapamiento} o, por tarea,
+ *       {@code tareas.<tarea>.solapamiento}.</li>
+ *   <li>Adquiere un lease en {@link LeaseTareaRepository} para que, con varias instancias,
+ *       solo una ejecute cada disparo. El lease dura como máximo
+ *       {@code tareas.<tarea>.lease.maximo-ms} y se renueva mientras la ejecución sigue
+ *       en curso; al terminar se mantiene al menos {@code tareas.<tarea>.lease.minimo-ms}
+ *       (por defecto, el 90 % del intervalo o 30 s en tareas cron).</li>
+ *   <li>Publica su duración ({@code soraka.tareas.duracion}), las filas procesadas
+ *       ({@code soraka.tareas.filas}), el retraso respecto a la hora prevista
+ *       ({@code soraka.tareas.retraso}) y las ejecuciones omitidas
+ *       ({@code soraka.tareas.omitidas}, con el {@code motivo}), todas etiquetadas con {@code tarea}.
+ *       Las ejecuciones hechas en este nodo se emiten también como {@link TareaProgramadaEvent}.</li>
+ * </ul>
+ * Las tareas con mucho trabajo repartible pueden usar {@link #ejecutarParticionado},
+ * que reparte las particiones entre los nodos con un lease por partición.
+ * <p>
+ * Los errores se registran y no se propagan al planificador.
+ */
+@Component
+public class EjecutorTareas {
+
+    private static final Logger log = LoggerFactory.getLogger(EjecutorTareas.class);
+
+    private static final String POLITICA_ESPERAR = "esperar";
+
+    private static final long LEASE_MAXIMO_MS = 600000;
+    private static final long LEASE_MINIMO_CRON_MS = 30000;
+
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+    private final LeaseTareaRepository leaseRepository;
+    private final TaskScheduler taskScheduler;
+    private final String nodo;
+    private final Map<String, EstadoTarea> estados = new ConcurrentHashMap<>();
+
+    public EjecutorTareas(Environment env,
+                          MeterRegistry meterRegistry,
+                          LeaseTareaRepository leaseRepository,
+                          TaskScheduler taskScheduler) {
+        this.env = env;
+        this.meterRegistry = meterRegistry;
+        this.leaseRepository = leaseRepository;
+        this.taskScheduler = taskScheduler;
+        String nodoConfigurado = env.getProperty("tareas.nodo");
+        this.nodo = nodoConfigurado != null ? nodoConfigurado : nodoPorDefecto();
+    }
+
+    /** @return identificador de esta instancia en los leases */
+    public String getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Cuándo debería arrancar una tarea, para medir su retraso.
+     * Se define con {@link #retardoFijo(long)} o {@link #cron(String)}.
+     */
+    public static final class Planificacion {
+
+        private final Duration retardo;
+        private final CronExpression cron;
+
+        private Planificacion(Duration retardo, CronExpression cron) {
+            this.retardo = retardo;
+            this.cron = cron;
+        }
+
+        /** Tarea con {@code fixedDelay}: la siguiente ejecución toca un retardo después de terminar la anterior. */
+        public static Planificacion retardoFijo(long milisegundos) {
+            return new Planificacion(Duration.ofMillis(milisegundos), null);
+        }
+
+        /** Tarea con expresión cron: la siguiente ejecución toca en el siguiente disparo tras la anterior. */
+        public static Planificacion cron(String expresion) {
+            return new Planificacion(null, CronExpression.parse(expresion));
+        }
+
+        private ZonedDateTime prevista(ZonedDateTime ultimoInicio, ZonedDateTime ultimoFin) {
+            return cron != null ? cron.next(ultimoInicio) : ultimoFin.plus(retardo);
+        }
+
+        private long leaseMinimoPorDefecto() {
+            return cron != null ? LEASE_MINIMO_CRON_MS : retardo.toMillis() * 9 / 10;
+        }
+    }
+
+    private static final class EstadoTarea {
+        final ReentrantLock cerrojo = new ReentrantLock();
+        volatile ZonedDateTime ultimoInicio;
+        volatile ZonedDateTime ultimoFin;
+    }
+
+    /**
+     * Ejecuta una tarea programada en un único nodo.
+     *
+     * @param tarea         nombre de la tarea, usado en la configuración, el lease y las métricas
+     * @param planificacion planificación de la tarea
+     * @param cuerpo        trabajo a realizar; devuelve el número de filas procesadas
+     * @return {@code false} si la ejecución se descartó sin llegar a ejecutarse
+     */
+    public boolean ejecutar(String tarea, Planificacion planificacion, IntSupplier cuerpo) {
+        return ejecutarLocal(tarea, planificacion, () -> conLease(tarea, tarea, planificacion, cuerpo));
+    }
+
+    /**
+     * Ejecuta una tarea repartida en particiones, cada una protegida por su propio lease.
+     * <p>
+     * Cada nodo recorre las particiones empezando por una distinta y procesa las que
+     * consigue reservar, de modo que si varios nodos disparan la tarea a la vez el trabajo
+     * se reparte entre ellos y cada partición se procesa una sola vez.
+     *
+     * @param tarea         nombre de la tarea
+     * @param planificacion planificación de la tarea
+     * @param particiones   número de particiones
+     * @param cuerpo        trabajo de una partición (recibe su índice, de 0 a {@code particiones - 1});
+     *                      devuelve el número de filas procesadas
+     * @return {@code false} si no se procesó ninguna partición en este nodo
+     */
+    public boolean ejecutarParticionado(String tarea, Planificacion planificacion, int particiones,
+                                        IntUnaryOperator cuerpo) {
+        return ejecutarLocal(tarea, planificacion, () -> {
+            Integer total = null;
+            int primera = Math.floorMod(nodo.hashCode(), particiones);
+            for (int i = 0; i < particiones; i++) {
+                int particion = (primera + i) % particiones;
+                Integer filas = conLease(tarea, tarea + "#" + particion, planificacion,
+                        () -> cuerpo.applyAsInt(particion));
+                if (filas != null) {
+                    total = (total == null ? 0 : total) + filas;
+                }
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Aplica la política de solapamiento local y publica las métricas de la ejecución.
+     *
+     * @param cuerpo devuelve las filas procesadas, o {@code null} si otro nodo tenía el lease
+     */
+    private boolean ejecutarLocal(String tarea, Planificacion planificacion, Supplier<Integer> cuerpo) {
+        if (!env.getProperty("tareas.habilitadas", Boolean.class, true)) {
+            return false;
+        }
+
+        EstadoTarea estado = estados.computeIfAbsent(tarea, t -> new EstadoTarea());
+        if (!adquirir(tarea, estado)) {
+            log.warn(">>> [Tareas] {} sigue en ejecución; se omite esta ejecución", tarea);
+            omitida(tarea, "en-curso");
+            return false;
+        }
+
+        try {
+            ZonedDateTime inicio = ZonedDateTime.now();
+            registrarRetraso(tarea, planificacion, estado, inicio);
+            estado.ultimoInicio = inicio;
+
+            TareaProgramadaEvent evento = new TareaProgramadaEvent();
+            evento.begin();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String resultado = "ok";
+            int procesadas = 0;
+            try {
+                Integer filas = cuerpo.get();
+                if (filas == null) {
+                    resultado = null;
+                    omitida(tarea, "otro-nodo");
+                    return false;
+                }
+                DistributionSummary.builder("soraka.tareas.filas")
+                        .description("Filas procesadas por ejecución de una tarea programada")
+                        .tag("tarea", tarea)
+                        .register(meterRegistry)
+                        .record(filas);
+                procesadas = filas;
+            } catch (RuntimeException e) {
+                resultado = "error";
+                log.error(">>> [Tareas] Error en {}: {}", tarea, e.getMessage(), e);
+            } finally {
+                // Las ejecuciones que hizo otro nodo no cuentan en la duración
+                if (resultado != null) {
+                    sample.stop(Timer.builder("soraka.tareas.duracion")
+                            .description("Duración de las ejecuciones de tareas programadas")
+                            .tag("tarea", tarea)
+                            .tag("resultado", resultado)
+                            .register(meterRegistry));
+                    evento.end();
+                    if (evento.shouldCommit()) {
+                        evento.tarea = tarea;
+                        evento.resultado = resultado;
+                        evento.filas = procesadas;
+                        evento.commit();
+                    }
+                }
+                estado.ultimoFin = ZonedDateTime.now();
+            }
+            return true;
+
+        } finally {
+            estado.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta el cuerpo si este nodo consigue el lease indicado, renovándolo mientras dure.
+     *
+     * @return filas procesadas, o {@code null} si el lease lo tiene otro nodo
+     */
+    private Integer conLease(String tarea, String lease, Planificacion planificacion, IntSupplier cuerpo) {
+        if (!env.getProperty("tareas.lease.habilitado", Boolean.class, true)) {
+            return cuerpo.getAsInt();
+        }
+
+        long maximoMs = env.getProperty("tareas." + tarea + ".lease.maximo-ms", Long.class, LEASE_MAXIMO_MS);
+        long minimoMs = env.getProperty("tareas." + tarea + ".lease.minimo-ms", Long.class,
+                planificacion.leaseMinimoPorDefecto());
+
+        LocalDateTime inicio = LocalDateTime.now();
+        if (!leaseRepository.adquirir(lease, nodo, inicio, inicio.plusNanos(maximoMs * 1_000_000))) {
+            return null;
+        }
+
+        Duration periodo = Duration.ofMillis(Math.max(maximoMs / 3, 1));
+        ScheduledFuture<?> renovacion = taskScheduler.scheduleAtFixedRate(() -> {
+            LocalDateTime ahora = LocalDateTime.now();
+            if (!leaseRepository.renovar(lease, nodo, ahora, ahora.plusNanos(maximoMs * 1_000_000))) {
+                log.warn(">>> [Tareas] No se pudo renovar el lease {}; otro nodo podría ejecutar la tarea", lease);
+            }
+        }, Instant.now().plus(periodo), periodo);
+
+        try {
+            return cuerpo.getAsInt();
+        } finally {
+            renovacion.cancel(false);
+            leaseRepository.liberar(lease, nodo, LocalDateTime.now(), inicio.plusNanos(minimoMs * 1_000_000));
+        }
+    }
+
+    private void omitida(String tarea, String motivo) {
+        meterRegistry.counter("soraka.tareas.omitidas", "tarea", tarea, "motivo", motivo).increment();
+    }
+
+    private boolean adquirir(String tarea, EstadoTarea estado) {
+        String politica = env.getProperty("tareas." + tarea + ".solapamiento",
+                env.getProperty("tareas.solapamiento", "omitir"));
+        if (POLITICA_ESPERAR.equals(politica)) {
+            estado.cerrojo.lock();
+            return true;
+        }
+        return estado.cerrojo.tryLock();
+    }
+
+    private void registrarRetraso(String tarea, Planificacion planificacion, EstadoTarea estado,
+                                  ZonedDateTime inicio) {
+        // La primera ejecución no tiene referencia previa
+        if (estado.ultimoInicio == null || estado.ultimoFin == null) {
+            return;
+        }
+        ZonedDateTime prevista = planificacion.prevista(estado.ultimoInicio, estado.ultimoFin);
+        if (prevista == null) {
+            return;
+        }
+        Duration retraso = Duration.between(prevista, inicio);
+        Timer.builder("soraka.tareas.retraso")
+                .description("Retraso del inicio de una tarea programada respecto a su hora prevista")
+                .tag("tarea", tarea)
+                .register(meterRegistry)
+                .record(retraso.isNegative() ? Duration.ZERO : retraso);
+    }
+
+    private static String nodoPorDefecto() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "desconocido";
+        }
+        // El sufijo distingue varias instancias en la misma máquina
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hospital.Soraka.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Respuestas en CBOR ({@code application/cbor}) y Smile ({@code application/x-jackson-smile})
+ * para los clientes que las pidan en la cabecera {@code Accept}.
+ * <p>
+ * Son codificaciones binarias del mismo modelo de datos que JSON, así que sirven los DTO
+ * existentes sin esquema aparte. Los conversores se construyen con el
+ * {@link Jackson2ObjectMapperBuilder} de Spring Boot para que apliquen la misma configuración
+ * que las respuestas JSON ({@code spring.jackson.*}, fechas ISO-8601). JSON sigue siendo el
+ * formato por defecto: Spring Boot coloca estos conversores detrás del de JSON.
+ */
+@Configuration
+public class FormatosBinariosConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
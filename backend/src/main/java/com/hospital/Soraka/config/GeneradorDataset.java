@@ -0,0 +1,332 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.repository.CitaJdbcRepository;
+import com.hospital.Soraka.repository.CitaJdbcRepository.NuevaCita;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Generador de un conjunto de datos grande para pruebas de escala (perfil {@code dataset}).
+ *
+ * <p>
+ * Carga miles de médicos repartidos por especialidades, cientos de miles de pacientes y
+ * millones de citas en días laborables, pasadas y futuras, con una distribución de estados
+ * realista:
+ * </p>
+ * <ul>
+ *   <li>Pasadas: REALIZADA (con paciente y motivo) o CADUCADA (hueco que nadie reservó).</li>
+ *   <li>Futuras: CONFIRMADA o DISPONIBLE, con una ocupación que baja a medida que la fecha se aleja.</li>
+ *   <li>Unos pocos pacientes acumulan muchas citas y la mayoría solo alguna.</li>
+ * </ul>
+ *
+ * <p>
+ * Las filas se generan sobre la marcha y se insertan en lotes JDBC de
+ * {@code dataset.tamano-lote} filas, cada lote en su propia transacción, sin cargar el conjunto
+ * completo en memoria. Con la misma {@code dataset.semilla} y {@code dataset.fecha-referencia}
+ * el resultado es idéntico. Se ejecuta con:
+ * </p>
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.profiles=dataset -Dspring-boot.run.arguments=--dataset.pacientes=500000
+ * </pre>
+ */
+@Component
+@Profile("dataset")
+public class GeneradorDataset implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDataset.class);
+
+    /** Dominio de los emails generados; permite identificar (y no duplicar) el dataset. */
+    static final String DOMINIO = "@dataset.soraka.com";
+    private static final String PASSWORD = "dataset1234";
+
+    private static final String INSERT_USUARIO = """
+            INSERT INTO usuarios (nombre, email, password, rol, is_activo, fecha_registro)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_MEDICO =
+            "INSERT INTO medicos (usuario_id, especialidad_id, foto_url) VALUES (?, ?, NULL)";
+
+    /** Especialidades y su peso relativo en el reparto de médicos. */
+    private static final Map<String, Integer> ESPECIALIDADES = Map.ofEntries(
+            Map.entry("Medicina General", 30), Map.entry("Pediatría", 12), Map.entry("Cardiología", 6),
+            Map.entry("Dermatología", 6), Map.entry("Ginecología", 8), Map.entry("Traumatología", 8),
+            Map.entry("Oftalmología", 5), Map.entry("Otorrinolaringología", 4), Map.entry("Neurología", 4),
+            Map.entry("Psiquiatría", 5), Map.entry("Endocrinología", 3), Map.entry("Urología", 3),
+            Map.entry("Digestivo", 4), Map.entry("Neumología", 3), Map.entry("Reumatología", 2),
+            Map.entry("Oncología", 3), Map.entry("Alergología", 2), Map.entry("Nefrología", 2));
+
+    private static final String[] NOMBRES = {
+            "Lucía", "Hugo", "Martina", "Mateo", "Sofía", "Leo", "María", "Daniel", "Julia", "Pablo",
+            "Paula", "Álvaro", "Valeria", "Manuel", "Carmen", "Javier", "Elena", "Adrián", "Sara", "David"};
+    private static final String[] APELLIDOS = {
+            "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez",
+            "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez",
+            "Romero", "Alonso", "Gutiérrez"};
+    private static final String[] MOTIVOS = {
+            "Consulta de revisión general", "Dolor de cabeza persistente", "Resultados de análisis",
+            "Seguimiento de tratamiento", "Renovación de receta", "Dolor lumbar", "Revisión anual",
+            "Molestias digestivas", "Control de tensión arterial", "Erupción cutánea"};
+
+    private final JdbcTemplate jdbc;
+    private final CitaJdbcRepository citaJdbcRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final ConfigurableApplicationContext contexto;
+
+    @Value("${dataset.semilla:42}")
+    private long semilla;
+
+    @Value("${dataset.medicos:2000}")
+    private int medicos;
+
+    @Value("${dataset.pacientes:200000}")
+    private int pacientes;
+
+    @Value("${dataset.dias-pasados:180}")
+    private int diasPasados;
+
+    @Value("${dataset.dias-futuros:30}")
+    private int diasFuturos;
+
+    @Value("${dataset.tamano-lote:5000}")
+    private int tamanoLote;
+
+    /** Día a partir del cual se calculan las citas pasadas y futuras; vacío = hoy. */
+    @Value("${dataset.fecha-referencia:}")
+    private String fechaReferencia;
+
+    @Value("${dataset.salir-al-terminar:true}")
+    private boolean salirAlTerminar;
+
+    public GeneradorDataset(JdbcTemplate jdbc,
+                            CitaJdbcRepository citaJdbcRepository,
+                            PasswordEncoder passwordEncoder,
+                            TransactionTemplate transactionTemplate,
+                            ConfigurableApplicationContext contexto) {
+        this.jdbc = jdbc;
+        this.citaJdbcRepository = citaJdbcRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.contexto = contexto;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer existentes = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM usuarios WHERE email LIKE ?", Integer.class, "%" + DOMINIO);
+        if (existentes != null && existentes > 0) {
+            log.warn(">>> [Dataset] La base de datos ya contiene {} usuarios del dataset; no se genera de nuevo", existentes);
+        } else {
+            generar();
+        }
+
+        if (salirAlTerminar) {
+            System.exit(SpringApplication.exit(contexto, () -> 0));
+        }
+    }
+
+    private void generar() {
+        long inicio = System.currentTimeMillis();
+        LocalDate referencia = fechaReferencia.isBlank() ? LocalDate.now() : LocalDate.parse(fechaReferencia);
+        SplittableRandom rng = new SplittableRandom(semilla);
+        String password = passwordEncoder.encode(PASSWORD);
+
+        log.info(">>> [Dataset] Generando {} médicos, {} pacientes y citas de {} días (semilla {}, referencia {})",
+                medicos, pacientes, diasPasados + diasFuturos, semilla, referencia);
+
+        // 1. Especialidades (se reutilizan las existentes)
+        List<Long> especialidadIds = new ArrayList<>();
+        List<Integer> pesos = new ArrayList<>();
+        asegurarEspecialidades().forEach((id, peso) -> {
+            especialidadIds.add(id);
+            pesos.add(peso);
+        });
+
+        // 2. Médicos: usuario + fila en medicos
+        insertarUsuarios("medico", medicos, Rol.MEDICO, password, referencia, rng);
+        long[] usuariosMedico = idsUsuarios("medico");
+        enLotes(usuariosMedico.length, (desde, hasta) -> {
+            List<Object[]> filas = new ArrayList<>(hasta - desde);
+            for (int i = desde; i < hasta; i++) {
+                filas.add(new Object[]{usuariosMedico[i], especialidadIds.get(elegirPonderado(pesos, rng))});
+            }
+            jdbc.batchUpdate(INSERT_MEDICO, filas);
+        });
+        long[] medicoIds = jdbc.queryForList("""
+                        SELECT m.id FROM medicos m JOIN usuarios u ON u.id = m.usuario_id
+                        WHERE u.email LIKE ? ORDER BY m.id""", Long.class, "medico%" + DOMINIO)
+                .stream().mapToLong(Long::longValue).toArray();
+        log.info(">>> [Dataset] {} médicos insertados", medicoIds.length);
+
+        // 3. Pacientes
+        insertarUsuarios("paciente", pacientes, Rol.PACIENTE, password, referencia, rng);
+        long[] pacienteIds = idsUsuarios("paciente");
+        log.info(">>> [Dataset] {} pacientes insertados", pacienteIds.length);
+
+        // 4. Citas, en lotes según se generan
+        List<NuevaCita> lote = new ArrayList<>(tamanoLote);
+        long[] insertadas = {0};
+        generarCitas(medicoIds, pacienteIds, referencia, rng, cita -> {
+            lote.add(cita);
+            if (lote.size() == tamanoLote) {
+                insertadas[0] += insertarCitas(lote);
+                if (insertadas[0] % (tamanoLote * 100L) == 0) {
+                    log.info(">>> [Dataset] {} citas insertadas...", insertadas[0]);
+                }
+            }
+        });
+        insertadas[0] += insertarCitas(lote);
+
+        log.info(">>> [Dataset] Completado en {} s: {} médicos, {} pacientes, {} citas",
+                (System.currentTimeMillis() - inicio) / 1000, medicoIds.length, pacienteIds.length, insertadas[0]);
+    }
+
+    /**
+     * Genera las citas de todos los médicos, de la más antigua a la más reciente, y las
+     * entrega a {@code destino} una a una. Solo depende de los parámetros recibidos, de modo
+     * que la misma semilla produce siempre la misma secuencia.
+     */
+    void generarCitas(long[] medicoIds, long[] pacienteIds, LocalDate referencia,
+                      SplittableRandom rng, Consumer<NuevaCita> destino) {
+        for (long medicoId : medicoIds) {
+            for (int dia = -diasPasados; dia <= diasFuturos; dia++) {
+                LocalDate fecha = referencia.plusDays(dia);
+                if (dia == 0 || fecha.getDayOfWeek() == DayOfWeek.SATURDAY || fecha.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    continue;
+                }
+                // Ocupación de los huecos futuros: ~85 % mañana, ~10 % al final del periodo
+                double ocupacionFutura = 0.10 + 0.75 * (1 - (double) dia / diasFuturos);
+
+                for (LocalDateTime hora = fecha.atTime(8, 0); hora.isBefore(fecha.atTime(15, 0)); hora = hora.plusMinutes(30)) {
+                    if (dia < 0) {
+                        destino.accept(rng.nextDouble() < 0.75
+                                ? new NuevaCita(medicoId, elegirPaciente(pacienteIds, rng), hora, EstadoCita.REALIZADA, elegir(MOTIVOS, rng))
+                                : new NuevaCita(medicoId, null, hora, EstadoCita.CADUCADA, null));
+                    } else {
+                        destino.accept(rng.nextDouble() < ocupacionFutura
+                                ? new NuevaCita(medicoId, elegirPaciente(pacienteIds, rng), hora, EstadoCita.CONFIRMADA, elegir(MOTIVOS, rng))
+                                : NuevaCita.disponible(medicoId, hora));
+                    }
+                }
+            }
+        }
+    }
+
+    /* =========================
+       AUXILIARES
+       ========================= */
+
+    private Map<Long, Integer> asegurarEspecialidades() {
+        Map<String, Long> existentes = new HashMap<>();
+        jdbc.query("SELECT id, nombre FROM especialidades", rs -> {
+            existentes.put(rs.getString(2), rs.getLong(1));
+        });
+
+        List<Object[]> nuevas = ESPECIALIDADES.keySet().stream()
+                .filter(nombre -> !existentes.containsKey(nombre))
+                .sorted()
+                .map(nombre -> new Object[]{nombre})
+                .toList();
+        if (!nuevas.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO especialidades (nombre) VALUES (?)", nuevas);
+            jdbc.query("SELECT id, nombre FROM especialidades", rs -> {
+                existentes.put(rs.getString(2), rs.getLong(1));
+            });
+        }
+
+        // Orden estable para que el reparto de médicos dependa solo de la semilla
+        Map<Long, Integer> pesos = new LinkedHashMap<>();
+        ESPECIALIDADES.keySet().stream().sorted()
+                .forEach(nombre -> pesos.put(existentes.get(nombre), ESPECIALIDADES.get(nombre)));
+        return pesos;
+    }
+
+    private void insertarUsuarios(String prefijo, int cantidad, Rol rol, String password,
+                                  LocalDate referencia, SplittableRandom rng) {
+        enLotes(cantidad, (desde, hasta) -> {
+            List<Object[]> filas = new ArrayList<>(hasta - desde);
+            for (int i = desde; i < hasta; i++) {
+                String nombre = elegir(NOMBRES, rng) + " " + elegir(APELLIDOS, rng) + " " + elegir(APELLIDOS, rng);
+                LocalDateTime registro = referencia.minusDays(rng.nextInt(730)).atTime(rng.nextInt(24), rng.nextInt(60));
+                filas.add(new Object[]{
+                        rol == Rol.MEDICO ? "Dr. " + nombre : nombre,
+                        prefijo + i + DOMINIO,
+                        password,
+                        rol.name(),
+                        rol == Rol.MEDICO || rng.nextDouble() < 0.95,
+                        Timestamp.valueOf(registro)
+                });
+            }
+            jdbc.batchUpdate(INSERT_USUARIO, filas);
+        });
+    }
+
+    private long[] idsUsuarios(String prefijo) {
+        return jdbc.queryForList("SELECT id FROM usuarios WHERE email LIKE ? ORDER BY id", Long.class, prefijo + "%" + DOMINIO)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private int insertarCitas(List<NuevaCita> lote) {
+        int insertadas = transactionTemplate.execute(status -> citaJdbcRepository.insertarLote(lote));
+        lote.clear();
+        return insertadas;
+    }
+
+    /** Ejecuta {@code accion} sobre rangos {@code [desde, hasta)} de como mucho {@code tamanoLote} elementos, cada uno en su transacción. */
+    private void enLotes(int total, AccionLote accion) {
+        for (int desde = 0; desde < total; desde += tamanoLote) {
+            int inicio = desde;
+            int fin = Math.min(desde + tamanoLote, total);
+            transactionTemplate.executeWithoutResult(status -> accion.ejecutar(inicio, fin));
+        }
+    }
+
+    private interface AccionLote {
+        void ejecutar(int desde, int hasta);
+    }
+
+    /** Pacientes con una distribución sesgada: los primeros acumulan muchas más citas que el resto. */
+    private static long elegirPaciente(long[] pacienteIds, SplittableRandom rng) {
+        double u = rng.nextDouble();
+        return pacienteIds[(int) (pacienteIds.length * u * u)];
+    }
+
+    private static int elegirPonderado(List<Integer> pesos, SplittableRandom rng) {
+        int total = pesos.stream().mapToInt(Integer::intValue).sum();
+        int r = rng.nextInt(total);
+        for (int i = 0; i < pesos.size(); i++) {
+            r -= pesos.get(i);
+            if (r < 0) {
+                return i;
+            }
+        }
+        return pesos.size() - 1;
+    }
+
+    private static String elegir(String[] valores, SplittableRandom rng) {
+        return valores[rng.nextInt(valores.length)];
+    }
+}
@@ -0,0 +1,163 @@
+package com.hospital.Soraka.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limita el número de peticiones que se procesan a la vez.
+ *
+ * <p>
+ * Con hilos virtuales Tomcat deja de estar acotado por su pool de hilos, y una ráfaga de
+ * peticiones se traduciría en miles de hilos esperando una conexión del pool de Hikari
+ * (hasta agotar su {@code connection-timeout}). Este filtro admite como máximo
+ * {@code concurrencia.max-peticiones} peticiones simultáneas (por defecto, el tamaño del pool
+ * de conexiones); el resto espera un semáforo hasta {@code concurrencia.espera-ms} y, si no
+ * obtiene plaza, recibe un 503 con {@code Retry-After}.
+ * </p>
+ *
+ * <p>
+ * Se ejecuta antes de la cadena de Spring Security, ya que el filtro JWT también consulta
+ * la base de datos. Está activo por defecto solo cuando se usan hilos virtuales
+ * ({@code concurrencia.limite.habilitado}).
+ * </p>
+ *
+ * <p>
+ * Si la petición continúa de forma asíncrona (como la exportación de citas, que mantiene una
+ * conexión abierta mientras escribe), el permiso se conserva hasta que termina. Los streams
+ * SSE son la excepción: solo esperan eventos en memoria y no deben ocupar plazas durante
+ * toda la suscripción.
+ * </p>
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final int maxPeticiones;
+    private final long esperaMs;
+    private final boolean habilitado;
+    private final Counter rechazadas;
+
+    public LimiteConcurrenciaFilter(@Value("${concurrencia.limite.habilitado:${spring.threads.virtual.enabled:false}}") boolean habilitado,
+                                    @Value("${concurrencia.max-peticiones:${spring.datasource.hikari.maximum-pool-size:10}}") int maxPeticiones,
+                                    @Value("${concurrencia.espera-ms:2000}") long esperaMs,
+                                    MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.maxPeticiones = maxPeticiones;
+        this.esperaMs = esperaMs;
+        // Justo: las peticiones se admiten en orden de llegada
+        this.permisos = new Semaphore(maxPeticiones, true);
+        this.rechazadas = Counter.builder("soraka.concurrencia.rechazadas")
+                .description("Peticiones rechazadas por el límite de concurrencia")
+                .register(meterRegistry);
+        Gauge.builder("soraka.concurrencia.en-curso", this, f -> f.maxPeticiones - f.permisos.availablePermits())
+                .description("Peticiones en proceso dentro del límite de concurrencia")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        boolean admitida;
+        try {
+            admitida = permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+
+        if (!admitida) {
+            rechazadas.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType("application/json");
+            response.getWriter().write(
+                "{\"error\": \"El servidor está saturado. Vuelve a intentarlo en unos segundos.\"}"
+            );
+            return;
+        }
+
+        boolean liberar = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !esStreamSse(response)) {
+                request.getAsyncContext().addListener(new LiberarAlTerminar());
+                liberar = false;
+            }
+        } finally {
+            if (liberar) {
+                permisos.release();
+            }
+        }
+    }
+
+    private static boolean esStreamSse(HttpServletResponse response) {
+        String tipo = response.getContentType();
+        return tipo != null && tipo.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    /** Devuelve el permiso cuando termina la parte asíncrona de la petición, una sola vez. */
+    private final class LiberarAlTerminar implements AsyncListener {
+
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Tras el timeout el contenedor completa la petición y llega onComplete
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo ciclo asíncrono (redespacho) vuelve a registrar el listener
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                permisos.release();
+            }
+        }
+    }
+
+    /**
+     * Los ficheros subidos y los endpoints de Actuator no usan el pool de conexiones.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !habilitado || uri.startsWith("/uploads/") || uri.startsWith("/actuator/");
+    }
+}
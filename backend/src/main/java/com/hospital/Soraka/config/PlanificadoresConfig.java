@@ -0,0 +1,87 @@
+package com.hospital.Soraka.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Planificadores de las tareas programadas.
+ * <p>
+ * Cada tarea se asigna con {@code @Scheduled(scheduler = ...)} a su propio planificador
+ * de un hilo, de modo que una ejecución lenta (reset demo, generación nocturna) no retrasa
+ * al resto, en particular al cierre de citas pasadas. Las tareas sin planificador explícito
+ * usan {@code taskScheduler}.
+ * <p>
+ * Con {@code spring.threads.virtual.enabled=true} cada planificador es un
+ * {@link SimpleAsyncTaskScheduler} que ejecuta las tareas en hilos virtuales. Las tareas
+ * de retardo fijo siguen ejecutándose de una en una en el hilo de su planificador.
+ */
+@Configuration
+public class PlanificadoresConfig {
+
+    public static final String CIERRE_CITAS     = "planificadorCierreCitas";
+    public static final String GENERACION_CITAS = "planificadorGeneracionCitas";
+    public static final String RECORDATORIOS    = "planificadorRecordatorios";
+    public static final String PURGA            = "planificadorPurga";
+    public static final String DEMO             = "planificadorDemo";
+
+    /** Segundos que se esperan al apagar a que termine la ejecución en curso. */
+    private static final int ESPERA_APAGADO_SEGUNDOS = 30;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+
+    @Bean
+    @Primary
+    public TaskScheduler taskScheduler() {
+        return crear("planificador-");
+    }
+
+    @Bean(name = CIERRE_CITAS)
+    public TaskScheduler planificadorCierreCitas() {
+        return crear("tarea-cierre-citas-");
+    }
+
+    @Bean(name = GENERACION_CITAS)
+    public TaskScheduler planificadorGeneracionCitas() {
+        return crear("tarea-generacion-citas-");
+    }
+
+    @Bean(name = RECORDATORIOS)
+    public TaskScheduler planificadorRecordatorios() {
+        return crear("tarea-recordatorios-");
+    }
+
+    @Bean(name = PURGA)
+    public TaskScheduler planificadorPurga() {
+        return crear("tarea-purga-");
+    }
+
+    @Bean(name = DEMO)
+    public TaskScheduler planificadorDemo() {
+        return crear("tarea-demo-");
+    }
+
+    private TaskScheduler crear(String prefijo) {
+        if (hilosVirtuales) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix(prefijo);
+            scheduler.setTaskTerminationTimeout(ESPERA_APAGADO_SEGUNDOS * 1000L);
+            return scheduler;
+        }
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix(prefijo);
+        // Al apagar se deja terminar la ejecución en curso, pero no se esperan los disparos futuros
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(ESPERA_APAGADO_SEGUNDOS);
+        return scheduler;
+    }
+}
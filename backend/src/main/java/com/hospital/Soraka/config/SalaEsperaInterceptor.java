@@ -0,0 +1,82 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.service.SalaEsperaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Exige un turno admitido de la sala de espera ({@link SalaEsperaService}) a los pacientes
+ * que consultan huecos, los retienen o reservan.
+ *
+ * <p>
+ * El turno viaja en la cabecera {@value #CABECERA_TURNO}. Sin turno admitido se responde
+ * 429 con la posición en la cola y un {@code Retry-After}. La duración de cada reserva
+ * admitida se comunica al servicio para ajustar la tasa de admisión.
+ * Con la sala inactiva no se comprueba nada.
+ * </p>
+ */
+@Component
+public class SalaEsperaInterceptor implements HandlerInterceptor {
+
+    public static final String CABECERA_TURNO = "X-Turno-Sala";
+
+    private static final String ATRIBUTO_INICIO = SalaEsperaInterceptor.class.getName() + ".inicio";
+
+    private final SalaEsperaService salaEsperaService;
+
+    public SalaEsperaInterceptor(SalaEsperaService salaEsperaService) {
+        this.salaEsperaService = salaEsperaService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!salaEsperaService.isActiva()) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Usuario usuario)
+                || usuario.getRol() != Rol.PACIENTE) {
+            return true;
+        }
+
+        String turno = request.getHeader(CABECERA_TURNO);
+        if (salaEsperaService.admitido(turno, usuario.getId())) {
+            if (esReserva(request)) {
+                request.setAttribute(ATRIBUTO_INICIO, System.nanoTime());
+            }
+            return true;
+        }
+
+        long posicion = salaEsperaService.posicion(turno, usuario.getId());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+        response.setContentType("application/json");
+        response.getWriter().write(posicion < 0
+                ? "{\"error\": \"Pide turno en la sala de espera para continuar.\"}"
+                : "{\"error\": \"Todavía no es tu turno.\", \"posicion\": " + posicion + "}");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO_INICIO) instanceof Long inicio) {
+            salaEsperaService.registrarLatencia((System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+
+    private static boolean esReserva(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod()) && request.getRequestURI().endsWith("/reservar");
+    }
+}
@@ -0,0 +1,152 @@
+package com.hospital.Soraka.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide las sentencias SQL y el tiempo de base de datos de cada petición HTTP.
+ *
+ * <p>
+ * Abre una medición de {@link ContadorSql} que abarca toda la petición, incluido el filtro
+ * JWT, y al terminar:
+ * </p>
+ * <ul>
+ *   <li>registra {@code soraka.sql.consultas} y {@code soraka.sql.tiempo} por ruta;</li>
+ *   <li>escribe un aviso en el log si la petición supera {@code sql.monitor.umbral-consultas}
+ *       sentencias o {@code sql.monitor.umbral-ms} milisegundos, o si una misma sentencia se
+ *       repite {@code sql.monitor.umbral-repeticiones} veces (N+1).</li>
+ * </ul>
+ *
+ * <p>
+ * Con {@code sql.monitor.cabeceras=true} (solo fuera de producción) añade a la respuesta
+ * las cabeceras {@value #CABECERA_CONSULTAS} y {@value #CABECERA_TIEMPO}. Si la respuesta se
+ * envía antes de terminar la petición, reflejan las sentencias ejecutadas hasta ese momento.
+ * </p>
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 20)
+public class SqlPorPeticionFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlPorPeticionFilter.class);
+
+    public static final String CABECERA_CONSULTAS = "X-Sql-Consultas";
+    public static final String CABECERA_TIEMPO = "X-Sql-Tiempo-Ms";
+
+    /** Longitud máxima de la sentencia que se incluye en el log. */
+    private static final int MAX_LONGITUD_SQL = 300;
+
+    private final boolean habilitado;
+    private final boolean cabeceras;
+    private final int umbralConsultas;
+    private final int umbralRepeticiones;
+    private final long umbralMs;
+    private final MeterRegistry meterRegistry;
+
+    public SqlPorPeticionFilter(@Value("${sql.monitor.habilitado:true}") boolean habilitado,
+                                @Value("${sql.monitor.cabeceras:false}") boolean cabeceras,
+                                @Value("${sql.monitor.umbral-consultas:30}") int umbralConsultas,
+                                @Value("${sql.monitor.umbral-repeticiones:10}") int umbralRepeticiones,
+                                @Value("${sql.monitor.umbral-ms:500}") long umbralMs,
+                                MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.cabeceras = cabeceras;
+        this.umbralConsultas = umbralConsultas;
+        this.umbralRepeticiones = umbralRepeticiones;
+        this.umbralMs = umbralMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        ContadorSql.Medicion medicion = ContadorSql.iniciar();
+        try {
+            filterChain.doFilter(request, cabeceras ? new RespuestaConCabeceras(response, medicion) : response);
+        } finally {
+            ContadorSql.finalizar(medicion);
+            if (cabeceras && !response.isCommitted()) {
+                escribirCabeceras(response, medicion);
+            }
+            registrar(request, medicion);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !habilitado || request.getRequestURI().startsWith("/uploads/");
+    }
+
+    private void registrar(HttpServletRequest request, ContadorSql.Medicion medicion) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (patron != null) {
+            DistributionSummary.builder("soraka.sql.consultas")
+                    .description("Sentencias SQL ejecutadas por petición")
+                    .tag("uri", patron.toString())
+                    .register(meterRegistry)
+                    .record(medicion.getConsultas());
+            Timer.builder("soraka.sql.tiempo")
+                    .description("Tiempo de base de datos por petición")
+                    .tag("uri", patron.toString())
+                    .register(meterRegistry)
+                    .record(medicion.getTiempoMs(), TimeUnit.MILLISECONDS);
+        }
+
+        Map.Entry<String, Integer> masRepetida = medicion.getMasRepetida().orElse(null);
+        boolean repetida = masRepetida != null && masRepetida.getValue() >= umbralRepeticiones;
+        if (medicion.getConsultas() >= umbralConsultas || medicion.getTiempoMs() >= umbralMs || repetida) {
+            log.warn(">>> [SQL] {} {} ejecutó {} sentencias en {} ms{}",
+                    request.getMethod(), request.getRequestURI(),
+                    medicion.getConsultas(), medicion.getTiempoMs(),
+                    repetida ? "; repetida " + masRepetida.getValue() + " veces: " + recortar(masRepetida.getKey()) : "");
+        }
+    }
+
+    private static void escribirCabeceras(HttpServletResponse response, ContadorSql.Medicion medicion) {
+        response.setHeader(CABECERA_CONSULTAS, String.valueOf(medicion.getConsultas()));
+        response.setHeader(CABECERA_TIEMPO, String.valueOf(medicion.getTiempoMs()));
+    }
+
+    private static String recortar(String sql) {
+        return sql.length() > MAX_LONGITUD_SQL ? sql.substring(0, MAX_LONGITUD_SQL) + "..." : sql;
+    }
+
+    /**
+     * Escribe las cabeceras justo antes de que se envíe la respuesta, cuando ya no se pueden
+     * añadir desde el filtro.
+     */
+    private static class RespuestaConCabeceras extends OnCommittedResponseWrapper {
+
+        private final ContadorSql.Medicion medicion;
+
+        RespuestaConCabeceras(HttpServletResponse response, ContadorSql.Medicion medicion) {
+            super(response);
+            this.medicion = medicion;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            escribirCabeceras((HttpServletResponse) getResponse(), medicion);
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package com.hospital.Soraka.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final SalaEsperaInterceptor salaEsperaInterceptor;
+
+    public WebConfig(SalaEsperaInterceptor salaEsperaInterceptor) {
+        this.salaEsperaInterceptor = salaEsperaInterceptor;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Mapea /uploads/** a la carpeta física de tu backend
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:/app/uploads/"); // ruta relativa a donde corre la app en docker
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Endpoints de reserva que pasan por la sala de espera virtual
+        registry.addInterceptor(salaEsperaInterceptor)
+                .addPathPatterns("/api/citas/disponibles", "/api/citas/disponibles/proximas",
+                        "/api/medicos/*/calendario", "/api/citas/*/hold", "/api/citas/*/reservar");
+    }
+}
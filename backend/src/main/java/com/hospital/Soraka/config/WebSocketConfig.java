@@ -0,0 +1,56 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.security.JwtStompInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * WebSocket con STOMP para la agenda en vivo de los médicos.
+ * <p>
+ * El endpoint es {@code /ws}, con el broker simple en memoria para {@code /topic} y los
+ * controladores STOMP bajo {@code /app}. El broker envía y espera latidos cada
+ * {@code agenda.ws.latido-ms} para detectar conexiones caídas.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final JwtStompInterceptor jwtStompInterceptor;
+    private final TaskScheduler taskScheduler;
+    private final String allowedOrigin;
+    private final long latidoMs;
+
+    public WebSocketConfig(JwtStompInterceptor jwtStompInterceptor,
+                           TaskScheduler taskScheduler,
+                           @Value("${cors.allowed-origin}") String allowedOrigin,
+                           @Value("${agenda.ws.latido-ms:10000}") long latidoMs) {
+        this.jwtStompInterceptor = jwtStompInterceptor;
+        this.taskScheduler = taskScheduler;
+        this.allowedOrigin = allowedOrigin;
+        this.latidoMs = latidoMs;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOrigins(allowedOrigin);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[]{latidoMs, latidoMs})
+                .setTaskScheduler(taskScheduler);
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(jwtStompInterceptor);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.dto.cita.ReanudacionAgendaDTO;
+import com.hospital.Soraka.service.AgendaMedicoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Controlador STOMP de la agenda en vivo de los médicos.
+ *
+ * <p>
+ * Tras (re)conectar, el cliente se suscribe a {@code /topic/medicos/{medicoId}/agenda} para
+ * los eventos nuevos y a {@code /app/medicos/{medicoId}/agenda}, con la cabecera
+ * {@value #CABECERA_ULTIMO_EVENTO}, para recibir una única respuesta con los que se perdió.
+ * Los eventos pueden llegar por ambas vías; el cliente descarta los ids ya aplicados.
+ * La autorización de las suscripciones la hace {@code JwtStompInterceptor}.
+ */
+@Controller
+public class AgendaMedicoWsController {
+
+    public static final String CABECERA_ULTIMO_EVENTO = "ultimo-evento";
+
+    @Autowired
+    private AgendaMedicoService agendaMedicoService;
+
+    /**
+     * Devuelve los eventos de la agenda posteriores al último visto por el cliente.
+     *
+     * @param medicoId     id del médico
+     * @param ultimoEvento último id de evento recibido
+     * @return eventos pendientes
+     */
+    @SubscribeMapping("/medicos/{medicoId}/agenda")
+    public ReanudacionAgendaDTO reanudar(@DestinationVariable Long medicoId,
+                                         @Header(name = CABECERA_ULTIMO_EVENTO, required = false) Long ultimoEvento) {
+        return agendaMedicoService.reanudar(medicoId, ultimoEvento);
+    }
+}
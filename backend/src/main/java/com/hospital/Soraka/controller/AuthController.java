@@ -8,6 +8,8 @@ import com.hospital.Soraka.entity.Usuario;
 import com.hospital.Soraka.service.ConfirmacionService;
 import com.hospital.Soraka.service.UsuarioService;
 import com.hospital.Soraka.security.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -40,6 +42,7 @@ public class AuthController {
     private final JwtService jwtService;
     private final UsuarioService usuarioService;
     private final ConfirmacionService confirmacionService;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Constructor con inyección de dependencias para los servicios y componentes de seguridad.
@@ -48,15 +51,18 @@ public class AuthController {
      * @param jwtService Servicio para la generación y validación de tokens JWT.
      * @param usuarioService Servicio encargado de la creación y manejo de usuarios.
      * @param confirmacionService Servicio encargado de la confirmación de cuentas por correo electrónico.
+     * @param meterRegistry Registro de métricas.
      */
     public AuthController(AuthenticationManager authenticationManager,
                           JwtService jwtService,
                           UsuarioService usuarioService,
-                          ConfirmacionService confirmacionService) {
+                          ConfirmacionService confirmacionService,
+                          MeterRegistry meterRegistry) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.usuarioService = usuarioService;
         this.confirmacionService = confirmacionService;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -64,6 +70,7 @@ public class AuthController {
      * <p>
      * Recibe un {@link LoginRequestDTO} con el email y la contraseña del usuario,
      * autentica mediante Spring Security y devuelve un token JWT en caso de éxito.
+     * La duración de la autenticación se publica en {@code soraka.auth.login}.
      *
      * @param dto DTO con email y contraseña del usuario.
      * @return {@link LoginResponseDTO} que contiene el token JWT generado.
@@ -72,9 +79,20 @@ public class AuthController {
      */
     @PostMapping("/login")
     public LoginResponseDTO login(@RequestBody LoginRequestDTO dto) {
-        Authentication auth = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(dto.getEmail(), dto.getPassword())
-        );
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String resultado = "fallido";
+        Authentication auth;
+        try {
+            auth = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(dto.getEmail(), dto.getPassword())
+            );
+            resultado = "ok";
+        } finally {
+            sample.stop(Timer.builder("soraka.auth.login")
+                    .description("Duración de la autenticación en el login")
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+        }
 
         UserDetails userDetails = (UserDetails) auth.getPrincipal();
 
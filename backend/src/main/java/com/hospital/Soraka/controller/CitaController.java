@@ -2,16 +2,32 @@ package com.hospital.Soraka.controller;
 
 import com.hospital.Soraka.dto.cita.*;
 import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.FormatoExportacion;
+import com.hospital.Soraka.exception.Cita.FormatoExportacionInvalidoException;
+import com.hospital.Soraka.repository.CitaJdbcRepository.FiltroExportacion;
 import com.hospital.Soraka.service.CitaService;
+import com.hospital.Soraka.service.DisponibilidadStreamService;
+import com.hospital.Soraka.service.ProximosHuecosService;
+import com.hospital.Soraka.service.RetencionCitasService;
+import com.hospital.Soraka.service.ExportacionCitasService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Controlador REST que gestiona las operaciones sobre citas médicas.
@@ -28,6 +44,18 @@ public class CitaController {
     @Autowired
     private CitaService citaService;
 
+    @Autowired
+    private ExportacionCitasService exportacionCitasService;
+
+    @Autowired
+    private DisponibilidadStreamService disponibilidadStreamService;
+
+    @Autowired
+    private RetencionCitasService retencionCitasService;
+
+    @Autowired
+    private ProximosHuecosService proximosHuecosService;
+
     /**
      * Lista todas las citas
      *
@@ -39,6 +67,52 @@ public class CitaController {
         return citaService.getTodasLasCitas();
     }
 
+    /**
+     * Exporta todas las citas que cumplen los filtros en NDJSON (una cita por línea) o CSV.
+     *
+     * <p>
+     * La respuesta se escribe mientras se leen las filas, sin cargar las citas en memoria, y
+     * se comprime con gzip si el cliente lo acepta ({@code Accept-Encoding: gzip}).
+     *
+     * @param formato        {@code ndjson} (por defecto) o {@code csv}
+     * @param estado         estado de las citas
+     * @param desde          primer día incluido
+     * @param hasta          último día incluido
+     * @param medicoId       id del médico
+     * @param acceptEncoding cabecera {@code Accept-Encoding} de la petición
+     * @return cuerpo de la exportación
+     */
+    @GetMapping("/exportar")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportarCitas(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestParam(required = false) EstadoCita estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long medicoId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        FormatoExportacion tipo = FormatoExportacion.buscar(formato);
+        if (tipo == null) {
+            throw new FormatoExportacionInvalidoException("Formato de exportación no soportado: " + formato);
+        }
+        FiltroExportacion filtro = new FiltroExportacion(
+                estado,
+                desde != null ? desde.atStartOfDay() : null,
+                hasta != null ? hasta.plusDays(1).atStartOfDay() : null,
+                medicoId);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tipo.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"citas." + tipo.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(salida -> exportacionCitasService.exportar(filtro, tipo, gzip, salida));
+    }
+
     /**
      * Obtiene las citas del paciente autenticado.
      *
@@ -85,6 +159,20 @@ public class CitaController {
         return citaService.createCita(cita);
     }
 
+    /**
+     * Abre un rango de huecos disponibles en la agenda de un médico en una sola petición.
+     *
+     * @param rango médico, fechas, horario y duración de los huecos
+     * @return resumen con los huecos creados y omitidos
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CitasBulkResponseDTO createCitasBulk(
+            @RequestBody @Valid CitasBulkPostDTO rango
+    ) {
+        return citaService.createCitasBulk(rango);
+    }
+
     /**
      * Modifica parcialmente una cita existente.
      *
@@ -113,14 +201,122 @@ public class CitaController {
     }
 
     /**
-     * Lista todas las citas disponibles con fecha futura.
+     * Lista todas las citas disponibles con fecha futura, sin las retenidas por otros usuarios.
      *
+     * @param authentication contexto de seguridad
      * @return lista de citas disponibles
      */
     @GetMapping("/disponibles")
     @PreAuthorize("hasAuthority('PACIENTE') or hasAuthority('MEDICO') or hasAuthority('ADMIN')")
-    public List<CitaResponseDTO> listarDisponibles() {
-        return citaService.listarDisponibles();
+    public List<CitaResponseDTO> listarDisponibles(Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return citaService.listarDisponibles(usuario.getId());
+    }
+
+    /**
+     * Las citas disponibles agrupadas por médico y día ({@link DisponiblesAgrupadasDTO}), sin
+     * repetir los datos del médico en cada hueco. Se elige con la cabecera
+     * {@code Accept: application/vnd.soraka.disponibles-agrupadas+json}.
+     *
+     * @param authentication contexto de seguridad
+     * @return citas disponibles agrupadas
+     */
+    @GetMapping(value = "/disponibles", produces = DisponiblesAgrupadasDTO.MEDIA_TYPE)
+    @PreAuthorize("hasAuthority('PACIENTE') or hasAuthority('MEDICO') or hasAuthority('ADMIN')")
+    public DisponiblesAgrupadasDTO listarDisponiblesAgrupadas(Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return citaService.listarDisponiblesAgrupadas(usuario.getId());
+    }
+
+    /**
+     * Igual que {@link #listarDisponiblesAgrupadas(Authentication)}, para clientes que no pueden
+     * fijar la cabecera {@code Accept}: {@code /api/citas/disponibles?formato=agrupado}.
+     *
+     * @param authentication contexto de seguridad
+     * @return citas disponibles agrupadas
+     */
+    @GetMapping(value = "/disponibles", params = "formato=agrupado")
+    @PreAuthorize("hasAuthority('PACIENTE') or hasAuthority('MEDICO') or hasAuthority('ADMIN')")
+    public DisponiblesAgrupadasDTO listarDisponiblesAgrupadasPorParametro(Authentication authentication) {
+        return listarDisponiblesAgrupadas(authentication);
+    }
+
+    /**
+     * Próximos huecos libres de una especialidad, desde el índice en memoria
+     * ({@link ProximosHuecosService}); no descarga toda la disponibilidad.
+     *
+     * @param especialidadId id de la especialidad
+     * @param n              número de huecos (por defecto 5)
+     * @param desde          hora mínima de inicio, opcional
+     * @param hasta          hora máxima de inicio, opcional; si es anterior a {@code desde}, la franja cruza la medianoche
+     * @param authentication contexto de seguridad
+     * @return huecos en orden de fecha
+     */
+    @GetMapping("/disponibles/proximas")
+    @PreAuthorize("isAuthenticated()")
+    public List<HuecoLibreDTO> proximosHuecos(
+            @RequestParam Long especialidadId,
+            @RequestParam(defaultValue = "5") int n,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime hasta,
+            Authentication authentication
+    ) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return proximosHuecosService.buscar(especialidadId, n, desde, hasta, usuario.getId());
+    }
+
+    /**
+     * Se suscribe a los cambios de disponibilidad de las citas (Server-Sent Events).
+     *
+     * <p>
+     * El cliente carga una vez {@code /api/citas/disponibles} y aplica después los cambios
+     * que recibe: {@code ocupada}, {@code liberada}, {@code caducadas} y {@code resincronizar}
+     * (ver {@link DisponibilidadStreamService}).
+     *
+     * @param especialidadId solo cambios de esta especialidad
+     * @param medicoId       solo cambios de este médico
+     * @return stream de eventos
+     */
+    @GetMapping(value = "/disponibles/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('PACIENTE') or hasAuthority('MEDICO') or hasAuthority('ADMIN')")
+    public ResponseEntity<SseEmitter> suscribirDisponibles(
+            @RequestParam(required = false) Long especialidadId,
+            @RequestParam(required = false) Long medicoId
+    ) {
+        return ResponseEntity.ok()
+                // Evita que un proxy nginx acumule los eventos en su buffer
+                .header("X-Accel-Buffering", "no")
+                .body(disponibilidadStreamService.suscribir(especialidadId, medicoId));
+    }
+
+    /**
+     * Retiene temporalmente una cita disponible mientras el paciente completa la reserva.
+     * Mientras dura, no aparece como disponible para otros y solo él puede reservarla.
+     *
+     * @param id id de la cita
+     * @param authentication contexto de seguridad
+     * @return retención concedida, con su caducidad
+     */
+    @PostMapping("/{id}/hold")
+    @PreAuthorize("hasAuthority('PACIENTE')")
+    public RetencionCitaDTO retenerCita(@PathVariable Long id, Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return retencionCitasService.retener(id, usuario.getId());
+    }
+
+    /**
+     * Libera la retención de una cita del paciente autenticado, si la tiene.
+     *
+     * @param id id de la cita
+     * @param authentication contexto de seguridad
+     * @return 204 No Content
+     */
+    @DeleteMapping("/{id}/hold")
+    @PreAuthorize("hasAuthority('PACIENTE')")
+    public ResponseEntity<Void> liberarCita(@PathVariable Long id, Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        retencionCitasService.liberar(id, usuario.getId());
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -0,0 +1,93 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.dto.jfr.GrabacionJfrEstadoDTO;
+import com.hospital.Soraka.service.GrabacionJfrService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Controlador REST para las grabaciones de JDK Flight Recorder.
+ *
+ * <p>
+ * Permite iniciar una grabación continua acotada, consultar su estado, descargar un volcado
+ * {@code .jfr} (para abrirlo con JDK Mission Control o {@code jfr print}) y detenerla.
+ * Todos los endpoints están restringidos a administradores por la regla {@code /api/jfr/**}
+ * de {@link com.hospital.Soraka.security.SecurityConfig}.
+ */
+@RestController
+@RequestMapping("/api/jfr/grabacion")
+public class JfrController {
+
+    private static final DateTimeFormatter FORMATO_FICHERO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private GrabacionJfrService grabacionJfrService;
+
+    /**
+     * Consulta el estado de la grabación.
+     *
+     * @return estado y límites de la grabación
+     */
+    @GetMapping
+    public GrabacionJfrEstadoDTO getEstado() {
+        return grabacionJfrService.estado();
+    }
+
+    /**
+     * Inicia la grabación continua, si no estaba ya en curso.
+     *
+     * @return estado de la grabación
+     */
+    @PostMapping
+    public GrabacionJfrEstadoDTO iniciar() {
+        return grabacionJfrService.iniciar();
+    }
+
+    /**
+     * Descarga un volcado de la grabación en curso sin detenerla.
+     * El fichero temporal se borra al terminar la descarga.
+     *
+     * @return fichero {@code .jfr}
+     */
+    @GetMapping("/volcado")
+    public ResponseEntity<Resource> descargarVolcado() {
+        Path volcado = grabacionJfrService.volcar();
+        try {
+            long tamano = Files.size(volcado);
+            Resource recurso = new InputStreamResource(
+                    Files.newInputStream(volcado, StandardOpenOption.DELETE_ON_CLOSE));
+            String nombre = "soraka-" + LocalDateTime.now().format(FORMATO_FICHERO) + ".jfr";
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(tamano)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombre + "\"")
+                    .body(recurso);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Detiene la grabación y descarta sus datos.
+     *
+     * @return 204 No Content
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> detener() {
+        grabacionJfrService.detener();
+        return ResponseEntity.noContent().build();
+    }
+}
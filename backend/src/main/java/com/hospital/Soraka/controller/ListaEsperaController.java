@@ -0,0 +1,86 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.dto.listaespera.ListaEsperaPostDTO;
+import com.hospital.Soraka.dto.listaespera.ListaEsperaResponseDTO;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.service.ListaEsperaService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST de la lista de espera de citas.
+ *
+ * <p>
+ * Los pacientes se apuntan para un médico o una especialidad en un rango de fechas; cuando
+ * se cancela una cita que encaja, se les retiene y se les avisa por email.
+ * Los administradores pueden cambiar la prioridad de cualquier petición.
+ */
+@RestController
+@RequestMapping("/api/lista-espera")
+public class ListaEsperaController {
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    /**
+     * Apunta al paciente autenticado en la lista de espera.
+     *
+     * @param dto médico o especialidad y rango de fechas
+     * @param authentication contexto de seguridad
+     * @return petición creada
+     */
+    @PostMapping
+    @PreAuthorize("hasAuthority('PACIENTE')")
+    public ListaEsperaResponseDTO apuntar(@RequestBody @Valid ListaEsperaPostDTO dto,
+                                          Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return listaEsperaService.apuntar(usuario, dto);
+    }
+
+    /**
+     * Lista las peticiones del usuario autenticado.
+     *
+     * @param authentication contexto de seguridad
+     * @return peticiones en orden de prioridad
+     */
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public List<ListaEsperaResponseDTO> listarPropias(Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return listaEsperaService.listarPropias(usuario.getId());
+    }
+
+    /**
+     * Saca una petición de la lista de espera.
+     *
+     * @param id id de la petición
+     * @param authentication contexto de seguridad
+     * @return 204 No Content
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyAuthority('PACIENTE','ADMIN')")
+    public ResponseEntity<Void> darDeBaja(@PathVariable Long id, Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        listaEsperaService.darDeBaja(id, usuario);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Cambia la prioridad de una petición; las de mayor prioridad reciben antes los huecos.
+     *
+     * @param id id de la petición
+     * @param prioridad nueva prioridad
+     * @return petición actualizada
+     */
+    @PatchMapping("/{id}/prioridad")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ListaEsperaResponseDTO cambiarPrioridad(@PathVariable Long id, @RequestParam int prioridad) {
+        return listaEsperaService.cambiarPrioridad(id, prioridad);
+    }
+}
@@ -1,16 +1,23 @@
 package com.hospital.Soraka.controller;
 
+import com.hospital.Soraka.dto.medico.AusenciaMedicoPostDTO;
+import com.hospital.Soraka.dto.medico.AusenciaMedicoResponseDTO;
+import com.hospital.Soraka.dto.medico.CalendarioMedicoDTO;
 import com.hospital.Soraka.dto.medico.MedicoPatchDTO;
 import com.hospital.Soraka.dto.medico.MedicoPostDTO;
 import com.hospital.Soraka.dto.medico.MedicoPublicoDTO;
 import com.hospital.Soraka.dto.medico.MedicoResponseDTO;
+import com.hospital.Soraka.service.AusenciaMedicoService;
+import com.hospital.Soraka.service.CalendarioDisponibilidadService;
 import com.hospital.Soraka.service.MedicoService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -24,6 +31,8 @@ import java.util.List;
  *     <li>Crear nuevos médicos.</li>
  *     <li>Actualizar parcialmente médicos existentes.</li>
  *     <li>Eliminar médicos.</li>
+ *     <li>Consultar el calendario de disponibilidad de un médico.</li>
+ *     <li>Registrar ausencias, cancelando en bloque la agenda del periodo.</li>
  * </ul>
  *
  * <p>
@@ -36,6 +45,12 @@ public class MedicoController {
     @Autowired
     private MedicoService medicoService;
 
+    @Autowired
+    private CalendarioDisponibilidadService calendarioDisponibilidadService;
+
+    @Autowired
+    private AusenciaMedicoService ausenciaMedicoService;
+
     /**
      * Obtiene la lista completa de médicos registrados.
      * <p>
@@ -77,6 +92,28 @@ public class MedicoController {
         return medicoService.getMedicoById(id);
     }
 
+    /**
+     * Obtiene la disponibilidad de un médico en días consecutivos como mapas de bits o rangos
+     * de huecos de 30 minutos, en lugar de una cita por hueco.
+     *
+     * <p>
+     * Accesible para cualquier usuario autenticado.
+     *
+     * @param id      Identificador del médico.
+     * @param desde   Primer día (ISO); hoy por defecto.
+     * @param dias    Número de días a devolver.
+     * @param formato {@code bits} (por defecto) o {@code rangos}.
+     * @return {@link CalendarioMedicoDTO} con la disponibilidad por día.
+     */
+    @GetMapping("/{id}/calendario")
+    @PreAuthorize("isAuthenticated()")
+    public CalendarioMedicoDTO getCalendario(@PathVariable Long id,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                            @RequestParam(defaultValue = "7") int dias,
+                                            @RequestParam(defaultValue = "bits") String formato) {
+        return calendarioDisponibilidadService.calendario(id, desde, dias, formato);
+    }
+
     /**
      * Crea un nuevo médico en el sistema.
      *
@@ -92,6 +129,24 @@ public class MedicoController {
         return medicoService.createMedico(medico);
     }
 
+    /**
+     * Registra una ausencia del médico: elimina sus huecos libres del periodo, cancela las
+     * citas confirmadas y avisa por email a los pacientes afectados.
+     *
+     * <p>
+     * Solo accesible para administradores.
+     *
+     * @param id       Identificador del médico.
+     * @param ausencia Periodo de la ausencia.
+     * @return {@link AusenciaMedicoResponseDTO} con el resumen de citas afectadas.
+     */
+    @PostMapping("/{id}/ausencias")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public AusenciaMedicoResponseDTO registrarAusencia(@PathVariable Long id,
+                                                      @Valid @RequestBody AusenciaMedicoPostDTO ausencia) {
+        return ausenciaMedicoService.registrar(id, ausencia);
+    }
+
     /**
      * Elimina un médico existente por su ID.
      *
@@ -0,0 +1,78 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.config.SalaEsperaInterceptor;
+import com.hospital.Soraka.dto.salaespera.EstadoSalaEsperaDTO;
+import com.hospital.Soraka.dto.salaespera.TurnoSalaEsperaDTO;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.service.SalaEsperaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de la sala de espera virtual.
+ *
+ * <p>
+ * Los pacientes piden turno y lo consultan hasta que se les admite; después envían el turno
+ * en la cabecera {@value SalaEsperaInterceptor#CABECERA_TURNO} al consultar y reservar citas.
+ * Los administradores activan la sala antes de abrir una agenda con mucha demanda.
+ */
+@RestController
+@RequestMapping("/api/sala-espera")
+public class SalaEsperaController {
+
+    @Autowired
+    private SalaEsperaService salaEsperaService;
+
+    /**
+     * Pide turno, o devuelve el que ya tiene el paciente.
+     *
+     * @param authentication contexto de seguridad
+     * @return turno con su posición en la cola
+     */
+    @PostMapping("/turno")
+    @PreAuthorize("hasAuthority('PACIENTE')")
+    public TurnoSalaEsperaDTO pedirTurno(Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        return salaEsperaService.pedirTurno(usuario.getId());
+    }
+
+    /**
+     * Consulta el estado de un turno.
+     *
+     * @param turno token del turno
+     * @param authentication contexto de seguridad
+     * @return turno, o 404 si no existe o ha caducado
+     */
+    @GetMapping("/turno")
+    @PreAuthorize("hasAuthority('PACIENTE')")
+    public ResponseEntity<TurnoSalaEsperaDTO> consultarTurno(@RequestHeader(SalaEsperaInterceptor.CABECERA_TURNO) String turno,
+                                                             Authentication authentication) {
+        Usuario usuario = (Usuario) authentication.getPrincipal();
+        TurnoSalaEsperaDTO dto = salaEsperaService.consultarTurno(turno, usuario.getId());
+        return dto != null ? ResponseEntity.ok(dto) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Estado de la sala: si está activa, tasa de admisión y turnos en cola.
+     */
+    @GetMapping("/estado")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public EstadoSalaEsperaDTO estado() {
+        return salaEsperaService.estado();
+    }
+
+    /**
+     * Activa o desactiva la sala de espera.
+     *
+     * @param activa nuevo estado
+     * @return estado resultante
+     */
+    @PutMapping("/estado")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public EstadoSalaEsperaDTO cambiarEstado(@RequestParam boolean activa) {
+        return salaEsperaService.cambiarEstado(activa);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hospital.Soraka.dto.cita;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Datos de un cambio de disponibilidad enviado por el stream SSE. El tipo de cambio
+ * va en el nombre del evento; los campos vacíos no se envían.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CambioDisponibilidadDTO {
+
+    private Long citaId;
+    private Long medicoId;
+    private Long especialidadId;
+    private LocalDateTime fechaHora;
+
+    public CambioDisponibilidadDTO(Long citaId, Long medicoId, Long especialidadId, LocalDateTime fechaHora) {
+        this.citaId = citaId;
+        this.medicoId = medicoId;
+        this.especialidadId = especialidadId;
+        this.fechaHora = fechaHora;
+    }
+
+    public Long getCitaId() {
+        return citaId;
+    }
+
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public Long getEspecialidadId() {
+        return especialidadId;
+    }
+
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+}
@@ -0,0 +1,10 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita confirmada afectada por una operación en bloque, con los datos justos para avisar
+ * al paciente. Se obtiene con una proyección JPQL, sin cargar entidades.
+ */
+public record CitaAfectadaDTO(Long citaId, String pacienteEmail, String pacienteNombre, LocalDateTime fechaHora) {
+}
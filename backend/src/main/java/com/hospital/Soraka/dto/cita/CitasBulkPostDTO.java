@@ -0,0 +1,105 @@
+package com.hospital.Soraka.dto.cita;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Rango de huecos disponibles a abrir de una vez en la agenda de un médico.
+ * <p>
+ * Se crea un hueco cada {@code duracionMinutos} desde {@code horaInicio} mientras termine
+ * como muy tarde a {@code horaFin}, en cada día de {@code [fechaDesde, fechaHasta]} (ambos
+ * incluidos). Si se indica {@code diasSemana}, solo en esos días. La duración es un múltiplo de
+ * 30 minutos y {@code horaInicio} cae en punto o y media, como las franjas del calendario.
+ */
+public class CitasBulkPostDTO {
+
+    /** Duración máxima de un hueco, en minutos. */
+    public static final int DURACION_MAXIMA = 240;
+
+    // ATRIBUTOS
+    @NotNull(message = "El medico es obligatorio")
+    private Long medicoId;
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDate fechaDesde;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDate fechaHasta;
+
+    @NotNull(message = "La hora de inicio es obligatoria")
+    private LocalTime horaInicio;
+
+    @NotNull(message = "La hora de fin es obligatoria")
+    private LocalTime horaFin;
+
+    @NotNull(message = "La duración del hueco es obligatoria")
+    @Min(value = 30, message = "La duración mínima del hueco es de 30 minutos")
+    @Max(value = DURACION_MAXIMA, message = "La duración máxima del hueco es de 240 minutos")
+    private Integer duracionMinutos;
+
+    private Set<DayOfWeek> diasSemana;
+
+
+    // GETTERS Y SETTERS
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public LocalDate getFechaDesde() {
+        return fechaDesde;
+    }
+
+    public LocalDate getFechaHasta() {
+        return fechaHasta;
+    }
+
+    public LocalTime getHoraInicio() {
+        return horaInicio;
+    }
+
+    public LocalTime getHoraFin() {
+        return horaFin;
+    }
+
+    public Integer getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
+    public Set<DayOfWeek> getDiasSemana() {
+        return diasSemana;
+    }
+
+    public void setMedicoId(Long medicoId) {
+        this.medicoId = medicoId;
+    }
+
+    public void setFechaDesde(LocalDate fechaDesde) {
+        this.fechaDesde = fechaDesde;
+    }
+
+    public void setFechaHasta(LocalDate fechaHasta) {
+        this.fechaHasta = fechaHasta;
+    }
+
+    public void setHoraInicio(LocalTime horaInicio) {
+        this.horaInicio = horaInicio;
+    }
+
+    public void setHoraFin(LocalTime horaFin) {
+        this.horaFin = horaFin;
+    }
+
+    public void setDuracionMinutos(Integer duracionMinutos) {
+        this.duracionMinutos = duracionMinutos;
+    }
+
+    public void setDiasSemana(Set<DayOfWeek> diasSemana) {
+        this.diasSemana = diasSemana;
+    }
+}
@@ -0,0 +1,21 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumen de una creación masiva de huecos.
+ * <p>
+ * {@code omitidasOcupadas} cuenta los huecos que se solapaban con citas existentes del médico
+ * y {@code omitidasPasadas} los que ya habían empezado. {@code primera} y {@code ultima} son
+ * las fechas del primer y último hueco creado, o {@code null} si no se creó ninguno.
+ */
+public record CitasBulkResponseDTO(
+        Long medicoId,
+        int creadas,
+        int omitidasOcupadas,
+        int omitidasPasadas,
+        LocalDateTime primera,
+        LocalDateTime ultima,
+        long duracionMs
+) {
+}
@@ -0,0 +1,41 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Citas disponibles agrupadas por médico y día, alternativa compacta a una lista de
+ * {@link CitaResponseDTO}.
+ * <p>
+ * Los datos de cada médico aparecen una sola vez en {@code medicos}. Cada grupo lleva las
+ * horas de sus huecos como minutos desde medianoche del {@code dia} y los ids codificados en
+ * delta: el primero es absoluto y cada uno de los siguientes es la diferencia con el
+ * anterior. Dentro de un grupo los huecos van en orden de hora.
+ */
+public class DisponiblesAgrupadasDTO {
+
+    /** Tipo de contenido con el que se pide este formato en la cabecera {@code Accept}. */
+    public static final String MEDIA_TYPE = "application/vnd.soraka.disponibles-agrupadas+json";
+
+    private List<Medico> medicos;
+    private List<Grupo> grupos;
+
+    public DisponiblesAgrupadasDTO(List<Medico> medicos, List<Grupo> grupos) {
+        this.medicos = medicos;
+        this.grupos = grupos;
+    }
+
+    public List<Medico> getMedicos() {
+        return medicos;
+    }
+
+    public List<Grupo> getGrupos() {
+        return grupos;
+    }
+
+    public record Medico(Long id, String nombre, String especialidad) {
+    }
+
+    public record Grupo(Long medicoId, LocalDate dia, int[] minutos, long[] ids) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.hospital.Soraka.dto.cita;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hospital.Soraka.enums.TipoCambioCita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio en la agenda de un médico enviado por WebSocket. Los ids de evento crecen
+ * de forma monótona y sirven para reanudar tras una reconexión.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventoAgendaDTO {
+
+    private long id;
+    private TipoCambioCita tipo;
+    private Long citaId;
+    private Long medicoId;
+    private LocalDateTime fechaHora;
+    private LocalDateTime fechaHoraAnterior;
+    private Long pacienteId;
+    private String pacienteNombre;
+
+    public EventoAgendaDTO(long id, TipoCambioCita tipo, Long citaId, Long medicoId, LocalDateTime fechaHora,
+                           LocalDateTime fechaHoraAnterior, Long pacienteId, String pacienteNombre) {
+        this.id = id;
+        this.tipo = tipo;
+        this.citaId = citaId;
+        this.medicoId = medicoId;
+        this.fechaHora = fechaHora;
+        this.fechaHoraAnterior = fechaHoraAnterior;
+        this.pacienteId = pacienteId;
+        this.pacienteNombre = pacienteNombre;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public TipoCambioCita getTipo() {
+        return tipo;
+    }
+
+    public Long getCitaId() {
+        return citaId;
+    }
+
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+
+    public LocalDateTime getFechaHoraAnterior() {
+        return fechaHoraAnterior;
+    }
+
+    public Long getPacienteId() {
+        return pacienteId;
+    }
+
+    public String getPacienteNombre() {
+        return pacienteNombre;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hueco disponible, con lo mínimo para mostrarlo y reservarlo.
+ * <p>
+ * Es también la entrada del índice de {@link com.hospital.Soraka.service.ProximosHuecosService}
+ * y se carga directamente con una proyección de {@code CitaRepository}.
+ *
+ * @param citaId         id de la cita
+ * @param medicoId       id del médico
+ * @param especialidadId id de la especialidad del médico
+ * @param fechaHora      fecha y hora del hueco
+ */
+public record HuecoLibreDTO(Long citaId, Long medicoId, Long especialidadId, LocalDateTime fechaHora) {
+}
@@ -0,0 +1,35 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.util.List;
+
+/**
+ * Respuesta a la reanudación de la agenda de un médico tras una reconexión.
+ * <p>
+ * Si {@code completa} es {@code false}, el servidor ya no conserva todos los eventos
+ * posteriores al último recibido y el cliente debe volver a cargar la agenda completa.
+ * {@code ultimoEvento} es el id a partir del cual seguir en cualquier caso.
+ */
+public class ReanudacionAgendaDTO {
+
+    private boolean completa;
+    private long ultimoEvento;
+    private List<EventoAgendaDTO> eventos;
+
+    public ReanudacionAgendaDTO(boolean completa, long ultimoEvento, List<EventoAgendaDTO> eventos) {
+        this.completa = completa;
+        this.ultimoEvento = ultimoEvento;
+        this.eventos = eventos;
+    }
+
+    public boolean isCompleta() {
+        return completa;
+    }
+
+    public long getUltimoEvento() {
+        return ultimoEvento;
+    }
+
+    public List<EventoAgendaDTO> getEventos() {
+        return eventos;
+    }
+}
@@ -0,0 +1,31 @@
+package com.hospital.Soraka.dto.cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Retención temporal de una cita concedida a un paciente.
+ */
+public class RetencionCitaDTO {
+
+    private Long citaId;
+    private LocalDateTime expira;
+    private long segundos;
+
+    public RetencionCitaDTO(Long citaId, LocalDateTime expira, long segundos) {
+        this.citaId = citaId;
+        this.expira = expira;
+        this.segundos = segundos;
+    }
+
+    public Long getCitaId() {
+        return citaId;
+    }
+
+    public LocalDateTime getExpira() {
+        return expira;
+    }
+
+    public long getSegundos() {
+        return segundos;
+    }
+}
@@ -0,0 +1,46 @@
+package com.hospital.Soraka.dto.jfr;
+
+import java.time.Instant;
+
+/**
+ * Estado de la grabación JFR continua de la aplicación.
+ */
+public class GrabacionJfrEstadoDTO {
+
+    // ATRIBUTOS
+    private boolean activa;
+    private Instant inicio;
+    private long maxEdadMinutos;
+    private long maxTamanoMb;
+    private long tamanoBytes;
+
+    // CONSTRUCTORES
+    public GrabacionJfrEstadoDTO(boolean activa, Instant inicio, long maxEdadMinutos, long maxTamanoMb, long tamanoBytes) {
+        this.activa = activa;
+        this.inicio = inicio;
+        this.maxEdadMinutos = maxEdadMinutos;
+        this.maxTamanoMb = maxTamanoMb;
+        this.tamanoBytes = tamanoBytes;
+    }
+
+    // GETTERS
+    public boolean isActiva() {
+        return activa;
+    }
+
+    public Instant getInicio() {
+        return inicio;
+    }
+
+    public long getMaxEdadMinutos() {
+        return maxEdadMinutos;
+    }
+
+    public long getMaxTamanoMb() {
+        return maxTamanoMb;
+    }
+
+    public long getTamanoBytes() {
+        return tamanoBytes;
+    }
+}
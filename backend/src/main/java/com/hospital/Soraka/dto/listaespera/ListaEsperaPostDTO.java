@@ -0,0 +1,56 @@
+package com.hospital.Soraka.dto.listaespera;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alta en la lista de espera: un médico o una especialidad y el rango de fechas que
+ * le vale al paciente.
+ */
+public class ListaEsperaPostDTO {
+
+    // Atributos
+    private Long medicoId;
+
+    private Long especialidadId;
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDateTime desde;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDateTime hasta;
+
+    // Getters y setters
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public void setMedicoId(Long medicoId) {
+        this.medicoId = medicoId;
+    }
+
+    public Long getEspecialidadId() {
+        return especialidadId;
+    }
+
+    public void setEspecialidadId(Long especialidadId) {
+        this.especialidadId = especialidadId;
+    }
+
+    public LocalDateTime getDesde() {
+        return desde;
+    }
+
+    public void setDesde(LocalDateTime desde) {
+        this.desde = desde;
+    }
+
+    public LocalDateTime getHasta() {
+        return hasta;
+    }
+
+    public void setHasta(LocalDateTime hasta) {
+        this.hasta = hasta;
+    }
+}
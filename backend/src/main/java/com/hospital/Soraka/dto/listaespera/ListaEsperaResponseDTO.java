@@ -0,0 +1,57 @@
+package com.hospital.Soraka.dto.listaespera;
+
+import com.hospital.Soraka.repository.ListaEsperaRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Petición de un paciente en la lista de espera.
+ */
+public class ListaEsperaResponseDTO {
+
+    private Long id;
+    private Long medicoId;
+    private Long especialidadId;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private int prioridad;
+    private LocalDateTime fechaAlta;
+
+    public ListaEsperaResponseDTO(ListaEsperaRepository.Entrada entrada) {
+        this.id = entrada.id();
+        this.medicoId = entrada.medicoId();
+        this.especialidadId = entrada.especialidadId();
+        this.desde = entrada.desde();
+        this.hasta = entrada.hasta();
+        this.prioridad = entrada.prioridad();
+        this.fechaAlta = entrada.fechaAlta();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public Long getEspecialidadId() {
+        return especialidadId;
+    }
+
+    public LocalDateTime getDesde() {
+        return desde;
+    }
+
+    public LocalDateTime getHasta() {
+        return hasta;
+    }
+
+    public int getPrioridad() {
+        return prioridad;
+    }
+
+    public LocalDateTime getFechaAlta() {
+        return fechaAlta;
+    }
+}
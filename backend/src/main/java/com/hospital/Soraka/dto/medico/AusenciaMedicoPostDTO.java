@@ -0,0 +1,36 @@
+package com.hospital.Soraka.dto.medico;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Periodo {@code [desde, hasta)} en el que un médico no puede pasar consulta.
+ */
+public class AusenciaMedicoPostDTO {
+
+    // ATRIBUTOS
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDateTime desde;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDateTime hasta;
+
+
+    // GETTERS Y SETTERS
+    public LocalDateTime getDesde() {
+        return desde;
+    }
+
+    public LocalDateTime getHasta() {
+        return hasta;
+    }
+
+    public void setDesde(LocalDateTime desde) {
+        this.desde = desde;
+    }
+
+    public void setHasta(LocalDateTime hasta) {
+        this.hasta = hasta;
+    }
+}
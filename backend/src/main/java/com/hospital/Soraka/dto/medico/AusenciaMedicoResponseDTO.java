@@ -0,0 +1,22 @@
+package com.hospital.Soraka.dto.medico;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumen de una ausencia registrada.
+ * <p>
+ * {@code canceladas} son las citas confirmadas que pasaron a CADUCADA, {@code bloqueadas}
+ * los huecos disponibles que pasaron también a CADUCADA para que nadie los reserve y
+ * {@code avisos} los emails encolados para los pacientes afectados; se envían en segundo
+ * plano, así que pueden no haber salido todavía.
+ */
+public record AusenciaMedicoResponseDTO(
+        Long medicoId,
+        LocalDateTime desde,
+        LocalDateTime hasta,
+        int canceladas,
+        int bloqueadas,
+        int avisos,
+        long duracionMs
+) {
+}
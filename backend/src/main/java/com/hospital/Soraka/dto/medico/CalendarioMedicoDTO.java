@@ -0,0 +1,51 @@
+package com.hospital.Soraka.dto.medico;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * Disponibilidad de un médico en varios días consecutivos, en forma compacta.
+ * <p>
+ * Cada día se divide en huecos de {@code minutosHueco} minutos numerados desde medianoche.
+ * Según el formato pedido se rellena {@code bits} (un entero por día; el bit {@code i} indica
+ * que el hueco {@code i} está libre) o {@code rangos} (por día, pares {@code [inicio, fin)}
+ * de huecos libres consecutivos). El primer elemento corresponde a {@code desde}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CalendarioMedicoDTO {
+
+    private Long medicoId;
+    private LocalDate desde;
+    private int minutosHueco;
+    private long[] bits;
+    private int[][][] rangos;
+
+    public CalendarioMedicoDTO(Long medicoId, LocalDate desde, int minutosHueco, long[] bits, int[][][] rangos) {
+        this.medicoId = medicoId;
+        this.desde = desde;
+        this.minutosHueco = minutosHueco;
+        this.bits = bits;
+        this.rangos = rangos;
+    }
+
+    public Long getMedicoId() {
+        return medicoId;
+    }
+
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    public int getMinutosHueco() {
+        return minutosHueco;
+    }
+
+    public long[] getBits() {
+        return bits;
+    }
+
+    public int[][][] getRangos() {
+        return rangos;
+    }
+}
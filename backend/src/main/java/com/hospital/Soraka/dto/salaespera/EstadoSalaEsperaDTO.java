@@ -0,0 +1,38 @@
+package com.hospital.Soraka.dto.salaespera;
+
+/**
+ * Estado de la sala de espera virtual para administración.
+ */
+public class EstadoSalaEsperaDTO {
+
+    private boolean activa;
+    private double tasa;
+    private long enCola;
+    private long turnos;
+
+    public EstadoSalaEsperaDTO(boolean activa, double tasa, long enCola, long turnos) {
+        this.activa = activa;
+        this.tasa = tasa;
+        this.enCola = enCola;
+        this.turnos = turnos;
+    }
+
+    public boolean isActiva() {
+        return activa;
+    }
+
+    /** Turnos admitidos por segundo. */
+    public double getTasa() {
+        return tasa;
+    }
+
+    /** Turnos emitidos pendientes de admisión. */
+    public long getEnCola() {
+        return enCola;
+    }
+
+    /** Turnos vigentes, en cola o admitidos. */
+    public long getTurnos() {
+        return turnos;
+    }
+}
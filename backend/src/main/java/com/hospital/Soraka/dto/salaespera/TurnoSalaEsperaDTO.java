@@ -0,0 +1,49 @@
+package com.hospital.Soraka.dto.salaespera;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Turno de un paciente en la sala de espera virtual.
+ * <p>
+ * Mientras no está admitido, {@code posicion} y {@code esperaSegundos} orientan sobre cuándo
+ * volver a consultar; una vez admitido, {@code expira} indica hasta cuándo vale el turno.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TurnoSalaEsperaDTO {
+
+    private String turno;
+    private long posicion;
+    private boolean admitido;
+    private LocalDateTime expira;
+    private long esperaSegundos;
+
+    public TurnoSalaEsperaDTO(String turno, long posicion, boolean admitido, LocalDateTime expira, long esperaSegundos) {
+        this.turno = turno;
+        this.posicion = posicion;
+        this.admitido = admitido;
+        this.expira = expira;
+        this.esperaSegundos = esperaSegundos;
+    }
+
+    public String getTurno() {
+        return turno;
+    }
+
+    public long getPosicion() {
+        return posicion;
+    }
+
+    public boolean isAdmitido() {
+        return admitido;
+    }
+
+    public LocalDateTime getExpira() {
+        return expira;
+    }
+
+    public long getEsperaSegundos() {
+        return esperaSegundos;
+    }
+}
@@ -9,9 +9,29 @@ import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "citas", uniqueConstraints = {@UniqueConstraint(columnNames = {"medico_id", "fecha_hora"})})
+// El índice solo lo crea Hibernate en los tests; en MySQL lo crea schema-mysql.sql
+@Table(name = "citas",
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"medico_id", "fecha_hora"})},
+        indexes = {@Index(name = "idx_citas_estado_fecha", columnList = "estado, fecha_hora")})
+// Relaciones que usa la respuesta de una cita, cargadas en la misma consulta. Incluye el
+// médico del paciente porque Usuario.medico es el lado inverso de un OneToOne y Hibernate
+// lo consultaría de uno en uno.
+@NamedEntityGraph(name = Cita.GRAFO_DETALLE,
+        attributeNodes = {
+                @NamedAttributeNode(value = "paciente", subgraph = "paciente"),
+                @NamedAttributeNode(value = "medico", subgraph = "medico")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("medico")),
+                @NamedSubgraph(name = "medico", attributeNodes = {
+                        @NamedAttributeNode("usuario"),
+                        @NamedAttributeNode("especialidad")
+                })
+        })
 public class Cita {
 
+    public static final String GRAFO_DETALLE = "Cita.detalle";
+
     // ATRIBUTOS
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,6 +61,10 @@ public class Cita {
     @Size(max = 255, message = "El motivo no puede superar 255 caracteres")
     private String motivo;
 
+    // Solo la guardan los huecos abiertos en bloque; el resto duran los 30 minutos estándar
+    @Column(name = "duracion_minutos")
+    private Integer duracionMinutos;
+
     @Version
     private Long version;
 
@@ -91,6 +115,10 @@ public class Cita {
         return motivo;
     }
 
+    public Integer getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
     public void setPaciente(Usuario paciente) {
         this.paciente = paciente;
     }
@@ -0,0 +1,40 @@
+package com.hospital.Soraka.enums;
+
+import java.util.Locale;
+
+/**
+ * Formatos de exportación de citas.
+ */
+public enum FormatoExportacion {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    FormatoExportacion(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param valor nombre del formato, sin distinguir mayúsculas
+     * @return formato, o {@code null} si no existe
+     */
+    public static FormatoExportacion buscar(String valor) {
+        for (FormatoExportacion formato : values()) {
+            if (formato.name().equals(valor.toUpperCase(Locale.ROOT))) {
+                return formato;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.hospital.Soraka.enums;
+
+/**
+ * Cambios de una cita que se notifican a los clientes conectados.
+ */
+public enum TipoCambioCita {
+    /** Un paciente reservó un hueco disponible. */
+    RESERVADA,
+    /** Se canceló una reserva y el hueco vuelve a estar disponible. */
+    CANCELADA,
+    /** Un administrador cambió la fecha o el médico de la cita. */
+    REPROGRAMADA,
+    /** Un paciente retuvo temporalmente un hueco mientras completa la reserva. */
+    RETENIDA,
+    /** Una retención terminó (liberada o caducada) sin reserva y el hueco vuelve a estar disponible. */
+    RETENCION_LIBERADA,
+    /** Los huecos disponibles anteriores a una fecha caducaron (cierre de citas pasadas). */
+    CADUCADAS,
+    /** Un administrador eliminó la cita. */
+    ELIMINADA,
+    /**
+     * Se crearon, reemplazaron, cancelaron o eliminaron citas en bloque (generación diaria,
+     * creación masiva, ausencia de un médico, reset demo); hay que recargar.
+     */
+    REGENERADAS
+}
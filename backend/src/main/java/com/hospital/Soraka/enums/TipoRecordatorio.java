@@ -0,0 +1,18 @@
+package com.hospital.Soraka.enums;
+
+import java.time.Duration;
+
+public enum TipoRecordatorio {
+    DIA_ANTES(Duration.ofHours(24)),
+    DOS_HORAS_ANTES(Duration.ofHours(2));
+
+    private final Duration antelacion;
+
+    TipoRecordatorio(Duration antelacion) {
+        this.antelacion = antelacion;
+    }
+
+    public Duration getAntelacion() {
+        return antelacion;
+    }
+}
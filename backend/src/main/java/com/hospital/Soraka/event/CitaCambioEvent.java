@@ -0,0 +1,75 @@
+package com.hospital.Soraka.event;
+
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.enums.TipoCambioCita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de aplicación que publica {@code CitaService} cuando una cita cambia de una forma
+ * que interesa a los clientes conectados (disponibilidad y agendas de los médicos).
+ * <p>
+ * Se publica dentro de la transacción del cambio; los oyentes lo reciben con
+ * {@code @TransactionalEventListener} una vez confirmada. Las retenciones no pasan por la
+ * base de datos y se publican fuera de transacción, igual que {@link TipoCambioCita#REGENERADAS},
+ * que se publica cuando terminan todas las transacciones del proceso en bloque.
+ *
+ * @param tipo              tipo de cambio
+ * @param citaId            id de la cita, o {@code null} en {@link TipoCambioCita#CADUCADAS}
+ *                          y {@link TipoCambioCita#REGENERADAS}
+ * @param medicoId          id del médico, o {@code null} en {@link TipoCambioCita#CADUCADAS}
+ *                          y en {@link TipoCambioCita#REGENERADAS} que afectan a todos los médicos
+ * @param especialidadId    id de la especialidad del médico, o {@code null}
+ * @param fechaHora         fecha de la cita o, en {@link TipoCambioCita#CADUCADAS}, fecha límite (excluida)
+ * @param pacienteId        id del paciente, o {@code null} si la cita está libre
+ * @param pacienteNombre    nombre del paciente, o {@code null} si la cita está libre
+ * @param medicoAnteriorId  en {@link TipoCambioCita#REPROGRAMADA}, médico antes del cambio
+ * @param fechaHoraAnterior en {@link TipoCambioCita#REPROGRAMADA}, fecha antes del cambio
+ */
+public record CitaCambioEvent(TipoCambioCita tipo, Long citaId, Long medicoId, Long especialidadId,
+                              LocalDateTime fechaHora, Long pacienteId, String pacienteNombre,
+                              Long medicoAnteriorId, LocalDateTime fechaHoraAnterior) {
+
+    public static CitaCambioEvent de(TipoCambioCita tipo, Cita cita) {
+        return crear(tipo, cita, null, null);
+    }
+
+    public static CitaCambioEvent reprogramada(Cita cita, Long medicoAnteriorId, LocalDateTime fechaHoraAnterior) {
+        return crear(TipoCambioCita.REPROGRAMADA, cita, medicoAnteriorId, fechaHoraAnterior);
+    }
+
+    public static CitaCambioEvent retencionLiberada(Long citaId, Long medicoId, Long especialidadId,
+                                                    LocalDateTime fechaHora) {
+        return new CitaCambioEvent(TipoCambioCita.RETENCION_LIBERADA, citaId, medicoId, especialidadId, fechaHora,
+                null, null, null, null);
+    }
+
+    public static CitaCambioEvent caducadas(LocalDateTime hasta) {
+        return new CitaCambioEvent(TipoCambioCita.CADUCADAS, null, null, null, hasta, null, null, null, null);
+    }
+
+    public static CitaCambioEvent regeneradas() {
+        return regeneradas(null);
+    }
+
+    /**
+     * @param medicoId único médico afectado por el cambio en bloque, o {@code null} si son varios
+     */
+    public static CitaCambioEvent regeneradas(Long medicoId) {
+        return new CitaCambioEvent(TipoCambioCita.REGENERADAS, null, medicoId, null, null, null, null, null, null);
+    }
+
+    private static CitaCambioEvent crear(TipoCambioCita tipo, Cita cita,
+                                         Long medicoAnteriorId, LocalDateTime fechaHoraAnterior) {
+        return new CitaCambioEvent(
+                tipo,
+                cita.getId(),
+                cita.getMedico().getId(),
+                cita.getMedico().getEspecialidad() != null ? cita.getMedico().getEspecialidad().getId() : null,
+                cita.getFechaHora(),
+                cita.getPaciente() != null ? cita.getPaciente().getId() : null,
+                cita.getPaciente() != null ? cita.getPaciente().getNombre() : null,
+                medicoAnteriorId,
+                fechaHoraAnterior);
+    }
+}
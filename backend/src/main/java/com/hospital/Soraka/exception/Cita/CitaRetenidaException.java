@@ -0,0 +1,11 @@
+package com.hospital.Soraka.exception.Cita;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CitaRetenidaException extends RuntimeException {
+    public CitaRetenidaException(String message) {
+        super(message);
+    }
+}
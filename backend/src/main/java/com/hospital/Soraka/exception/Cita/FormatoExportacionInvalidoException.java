@@ -0,0 +1,11 @@
+package com.hospital.Soraka.exception.Cita;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class FormatoExportacionInvalidoException extends RuntimeException {
+    public FormatoExportacionInvalidoException(String message) {
+        super(message);
+    }
+}
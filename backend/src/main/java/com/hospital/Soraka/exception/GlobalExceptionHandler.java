@@ -5,10 +5,16 @@ import com.hospital.Soraka.exception.Confirmacion.TokenInvalidoException;
 import com.hospital.Soraka.exception.Especialidad.EspecialidadExisteException;
 import com.hospital.Soraka.exception.Especialidad.EspecialidadInvalidaException;
 import com.hospital.Soraka.exception.Especialidad.EspecialidadNotFoundException;
+import com.hospital.Soraka.exception.Jfr.GrabacionJfrNoActivaException;
+import com.hospital.Soraka.exception.ListaEspera.EntradaListaEsperaNotFoundException;
+import com.hospital.Soraka.exception.ListaEspera.ListaEsperaInvalidaException;
 import com.hospital.Soraka.exception.Medico.MedicoExisteException;
 import com.hospital.Soraka.exception.Usuario.*;
 import com.hospital.Soraka.exception.Medico.MedicoNotFoundException;
+import com.hospital.Soraka.exception.Medico.CalendarioInvalidoException;
+import com.hospital.Soraka.exception.Medico.AusenciaInvalidaException;
 import com.hospital.Soraka.exception.Cita.*;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -72,6 +78,16 @@ public class GlobalExceptionHandler {
         return construirResponse(ex.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(CalendarioInvalidoException.class)
+    public ResponseEntity<Map<String, Object>> manejarCalendarioInvalido(CalendarioInvalidoException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(AusenciaInvalidaException.class)
+    public ResponseEntity<Map<String, Object>> manejarAusenciaInvalida(AusenciaInvalidaException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     // =======================
     // Excepciones de Cita
     // =======================
@@ -95,6 +111,34 @@ public class GlobalExceptionHandler {
         return construirResponse(ex.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(CitaRetenidaException.class)
+    public ResponseEntity<Map<String, Object>> manejarCitaRetenida(CitaRetenidaException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(FormatoExportacionInvalidoException.class)
+    public ResponseEntity<Map<String, Object>> manejarFormatoExportacionInvalido(FormatoExportacionInvalidoException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(CreacionMasivaInvalidaException.class)
+    public ResponseEntity<Map<String, Object>> manejarCreacionMasivaInvalida(CreacionMasivaInvalidaException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    // =======================
+    // Excepciones de Lista de espera
+    // =======================
+    @ExceptionHandler(EntradaListaEsperaNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> manejarEntradaListaEsperaNoEncontrada(EntradaListaEsperaNotFoundException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(ListaEsperaInvalidaException.class)
+    public ResponseEntity<Map<String, Object>> manejarListaEsperaInvalida(ListaEsperaInvalidaException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     // =======================
     // Excepciones de Especialidad
     // =======================
@@ -126,6 +170,14 @@ public class GlobalExceptionHandler {
         return construirResponse(ex.getMessage(), HttpStatus.GONE);
     }
 
+    // =======================
+    // Excepciones de diagnóstico (JFR)
+    // =======================
+    @ExceptionHandler(GrabacionJfrNoActivaException.class)
+    public ResponseEntity<Map<String, Object>> manejarGrabacionJfrNoActiva(GrabacionJfrNoActivaException ex) {
+        return construirResponse(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
     // =======================
     // Excepciones de seguridad
     // =======================
@@ -137,7 +189,7 @@ public class GlobalExceptionHandler {
     // =======================
     // Excepciones de concurrencia / Optimistic Lock
     // =======================
-    @ExceptionHandler(jakarta.persistence.OptimisticLockException.class)
+    @ExceptionHandler({jakarta.persistence.OptimisticLockException.class, OptimisticLockingFailureException.class})
     public ResponseEntity<Map<String, Object>> manejarOptimisticLock() {
         return construirResponse("La entidad ha sido modificada por otro usuario. Intentalo de nuevo.", HttpStatus.CONFLICT);
     }
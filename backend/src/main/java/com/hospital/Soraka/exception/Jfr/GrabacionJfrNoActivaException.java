@@ -0,0 +1,11 @@
+package com.hospital.Soraka.exception.Jfr;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class GrabacionJfrNoActivaException extends RuntimeException {
+    public GrabacionJfrNoActivaException(String message) {
+        super(message);
+    }
+}
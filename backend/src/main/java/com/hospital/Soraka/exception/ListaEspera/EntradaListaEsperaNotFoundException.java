@@ -0,0 +1,11 @@
+package com.hospital.Soraka.exception.ListaEspera;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class EntradaListaEsperaNotFoundException extends RuntimeException {
+    public EntradaListaEsperaNotFoundException(String message) {
+        super(message);
+    }
+}
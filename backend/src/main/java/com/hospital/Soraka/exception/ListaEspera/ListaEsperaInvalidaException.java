@@ -0,0 +1,15 @@
+package com.hospital.Soraka.exception.ListaEspera;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando un alta en la lista de espera no es válida: sin médico ni
+ * especialidad, con un rango de fechas incorrecto o por encima del límite por paciente.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ListaEsperaInvalidaException extends RuntimeException {
+    public ListaEsperaInvalidaException(String message) {
+        super(message);
+    }
+}
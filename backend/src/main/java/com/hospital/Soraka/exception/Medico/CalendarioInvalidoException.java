@@ -0,0 +1,11 @@
+package com.hospital.Soraka.exception.Medico;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class CalendarioInvalidoException extends RuntimeException {
+    public CalendarioInvalidoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hospital.Soraka.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de la validación del token JWT de una petición.
+ */
+@Name("soraka.AutenticacionJwt")
+@Label("Autenticación JWT")
+@Description("Validación del token JWT de una petición, incluida la carga del usuario")
+@Category({"Soraka", "Seguridad"})
+@StackTrace(false)
+public class AutenticacionJwtEvent extends jdk.jfr.Event {
+
+    @Label("Resultado")
+    public String resultado;
+
+    @Label("Usuario cargado")
+    @Description("Si la validación tuvo que cargar el usuario de la base de datos")
+    public boolean usuarioCargado;
+}
@@ -0,0 +1,24 @@
+package com.hospital.Soraka.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de un envío SMTP (un email suelto o un lote).
+ */
+@Name("soraka.EnvioEmail")
+@Label("Envío de email")
+@Description("Envío SMTP de un email o de un lote de emails")
+@Category({"Soraka", "Email"})
+@StackTrace(false)
+public class EnvioEmailEvent extends jdk.jfr.Event {
+
+    @Label("Tipo")
+    public String tipo;
+
+    @Label("Resultado")
+    public String resultado;
+}
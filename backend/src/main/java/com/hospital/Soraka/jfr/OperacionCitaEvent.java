@@ -0,0 +1,29 @@
+package com.hospital.Soraka.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de una reserva o cancelación de cita.
+ * <p>
+ * La duración del evento es la de la operación completa, incluida la escritura en base de datos.
+ */
+@Name("soraka.OperacionCita")
+@Label("Operación de cita")
+@Description("Reserva o cancelación de una cita y su resultado")
+@Category({"Soraka", "Citas"})
+@StackTrace(false)
+public class OperacionCitaEvent extends jdk.jfr.Event {
+
+    @Label("Operación")
+    public String operacion;
+
+    @Label("Cita")
+    public long citaId;
+
+    @Label("Resultado")
+    public String resultado;
+}
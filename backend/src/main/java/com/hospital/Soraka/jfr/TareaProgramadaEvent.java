@@ -0,0 +1,27 @@
+package com.hospital.Soraka.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de una ejecución de tarea programada en este nodo.
+ */
+@Name("soraka.TareaProgramada")
+@Label("Tarea programada")
+@Description("Ejecución de una tarea programada y filas procesadas")
+@Category({"Soraka", "Tareas"})
+@StackTrace(false)
+public class TareaProgramadaEvent extends jdk.jfr.Event {
+
+    @Label("Tarea")
+    public String tarea;
+
+    @Label("Resultado")
+    public String resultado;
+
+    @Label("Filas")
+    public int filas;
+}
@@ -0,0 +1,259 @@
+package com.hospital.Soraka.repository;
+
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import com.hospital.Soraka.enums.EstadoCita;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Operaciones masivas sobre {@code citas} mediante JDBC.
+ * <p>
+ * Hibernate no agrupa en lotes los INSERT de entidades con identificador
+ * {@code IDENTITY}, así que la creación de muchas citas a la vez (datos demo,
+ * generación de huecos) se hace aquí con {@code batchUpdate}. Las consultas de
+ * claves existentes cargan de una vez todas las {@code (medico_id, fecha_hora)}
+ * de un rango para evitar una comprobación por hueco.
+ * <p>
+ * La exportación recorre las citas con un cursor de solo avance, sin cargarlas en memoria.
+ */
+@Repository
+public class CitaJdbcRepository {
+
+    private static final String INSERT_CITA = """
+            INSERT INTO citas (medico_id, paciente_id, fecha_hora, estado, motivo, duracion_minutos, version)
+            VALUES (?, ?, ?, ?, ?, ?, 0)""";
+
+    private static final String SELECT_EXPORTACION = """
+            SELECT c.id, c.paciente_id, p.nombre, c.medico_id, um.nombre, e.nombre,
+                   c.fecha_hora, c.estado, c.motivo
+            FROM citas c
+            JOIN medicos m ON m.id = c.medico_id
+            JOIN usuarios um ON um.id = m.usuario_id
+            LEFT JOIN especialidades e ON e.id = m.especialidad_id
+            LEFT JOIN usuarios p ON p.id = c.paciente_id""";
+
+    /** Filas enviadas al driver por cada lote JDBC. */
+    private static final int TAMANO_LOTE = 500;
+
+    /** Filas por viaje al servidor en la exportación cuando la base no es MySQL. */
+    private static final int TAMANO_FETCH = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public CitaJdbcRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+    }
+
+    /**
+     * Datos de una cita nueva a insertar en bloque.
+     *
+     * @param medicoId   id del médico
+     * @param pacienteId id del paciente, o {@code null} si está libre
+     * @param fechaHora  fecha y hora de la cita
+     * @param estado     estado inicial
+     * @param motivo     motivo, o {@code null}
+     * @param duracionMinutos duración del hueco, o {@code null} si es la estándar
+     */
+    public record NuevaCita(Long medicoId, Long pacienteId, LocalDateTime fechaHora,
+                            EstadoCita estado, String motivo, Integer duracionMinutos) {
+
+        public NuevaCita(Long medicoId, Long pacienteId, LocalDateTime fechaHora, EstadoCita estado, String motivo) {
+            this(medicoId, pacienteId, fechaHora, estado, motivo, null);
+        }
+
+        public static NuevaCita disponible(Long medicoId, LocalDateTime fechaHora) {
+            return disponible(medicoId, fechaHora, null);
+        }
+
+        public static NuevaCita disponible(Long medicoId, LocalDateTime fechaHora, Integer duracionMinutos) {
+            return new NuevaCita(medicoId, null, fechaHora, EstadoCita.DISPONIBLE, null, duracionMinutos);
+        }
+    }
+
+    /**
+     * Filtros de la exportación de citas. Los que son {@code null} no se aplican.
+     *
+     * @param estado   estado de la cita
+     * @param desde    fecha y hora mínima (incluida)
+     * @param hasta    fecha y hora máxima (excluida)
+     * @param medicoId id del médico
+     */
+    public record FiltroExportacion(EstadoCita estado, LocalDateTime desde, LocalDateTime hasta, Long medicoId) {
+    }
+
+    /**
+     * Recorre en orden de id las citas que cumplen el filtro y entrega cada una al consumidor
+     * según llega del servidor.
+     * <p>
+     * Usa un cursor de solo avance y solo lectura. Con {@code tamanoFetch = 0} el tamaño se
+     * elige según la base: en MySQL se usa {@link Integer#MIN_VALUE}, que hace que Connector/J
+     * lea el resultado fila a fila en lugar de cargarlo entero; en otras bases, {@value #TAMANO_FETCH}.
+     * La conexión queda ocupada hasta que termina el recorrido.
+     *
+     * @param filtro      filtros a aplicar
+     * @param tamanoFetch filas por viaje al servidor, o 0 para elegirlo automáticamente
+     * @param consumidor  receptor de cada cita
+     * @return número de citas recorridas
+     */
+    public long recorrer(FiltroExportacion filtro, int tamanoFetch, Consumer<CitaResponseDTO> consumidor) {
+        StringBuilder sql = new StringBuilder(SELECT_EXPORTACION).append(" WHERE 1 = 1");
+        List<Object> parametros = new ArrayList<>();
+        if (filtro.estado() != null) {
+            sql.append(" AND c.estado = ?");
+            parametros.add(filtro.estado().name());
+        }
+        if (filtro.desde() != null) {
+            sql.append(" AND c.fecha_hora >= ?");
+            parametros.add(Timestamp.valueOf(filtro.desde()));
+        }
+        if (filtro.hasta() != null) {
+            sql.append(" AND c.fecha_hora < ?");
+            parametros.add(Timestamp.valueOf(filtro.hasta()));
+        }
+        if (filtro.medicoId() != null) {
+            sql.append(" AND c.medico_id = ?");
+            parametros.add(filtro.medicoId());
+        }
+        sql.append(" ORDER BY c.id");
+
+        long[] filas = {0};
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(tamanoFetch != 0 ? tamanoFetch : tamanoFetchPorDefecto(con));
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+            return ps;
+        }, rs -> {
+            consumidor.accept(mapearExportacion(rs));
+            filas[0]++;
+        });
+        return filas[0];
+    }
+
+    private static int tamanoFetchPorDefecto(Connection con) throws SQLException {
+        return con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql")
+                ? Integer.MIN_VALUE
+                : TAMANO_FETCH;
+    }
+
+    private static CitaResponseDTO mapearExportacion(ResultSet rs) throws SQLException {
+        return new CitaResponseDTO(
+                rs.getLong(1),
+                rs.getObject(2, Long.class),
+                rs.getString(3),
+                rs.getLong(4),
+                rs.getString(5),
+                rs.getString(6),
+                rs.getTimestamp(7).toLocalDateTime(),
+                EstadoCita.valueOf(rs.getString(8)),
+                rs.getString(9));
+    }
+
+    /**
+     * Devuelve las fechas ya ocupadas por cada médico dentro de un rango {@code [desde, hasta)}.
+     *
+     * @param medicoIds ids de los médicos
+     * @param desde     inicio del rango (incluido)
+     * @param hasta     fin del rango (excluido)
+     * @return fechas existentes agrupadas por id de médico
+     */
+    public Map<Long, Set<LocalDateTime>> findFechasOcupadas(Collection<Long> medicoIds,
+                                                           LocalDateTime desde,
+                                                           LocalDateTime hasta) {
+        Map<Long, Set<LocalDateTime>> ocupadas = new HashMap<>();
+        if (medicoIds.isEmpty()) {
+            return ocupadas;
+        }
+
+        namedJdbc.query("""
+                        SELECT medico_id, fecha_hora FROM citas
+                        WHERE medico_id IN (:medicos) AND fecha_hora >= :desde AND fecha_hora < :hasta""",
+                new MapSqlParameterSource()
+                        .addValue("medicos", medicoIds)
+                        .addValue("desde", desde)
+                        .addValue("hasta", hasta),
+                rs -> {
+                    ocupadas.computeIfAbsent(rs.getLong(1), k -> new HashSet<>())
+                            .add(rs.getTimestamp(2).toLocalDateTime());
+                });
+        return ocupadas;
+    }
+
+    /**
+     * Devuelve las citas de un médico dentro de un rango {@code [desde, hasta)} con la
+     * duración guardada de cada una.
+     *
+     * @param medicoId id del médico
+     * @param desde    inicio del rango (incluido)
+     * @param hasta    fin del rango (excluido)
+     * @return duración por fecha de inicio, en orden; {@code null} si la cita dura lo estándar
+     */
+    public NavigableMap<LocalDateTime, Integer> findDuracionesOcupadas(Long medicoId,
+                                                                      LocalDateTime desde,
+                                                                      LocalDateTime hasta) {
+        NavigableMap<LocalDateTime, Integer> ocupadas = new TreeMap<>();
+        jdbc.query("""
+                        SELECT fecha_hora, duracion_minutos FROM citas
+                        WHERE medico_id = ? AND fecha_hora >= ? AND fecha_hora < ?""",
+                rs -> {
+                    ocupadas.put(rs.getTimestamp(1).toLocalDateTime(), rs.getObject(2, Integer.class));
+                },
+                medicoId, Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+        return ocupadas;
+    }
+
+    /**
+     * Inserta citas en lotes JDBC de {@value #TAMANO_LOTE} filas.
+     *
+     * @param citas citas a insertar
+     * @return número de citas insertadas
+     */
+    public int insertarLote(List<NuevaCita> citas) {
+        if (citas.isEmpty()) {
+            return 0;
+        }
+
+        jdbc.batchUpdate(INSERT_CITA, citas, TAMANO_LOTE, (ps, c) -> {
+            ps.setLong(1, c.medicoId());
+            if (c.pacienteId() != null) {
+                ps.setLong(2, c.pacienteId());
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setTimestamp(3, Timestamp.valueOf(c.fechaHora()));
+            ps.setString(4, c.estado().name());
+            ps.setString(5, c.motivo());
+            if (c.duracionMinutos() != null) {
+                ps.setInt(6, c.duracionMinutos());
+            } else {
+                ps.setNull(6, Types.INTEGER);
+            }
+        });
+        return citas.size();
+    }
+}
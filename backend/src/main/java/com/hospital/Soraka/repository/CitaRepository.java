@@ -1,27 +1,114 @@
 package com.hospital.Soraka.repository;
 
+import com.hospital.Soraka.dto.cita.CitaAfectadaDTO;
+import com.hospital.Soraka.dto.cita.HuecoLibreDTO;
 import com.hospital.Soraka.entity.Cita;
 import com.hospital.Soraka.entity.Medico;
 import com.hospital.Soraka.enums.EstadoCita;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CitaRepository extends JpaRepository<Cita,Long> {
 
+    // Las consultas que acaban en CitaResponseDTO cargan paciente y médico en la misma consulta
+    @Override
+    @EntityGraph(Cita.GRAFO_DETALLE)
+    List<Cita> findAll();
+
+    @Override
+    @EntityGraph(Cita.GRAFO_DETALLE)
+    Optional<Cita> findById(Long id);
+
     Optional<Cita> findByMedicoAndFechaHora(Medico medico, LocalDateTime fechaHora);
 
+    @EntityGraph(Cita.GRAFO_DETALLE)
     List<Cita> findByPacienteId(Long pacienteId);
 
+    @EntityGraph(Cita.GRAFO_DETALLE)
     List<Cita> findByEstadoAndFechaHoraAfter(EstadoCita estado, LocalDateTime fechaHora);
 
+    // Solo las columnas del índice de próximos huecos, sin cargar entidades
+    @Query("""
+            SELECT new com.hospital.Soraka.dto.cita.HuecoLibreDTO(c.id, m.id, m.especialidad.id, c.fechaHora)
+            FROM Cita c JOIN c.medico m
+            WHERE c.estado = :estado AND c.fechaHora > :desde""")
+    List<HuecoLibreDTO> findHuecosByEstadoAndFechaHoraAfter(@Param("estado") EstadoCita estado,
+                                                           @Param("desde") LocalDateTime desde);
+
     List<Cita> findByFechaHoraBefore(LocalDateTime fechaHora);
 
     List<Cita> findByFechaHoraBeforeAndEstadoIn(LocalDateTime fechaHora, List<EstadoCita> confirmada);
 
+    @EntityGraph(Cita.GRAFO_DETALLE)
     List<Cita> findByMedicoAndEstadoInAndFechaHoraAfter(Medico medico, List<EstadoCita> estados, LocalDateTime fechaHora);
 
     boolean existsByMedicoAndFechaHora(Medico medico, LocalDateTime fechaHora);
-}
\ No newline at end of file
+
+    // Rango sobre (estado, fecha_hora) con paciente y médico ya cargados, para los recordatorios
+    @Query("""
+            SELECT c FROM Cita c
+            JOIN FETCH c.paciente
+            JOIN FETCH c.medico m
+            JOIN FETCH m.usuario
+            JOIN FETCH m.especialidad
+            WHERE c.estado = :estado AND c.fechaHora > :desde AND c.fechaHora <= :hasta
+            ORDER BY c.fechaHora""")
+    List<Cita> findConPacienteByEstadoAndFechaHoraEntre(@Param("estado") EstadoCita estado,
+                                                         @Param("desde") LocalDateTime desde,
+                                                         @Param("hasta") LocalDateTime hasta);
+
+    // Cambio de estado en bloque de las citas anteriores a una fecha; incrementa la versión
+    // para que una reserva concurrente sobre la misma cita falle por bloqueo optimista
+    @Modifying
+    @Query("""
+            UPDATE Cita c SET c.estado = :nuevo, c.version = c.version + 1
+            WHERE c.estado = :actual AND c.fechaHora < :fechaHora""")
+    int actualizarEstadoAnteriores(@Param("actual") EstadoCita actual,
+                                   @Param("nuevo") EstadoCita nuevo,
+                                   @Param("fechaHora") LocalDateTime fechaHora);
+
+    // Bloque de citas de un médico en un estado y rango, con los datos del paciente para avisarle
+    @Query("""
+            SELECT new com.hospital.Soraka.dto.cita.CitaAfectadaDTO(c.id, p.email, p.nombre, c.fechaHora)
+            FROM Cita c JOIN c.paciente p
+            WHERE c.medico.id = :medicoId AND c.estado = :estado
+              AND c.fechaHora >= :desde AND c.fechaHora < :hasta
+            ORDER BY c.id""")
+    List<CitaAfectadaDTO> findAfectadasByMedicoAndEstadoEntre(@Param("medicoId") Long medicoId,
+                                                             @Param("estado") EstadoCita estado,
+                                                             @Param("desde") LocalDateTime desde,
+                                                             @Param("hasta") LocalDateTime hasta,
+                                                             Pageable pageable);
+
+    @Query("""
+            SELECT c.id FROM Cita c
+            WHERE c.medico.id = :medicoId AND c.estado = :estado
+              AND c.fechaHora >= :desde AND c.fechaHora < :hasta
+            ORDER BY c.id""")
+    List<Long> findIdsByMedicoAndEstadoEntre(@Param("medicoId") Long medicoId,
+                                             @Param("estado") EstadoCita estado,
+                                             @Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta,
+                                             Pageable pageable);
+
+    // Cambio de estado en bloque que antepone una nota al motivo (recortado a la longitud de la
+    // columna); solo afecta a las que siguen en el estado esperado
+    @Modifying
+    @Query("""
+            UPDATE Cita c SET c.estado = :nuevo, c.version = c.version + 1,
+                   c.motivo = SUBSTRING(CONCAT(:nota, COALESCE(c.motivo, '')), 1, 255)
+            WHERE c.id IN :ids AND c.estado = :actual""")
+    int actualizarEstadoConNota(@Param("ids") Collection<Long> ids,
+                                @Param("actual") EstadoCita actual,
+                                @Param("nuevo") EstadoCita nuevo,
+                                @Param("nota") String nota);
+}
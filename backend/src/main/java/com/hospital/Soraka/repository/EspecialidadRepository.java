@@ -2,10 +2,14 @@ package com.hospital.Soraka.repository;
 
 import com.hospital.Soraka.entity.Especialidad;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface EspecialidadRepository extends JpaRepository<Especialidad,Long> {
     boolean existsByNombre(String nombre);
 
     Optional<Especialidad> findByNombre(String nombre);
+
+    List<Especialidad> findByNombreIn(Collection<String> nombres);
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.hospital.Soraka.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Leases de las tareas programadas, compartidos por todas las instancias.
+ * <p>
+ * Cada fila indica qué nodo tiene reservada una tarea y hasta cuándo
+ * ({@code bloqueado_hasta}). Un nodo solo puede adquirir el lease si el anterior
+ * ha vencido, lo que se resuelve con un único UPDATE condicional (o el INSERT
+ * inicial, que solo puede ganar un nodo gracias a la clave primaria). Así, cada
+ * ejecución de una tarea corre en un solo nodo aunque todos la disparen a la vez.
+ * <p>
+ * Los vencimientos se calculan con el reloj de cada nodo, por lo que se asume que
+ * los relojes están razonablemente sincronizados. La tabla se crea en {@code schema-mysql.sql}.
+ */
+@Repository
+public class LeaseTareaRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public LeaseTareaRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Intenta adquirir el lease de una tarea.
+     *
+     * @param nombre nombre del lease
+     * @param nodo   identificador del nodo que lo solicita
+     * @param ahora  instante actual
+     * @param hasta  vencimiento del lease si se adquiere
+     * @return {@code true} si este nodo ha adquirido el lease
+     */
+    public boolean adquirir(String nombre, String nodo, LocalDateTime ahora, LocalDateTime hasta) {
+        int actualizadas = jdbc.update("""
+                UPDATE tareas_lease SET bloqueado_hasta = ?, bloqueado_en = ?, bloqueado_por = ?
+                WHERE nombre = ? AND bloqueado_hasta <= ?""",
+                hasta, ahora, nodo, nombre, ahora);
+        if (actualizadas > 0) {
+            return true;
+        }
+
+        try {
+            jdbc.update("""
+                    INSERT INTO tareas_lease (nombre, bloqueado_hasta, bloqueado_en, bloqueado_por)
+                    VALUES (?, ?, ?, ?)""",
+                    nombre, hasta, ahora, nodo);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // El lease existe y sigue vigente (o lo acaba de adquirir otro nodo)
+            return false;
+        }
+    }
+
+    /**
+     * Amplía un lease que este nodo mantiene vigente.
+     *
+     * @param nombre nombre del lease
+     * @param nodo   nodo que lo mantiene
+     * @param ahora  instante actual
+     * @param hasta  nuevo vencimiento
+     * @return {@code false} si el lease ya había vencido o pertenece a otro nodo
+     */
+    public boolean renovar(String nombre, String nodo, LocalDateTime ahora, LocalDateTime hasta) {
+        return jdbc.update("""
+                UPDATE tareas_lease SET bloqueado_hasta = ?
+                WHERE nombre = ? AND bloqueado_por = ? AND bloqueado_hasta > ?""",
+                hasta, nombre, nodo, ahora) > 0;
+    }
+
+    /**
+     * Libera un lease de este nodo, manteniéndolo al menos hasta {@code minimo}.
+     * <p>
+     * El mínimo evita que un nodo con el reloj algo retrasado, o cuyo disparo llega
+     * un poco más tarde, vuelva a ejecutar la misma tarea nada más terminar.
+     *
+     * @param nombre nombre del lease
+     * @param nodo   nodo que lo mantiene
+     * @param ahora  instante actual
+     * @param minimo instante hasta el que el lease debe seguir bloqueado
+     */
+    public void liberar(String nombre, String nodo, LocalDateTime ahora, LocalDateTime minimo) {
+        jdbc.update("UPDATE tareas_lease SET bloqueado_hasta = ? WHERE nombre = ? AND bloqueado_por = ?",
+                ahora.isAfter(minimo) ? ahora : minimo, nombre, nodo);
+    }
+}
@@ -0,0 +1,117 @@
+package com.hospital.Soraka.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Persistencia de la lista de espera de citas.
+ * <p>
+ * Cada fila es una petición de un paciente para un médico o una especialidad dentro de
+ * un rango de fechas. La tabla solo se lee completa al arrancar; el emparejamiento con los
+ * huecos liberados trabaja sobre el índice en memoria de
+ * {@link com.hospital.Soraka.service.ListaEsperaService}.
+ * <p>
+ * La tabla se crea en {@code schema-mysql.sql}. Sus peticiones se borran en cascada con el
+ * usuario, el médico o la especialidad a los que se refieren, así que al arrancar no se
+ * cargan peticiones huérfanas.
+ */
+@Repository
+public class ListaEsperaRepository {
+
+    private static final String SELECT_ENTRADA = """
+            SELECT id, usuario_id, medico_id, especialidad_id, desde, hasta, prioridad, fecha_alta
+            FROM lista_espera""";
+
+    private static final RowMapper<Entrada> MAPPER = (rs, i) -> new Entrada(
+            rs.getLong(1),
+            rs.getLong(2),
+            rs.getObject(3, Long.class),
+            rs.getObject(4, Long.class),
+            rs.getObject(5, LocalDateTime.class),
+            rs.getObject(6, LocalDateTime.class),
+            rs.getInt(7),
+            rs.getObject(8, LocalDateTime.class));
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public ListaEsperaRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+    }
+
+    /**
+     * Petición de un paciente en la lista de espera. Exactamente uno de {@code medicoId}
+     * y {@code especialidadId} es distinto de {@code null}.
+     *
+     * @param prioridad mayor primero; a igual prioridad, por orden de alta
+     */
+    public record Entrada(Long id, Long usuarioId, Long medicoId, Long especialidadId,
+                          LocalDateTime desde, LocalDateTime hasta, int prioridad, LocalDateTime fechaAlta) {
+
+        /** @return {@code true} si la fecha cae dentro del rango pedido */
+        public boolean admite(LocalDateTime fechaHora) {
+            return !fechaHora.isBefore(desde) && !fechaHora.isAfter(hasta);
+        }
+
+        public Entrada conPrioridad(int nuevaPrioridad) {
+            return new Entrada(id, usuarioId, medicoId, especialidadId, desde, hasta, nuevaPrioridad, fechaAlta);
+        }
+    }
+
+    /**
+     * Inserta una petición nueva.
+     *
+     * @return la petición con su id asignado
+     */
+    public Entrada insertar(Long usuarioId, Long medicoId, Long especialidadId,
+                           LocalDateTime desde, LocalDateTime hasta, int prioridad, LocalDateTime fechaAlta) {
+        KeyHolder claves = new GeneratedKeyHolder();
+        namedJdbc.update("""
+                        INSERT INTO lista_espera (usuario_id, medico_id, especialidad_id, desde, hasta, prioridad, fecha_alta)
+                        VALUES (:usuario, :medico, :especialidad, :desde, :hasta, :prioridad, :alta)""",
+                new MapSqlParameterSource()
+                        .addValue("usuario", usuarioId)
+                        .addValue("medico", medicoId)
+                        .addValue("especialidad", especialidadId)
+                        .addValue("desde", desde)
+                        .addValue("hasta", hasta)
+                        .addValue("prioridad", prioridad)
+                        .addValue("alta", fechaAlta),
+                claves, new String[]{"id"});
+        return new Entrada(claves.getKey().longValue(), usuarioId, medicoId, especialidadId,
+                desde, hasta, prioridad, fechaAlta);
+    }
+
+    /**
+     * @return peticiones cuyo rango no ha terminado, para reconstruir el índice
+     */
+    public List<Entrada> findVigentes(LocalDateTime ahora) {
+        return jdbc.query(SELECT_ENTRADA + " WHERE hasta >= ?", MAPPER, ahora);
+    }
+
+    public void actualizarPrioridad(Long id, int prioridad) {
+        jdbc.update("UPDATE lista_espera SET prioridad = ? WHERE id = ?", prioridad, id);
+    }
+
+    public void eliminar(Long id) {
+        jdbc.update("DELETE FROM lista_espera WHERE id = ?", id);
+    }
+
+    /**
+     * Elimina las peticiones cuyo rango ya terminó.
+     *
+     * @return filas eliminadas
+     */
+    public int purgarCaducadas(LocalDateTime ahora) {
+        return jdbc.update("DELETE FROM lista_espera WHERE hasta < ?", ahora);
+    }
+}
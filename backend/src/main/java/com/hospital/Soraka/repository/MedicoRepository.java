@@ -2,15 +2,27 @@ package com.hospital.Soraka.repository;
 
 import com.hospital.Soraka.entity.Medico;
 import com.hospital.Soraka.entity.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface MedicoRepository extends JpaRepository<Medico,Long> {
 
+    // Usuario y especialidad en la misma consulta (los listados los devuelven siempre)
+    @Override
+    @EntityGraph(attributePaths = {"usuario", "especialidad"})
+    List<Medico> findAll();
+
     boolean existsByUsuario(Usuario usuario);
 
+    @EntityGraph(attributePaths = {"usuario", "especialidad"})
     Optional<Medico> findByUsuarioId(Long usuarioId);
+
+    @Query("SELECT m.id FROM Medico m ORDER BY m.id")
+    List<Long> findAllIds();
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.hospital.Soraka.repository;
+
+import com.hospital.Soraka.enums.TipoRecordatorio;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Marcas de recordatorios ya enviados.
+ * <p>
+ * Cada fila {@code (cita_id, tipo)} indica que el recordatorio de ese tipo ya fue
+ * reclamado por algún nodo. La clave primaria hace que solo un INSERT gane, de modo
+ * que el mismo recordatorio no se envía dos veces aunque varias instancias ejecuten
+ * el proceso a la vez o una ejecución se solape con la siguiente.
+ * <p>
+ * La tabla se crea en {@code schema-mysql.sql}; sus marcas se borran en cascada con la cita
+ * y las antiguas se eliminan con {@link #purgarAnteriores(LocalDateTime)}.
+ */
+@Repository
+public class RecordatorioEnviadoRepository {
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public RecordatorioEnviadoRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+    }
+
+    /**
+     * Devuelve, de entre las citas indicadas, las que ya tienen marcado el recordatorio.
+     *
+     * @param tipo    tipo de recordatorio
+     * @param citaIds ids de cita candidatos
+     * @return ids ya marcados
+     */
+    public Set<Long> findCitaIdsMarcadas(TipoRecordatorio tipo, Collection<Long> citaIds) {
+        if (citaIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedJdbc.queryForList(
+                "SELECT cita_id FROM recordatorios_enviados WHERE tipo = :tipo AND cita_id IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("tipo", tipo.name())
+                        .addValue("ids", citaIds),
+                Long.class));
+    }
+
+    /**
+     * Intenta reclamar el envío de un recordatorio.
+     *
+     * @param citaId id de la cita
+     * @param tipo   tipo de recordatorio
+     * @return {@code true} si este nodo ha reclamado el envío; {@code false} si ya estaba reclamado
+     */
+    public boolean reclamar(Long citaId, TipoRecordatorio tipo) {
+        try {
+            jdbc.update("INSERT INTO recordatorios_enviados (cita_id, tipo, fecha_envio) VALUES (?, ?, ?)",
+                    citaId, tipo.name(), LocalDateTime.now());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Libera una marca para que el recordatorio se reintente en la siguiente ejecución.
+     *
+     * @param citaId id de la cita
+     * @param tipo   tipo de recordatorio
+     */
+    public void liberar(Long citaId, TipoRecordatorio tipo) {
+        jdbc.update("DELETE FROM recordatorios_enviados WHERE cita_id = ? AND tipo = ?", citaId, tipo.name());
+    }
+
+    /**
+     * Elimina las marcas anteriores a una fecha.
+     *
+     * @param limite fecha límite
+     * @return número de marcas eliminadas
+     */
+    public int purgarAnteriores(LocalDateTime limite) {
+        return jdbc.update("DELETE FROM recordatorios_enviados WHERE fecha_envio < ?", limite);
+    }
+}
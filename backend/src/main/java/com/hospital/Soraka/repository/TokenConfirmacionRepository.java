@@ -1,9 +1,16 @@
 package com.hospital.Soraka.repository;
 
 import com.hospital.Soraka.entity.TokenConfirmacion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.hospital.Soraka.entity.Usuario;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TokenConfirmacionRepository
@@ -12,4 +19,19 @@ public interface TokenConfirmacionRepository
     Optional<TokenConfirmacion> findByToken(String token);
 
     Optional<TokenConfirmacion> findByUsuario(Usuario usuario);
-}
\ No newline at end of file
+
+    @Query("SELECT t.id FROM TokenConfirmacion t WHERE t.fechaExpiracion < :limite ORDER BY t.id")
+    List<Long> findIdsExpirados(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    // Caducados de cuentas ya activas; los de cuentas sin activar se borran junto con la cuenta
+    @Query("SELECT t.id FROM TokenConfirmacion t WHERE t.fechaExpiracion < :limite AND t.usuario.isActivo = true ORDER BY t.id")
+    List<Long> findIdsExpiradosDeActivos(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM TokenConfirmacion t WHERE t.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM TokenConfirmacion t WHERE t.usuario.id IN :usuarioIds")
+    int deleteByUsuarioIdIn(@Param("usuarioIds") Collection<Long> usuarioIds);
+}
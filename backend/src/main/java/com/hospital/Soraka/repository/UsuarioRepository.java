@@ -2,20 +2,59 @@ package com.hospital.Soraka.repository;
 
 import com.hospital.Soraka.entity.Usuario;
 import com.hospital.Soraka.enums.Rol;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario,Long> {
 
-    // Buscar usuario por email (necesario para login)
+    // Usuario.medico es el lado inverso de un OneToOne y no puede cargarse de forma perezosa:
+    // sin el grafo, Hibernate lanza una consulta extra por usuario para buscar su médico
+    @Override
+    @EntityGraph(attributePaths = {"medico", "medico.especialidad"})
+    List<Usuario> findAll();
+
+    // Buscar usuario por email (necesario para login y para el filtro JWT en cada petición)
+    @EntityGraph(attributePaths = {"medico", "medico.especialidad"})
     Optional<Usuario> findByEmail(String email);
 
     // Comprobar si ya existe un email (para registro)
     boolean existsByEmail(String email);
 
     List<Usuario> findAllByRol(Rol rol);
+
+    // Usuarios por email junto con su médico (si lo tienen), en una sola consulta
+    @Query("SELECT u FROM Usuario u LEFT JOIN FETCH u.medico WHERE u.email IN :emails")
+    List<Usuario> findConMedicoByEmailIn(@Param("emails") Collection<String> emails);
+
+    // Cuentas nunca activadas, sin médico ni citas asociadas (candidatas a purga). El token de
+    // confirmación caducado es lo que distingue una cuenta sin confirmar de una desactivada por
+    // un administrador, que no tiene token
+    @Query("""
+            SELECT u.id FROM Usuario u
+            WHERE u.isActivo = false
+              AND u.fechaRegistro < :limite
+              AND u.email NOT IN :protegidos
+              AND EXISTS (SELECT t.id FROM TokenConfirmacion t WHERE t.usuario = u AND t.fechaExpiracion < :ahora)
+              AND NOT EXISTS (SELECT m.id FROM Medico m WHERE m.usuario = u)
+              AND NOT EXISTS (SELECT c.id FROM Cita c WHERE c.paciente = u)
+            ORDER BY u.id""")
+    List<Long> findIdsSinActivarAnterioresA(@Param("limite") LocalDateTime limite,
+                                            @Param("ahora") LocalDateTime ahora,
+                                            @Param("protegidos") Collection<String> protegidos,
+                                            Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Usuario u WHERE u.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,6 +1,9 @@
 package com.hospital.Soraka.security;
 
 import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.hospital.Soraka.jfr.AutenticacionJwtEvent;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,25 +31,33 @@ import java.io.IOException;
  * <p>
  * Para rutas públicas (como login y confirmación de email),
  * este filtro se omite mediante {@link #shouldNotFilter(HttpServletRequest)}.
+ * <p>
+ * El tiempo de validación de cada token (incluida la carga del usuario) se publica
+ * en {@code soraka.auth.jwt}, etiquetado con el resultado, y como evento JFR
+ * {@link AutenticacionJwtEvent}.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Constructor con inyección de dependencias.
      *
      * @param jwtService Servicio encargado de generar y validar tokens JWT.
      * @param userDetailsService Servicio para cargar usuarios desde la base de datos.
+     * @param meterRegistry Registro de métricas.
      */
     public JwtAuthenticationFilter(
             JwtService jwtService,
-            UserDetailsService userDetailsService
+            UserDetailsService userDetailsService,
+            MeterRegistry meterRegistry
     ) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -101,6 +112,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String token = authHeader.substring(7);
+        AutenticacionJwtEvent evento = new AutenticacionJwtEvent();
+        evento.begin();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String resultado = "rechazado";
+        boolean usuarioCargado = false;
 
         try {
             final String email = jwtService.extractUsername(token);
@@ -108,6 +124,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 // Carga el usuario desde la base de datos
                 UserDetails user = userDetailsService.loadUserByUsername(email);
+                usuarioCargado = true;
 
                 // Valida que el token sea correcto y vigente
                 if (jwtService.isTokenValid(token, user)) {
@@ -120,12 +137,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                     // Guarda la autenticación en el contexto de seguridad
                     SecurityContextHolder.getContext().setAuthentication(auth);
+                    resultado = "ok";
                 }
             }
         } catch (Exception e) {
             // Si el token es inválido o expiró, no autenticamos.
             // Spring Security decide si la ruta requiere acceso o no.
             logger.warn("No se pudo procesar el token JWT: " + e.getMessage());
+            resultado = "error";
+        } finally {
+            sample.stop(Timer.builder("soraka.auth.jwt")
+                    .description("Tiempo de validación del token JWT de cada petición")
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.resultado = resultado;
+                evento.usuarioCargado = usuarioCargado;
+                evento.commit();
+            }
         }
 
         // Continúa con la cadena de filtros
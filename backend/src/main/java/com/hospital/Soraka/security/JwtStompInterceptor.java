@@ -0,0 +1,105 @@
+package com.hospital.Soraka.security;
+
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.Rol;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Map;
+
+/**
+ * Autentica y autoriza las sesiones STOMP de {@code /ws}.
+ * <p>
+ * El handshake HTTP es público porque los navegadores no permiten enviar cabeceras en él;
+ * el JWT viaja en la cabecera {@code Authorization} del frame {@code CONNECT} y se valida
+ * igual que en {@link JwtAuthenticationFilter}. Después:
+ * <ul>
+ *     <li>Solo se admiten suscripciones a la agenda de un médico
+ *         ({@code /topic/medicos/{id}/agenda} o {@code /app/medicos/{id}/agenda}),
+ *         y solo para ese médico o un ADMIN.</li>
+ *     <li>Los clientes no envían mensajes ({@code SEND}).</li>
+ * </ul>
+ * Cualquier frame rechazado cierra la sesión con un frame {@code ERROR}.
+ */
+@Component
+public class JwtStompInterceptor implements ChannelInterceptor {
+
+    private static final String PATRON_AGENDA = "/*/medicos/{medicoId}/agenda";
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public JwtStompInterceptor(JwtService jwtService, UserDetailsService userDetailsService) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(autenticar(accessor.getFirstNativeHeader("Authorization")));
+            case SUBSCRIBE -> autorizarSuscripcion(accessor);
+            case SEND -> throw new MessageDeliveryException("Este canal no admite mensajes de los clientes");
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken autenticar(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException("Falta el token JWT");
+        }
+        String token = authHeader.substring(7);
+        try {
+            String email = jwtService.extractUsername(token);
+            UserDetails user = userDetailsService.loadUserByUsername(email);
+            if (jwtService.isTokenValid(token, user)) {
+                return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+            }
+        } catch (Exception e) {
+            // Token mal formado, caducado o de un usuario que ya no existe
+        }
+        throw new MessageDeliveryException("Token JWT no válido");
+    }
+
+    private void autorizarSuscripcion(StompHeaderAccessor accessor) {
+        String destino = accessor.getDestination();
+        if (!(accessor.getUser() instanceof UsernamePasswordAuthenticationToken auth)
+                || !(auth.getPrincipal() instanceof Usuario usuario)) {
+            throw new MessageDeliveryException("Sesión no autenticada");
+        }
+        if (destino == null || !matcher.match(PATRON_AGENDA, destino)) {
+            throw new MessageDeliveryException("Destino no permitido: " + destino);
+        }
+
+        Map<String, String> variables = matcher.extractUriTemplateVariables(PATRON_AGENDA, destino);
+        Long medicoId;
+        try {
+            medicoId = Long.valueOf(variables.get("medicoId"));
+        } catch (NumberFormatException e) {
+            throw new MessageDeliveryException("Destino no permitido: " + destino);
+        }
+
+        boolean propia = usuario.getMedico() != null && medicoId.equals(usuario.getMedico().getId());
+        if (!propia && usuario.getRol() != Rol.ADMIN) {
+            throw new MessageDeliveryException("No puedes suscribirte a la agenda de otro médico");
+        }
+    }
+}
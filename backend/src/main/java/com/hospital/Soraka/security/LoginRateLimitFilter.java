@@ -3,6 +3,8 @@ package com.hospital.Soraka.security;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,6 +41,22 @@ public class LoginRateLimitFilter extends OncePerRequestFilter {
      */
     private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
 
+    /**
+     * Intentos de login rechazados por superar el límite.
+     */
+    private final Counter rechazados;
+
+    /**
+     * Constructor con inyección de dependencias.
+     *
+     * @param meterRegistry Registro de métricas.
+     */
+    public LoginRateLimitFilter(MeterRegistry meterRegistry) {
+        this.rechazados = Counter.builder("soraka.auth.login.rechazados")
+                .description("Intentos de login rechazados por el rate limiting")
+                .register(meterRegistry);
+    }
+
     /**
      * Crea o recupera el bucket asociado a una IP.
      * <p>
@@ -47,7 +65,7 @@ public class LoginRateLimitFilter extends OncePerRequestFilter {
      * @param ip Dirección IP del cliente.
      * @return {@link Bucket} asociado a la IP.
      */
-    private Bucket getBucket(String ip) {
+    Bucket getBucket(String ip) {
         return buckets.computeIfAbsent(ip, k -> Bucket.builder()
                 .addLimit(Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(1))))
                 .build());
@@ -77,6 +95,7 @@ public class LoginRateLimitFilter extends OncePerRequestFilter {
         if (bucket.tryConsume(1)) {
             filterChain.doFilter(request, response);
         } else {
+            rechazados.increment();
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
             response.setContentType("application/json");
             response.getWriter().write(
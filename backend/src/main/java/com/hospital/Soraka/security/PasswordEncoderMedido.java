@@ -0,0 +1,53 @@
+package com.hospital.Soraka.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} que mide el tiempo de cada operación del codificador al que delega.
+ *
+ * <p>
+ * BCrypt es deliberadamente lento y domina el coste del login y del alta de usuarios,
+ * así que su duración se publica en {@code soraka.auth.hash}, etiquetada por operación
+ * ({@code encode} o {@code matches}).
+ * </p>
+ */
+public class PasswordEncoderMedido implements PasswordEncoder {
+
+    private final PasswordEncoder delegado;
+    private final Timer encode;
+    private final Timer matches;
+
+    /**
+     * @param delegado      codificador real
+     * @param meterRegistry registro de métricas
+     */
+    public PasswordEncoderMedido(PasswordEncoder delegado, MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.encode = timer("encode", meterRegistry);
+        this.matches = timer("matches", meterRegistry);
+    }
+
+    private static Timer timer(String operacion, MeterRegistry meterRegistry) {
+        return Timer.builder("soraka.auth.hash")
+                .description("Duración del cifrado y la comprobación de contraseñas")
+                .tag("operacion", operacion)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encode.record(() -> delegado.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return matches.record(() -> delegado.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+}
@@ -1,5 +1,8 @@
 package com.hospital.Soraka.security;
 
+import com.hospital.Soraka.config.SalaEsperaInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -84,11 +87,12 @@ public class SecurityConfig {
      * Define el codificador de contraseñas utilizado para
      * almacenar y validar credenciales.
      *
-     * @return instancia de {@link BCryptPasswordEncoder}
+     * @param meterRegistry registro donde se publica la duración de cada cifrado
+     * @return instancia de {@link BCryptPasswordEncoder} envuelta en {@link PasswordEncoderMedido}
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new PasswordEncoderMedido(new BCryptPasswordEncoder(), meterRegistry);
     }
 
     /**
@@ -119,6 +123,32 @@ public class SecurityConfig {
                     auth.requestMatchers(CorsUtils::isPreFlightRequest).permitAll();
                     auth.requestMatchers(HttpMethod.OPTIONS, "/**").permitAll();
 
+                    // -------------------------
+                    // DESPACHOS ASÍNCRONOS (respuestas en streaming)
+                    // -------------------------
+                    // La petición original ya se autorizó; el despacho que la completa no
+                    // vuelve a pasar por el filtro JWT y no tiene autenticación propia.
+                    auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+
+                    // -------------------------
+                    // ACTUATOR (salud pública, métricas solo ADMIN)
+                    // -------------------------
+                    auth
+                            .requestMatchers("/actuator/health/**").permitAll()
+                            .requestMatchers("/actuator/**").hasAuthority(ROLE_ADMIN);
+
+                    // -------------------------
+                    // DIAGNÓSTICO: grabaciones JFR (solo ADMIN)
+                    // -------------------------
+                    auth
+                            .requestMatchers("/api/jfr/**").hasAuthority(ROLE_ADMIN);
+
+                    // -------------------------
+                    // WEBSOCKET (el JWT se valida en el CONNECT de STOMP, ver JwtStompInterceptor)
+                    // -------------------------
+                    auth
+                            .requestMatchers("/ws/**").permitAll();
+
                     // -------------------------
                     // ENTIDAD: AUTH
                     // -------------------------
@@ -141,6 +171,7 @@ public class SecurityConfig {
                     // -------------------------
                     auth
                             .requestMatchers(HttpMethod.GET, "/api/medicos/publicos").permitAll()
+                            .requestMatchers(HttpMethod.POST, "/api/medicos/*/ausencias").hasAuthority(ROLE_ADMIN)
                             .requestMatchers("/api/medicos/**").authenticated()
                             .requestMatchers("/medicos/**").authenticated();
 
@@ -156,9 +187,26 @@ public class SecurityConfig {
                     // ENTIDAD: CITAS
                     // -------------------------
                     auth
+                            .requestMatchers(HttpMethod.GET, "/api/citas/exportar").hasAuthority(ROLE_ADMIN)
+                            .requestMatchers(HttpMethod.POST, "/api/citas/bulk").hasAuthority(ROLE_ADMIN)
                             .requestMatchers("/api/citas/**").authenticated()
                             .requestMatchers("/citas/**").authenticated();
 
+                    // -------------------------
+                    // LISTA DE ESPERA
+                    // -------------------------
+                    auth
+                            .requestMatchers(HttpMethod.POST, "/api/lista-espera").hasAuthority(ROLE_PACIENTE)
+                            .requestMatchers(HttpMethod.PATCH, "/api/lista-espera/*/prioridad").hasAuthority(ROLE_ADMIN)
+                            .requestMatchers("/api/lista-espera/**").authenticated();
+
+                    // -------------------------
+                    // SALA DE ESPERA VIRTUAL
+                    // -------------------------
+                    auth
+                            .requestMatchers("/api/sala-espera/estado").hasAuthority(ROLE_ADMIN)
+                            .requestMatchers("/api/sala-espera/turno").hasAuthority(ROLE_PACIENTE);
+
                     // -------------------------
                     // ENTIDAD: UPLOADS / ARCHIVOS
                     // -------------------------
@@ -179,7 +227,8 @@ public class SecurityConfig {
      *
      * <p>
      * Permite peticiones desde el origen del frontend en desarrollo,
-     * habilitando los métodos HTTP necesarios y cualquier cabecera.
+     * habilitando los métodos HTTP necesarios y las cabeceras que envía el frontend,
+     * incluido el turno de la sala de espera ({@value SalaEsperaInterceptor#CABECERA_TURNO}).
      * Al registrarse como {@link CorsConfigurationSource}, Spring Security
      * lo recoge automáticamente al usar {@code .cors(Customizer.withDefaults())}.
      * </p>
@@ -191,7 +240,8 @@ public class SecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(List.of(allowedOrigin));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", "Accept"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", "Accept",
+                SalaEsperaInterceptor.CABECERA_TURNO));
         config.setExposedHeaders(List.of("Authorization"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
@@ -0,0 +1,157 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.EventoAgendaDTO;
+import com.hospital.Soraka.dto.cita.ReanudacionAgendaDTO;
+import com.hospital.Soraka.enums.TipoCambioCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.repository.MedicoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agenda en vivo de los médicos por WebSocket (STOMP).
+ *
+ * <p>
+ * Cada reserva, cancelación o reprogramación confirmada se envía al destino
+ * {@code /topic/medicos/{medicoId}/agenda} del médico afectado (a los dos si la cita cambió
+ * de médico) y se guarda en un historial circular por médico de {@code agenda.ws.historial}
+ * eventos. Un cliente que se reconecta pide los eventos posteriores al último que vio
+ * (ver {@code AgendaMedicoWsController}).
+ * </p>
+ *
+ * <p>
+ * Los cambios en bloque (generación diaria, creación masiva, ausencias, reset demo) no se
+ * detallan cita a cita: el médico afectado, o todos si el cambio no es de uno solo, recibe un
+ * evento {@link TipoCambioCita#REGENERADAS} y debe recargar su agenda, igual que el evento
+ * {@code resincronizar} del stream SSE de disponibilidad.
+ * </p>
+ *
+ * <p>
+ * Los ids de evento parten de la hora de arranque en milisegundos, así que siguen creciendo
+ * tras un reinicio y un id anterior al arranque se reconoce como no reanudable. El broker y el
+ * historial son locales a cada instancia.
+ * </p>
+ */
+@Service
+public class AgendaMedicoService {
+
+    public static final String DESTINO_AGENDA = "/topic/medicos/%d/agenda";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MedicoRepository medicoRepository;
+    private final int capacidadHistorial;
+
+    private final long inicio = System.currentTimeMillis();
+    private final AtomicLong secuencia = new AtomicLong(inicio);
+    private final Map<Long, Historial> historiales = new ConcurrentHashMap<>();
+
+    public AgendaMedicoService(SimpMessagingTemplate messagingTemplate,
+                               MedicoRepository medicoRepository,
+                               @Value("${agenda.ws.historial:100}") int capacidadHistorial) {
+        this.messagingTemplate = messagingTemplate;
+        this.medicoRepository = medicoRepository;
+        this.capacidadHistorial = capacidadHistorial;
+    }
+
+    /**
+     * Envía un cambio confirmado. Los cambios en bloque se publican fuera de transacción.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publicar(CitaCambioEvent cambio) {
+        switch (cambio.tipo()) {
+            case RESERVADA, CANCELADA, ELIMINADA -> enviar(cambio.medicoId(), cambio);
+            case REPROGRAMADA -> {
+                enviar(cambio.medicoId(), cambio);
+                if (cambio.medicoAnteriorId() != null && !cambio.medicoAnteriorId().equals(cambio.medicoId())) {
+                    enviar(cambio.medicoAnteriorId(), cambio);
+                }
+            }
+            case REGENERADAS -> {
+                List<Long> medicos = cambio.medicoId() != null
+                        ? List.of(cambio.medicoId())
+                        : medicoRepository.findAllIds();
+                medicos.forEach(medicoId -> enviar(medicoId, cambio));
+            }
+            case RETENIDA, RETENCION_LIBERADA, CADUCADAS -> {
+                // Las retenciones no cambian la agenda y los huecos caducados ya son pasados
+            }
+        }
+    }
+
+    /**
+     * Eventos de un médico posteriores a {@code ultimoEvento}.
+     *
+     * @param medicoId     id del médico
+     * @param ultimoEvento último id recibido por el cliente, o {@code null} si no tiene ninguno
+     * @return eventos pendientes y si la lista está completa
+     */
+    public ReanudacionAgendaDTO reanudar(Long medicoId, Long ultimoEvento) {
+        long actual = secuencia.get();
+        if (ultimoEvento == null || ultimoEvento > actual) {
+            // Sin referencia, o de otra instancia: no se puede saber qué se perdió
+            return new ReanudacionAgendaDTO(false, actual, List.of());
+        }
+        Historial historial = historiales.get(medicoId);
+        if (historial == null) {
+            return new ReanudacionAgendaDTO(ultimoEvento >= inicio, actual, List.of());
+        }
+        return historial.desde(ultimoEvento, actual);
+    }
+
+    private void enviar(Long medicoId, CitaCambioEvent cambio) {
+        EventoAgendaDTO evento = new EventoAgendaDTO(
+                secuencia.incrementAndGet(),
+                cambio.tipo(),
+                cambio.citaId(),
+                cambio.medicoId() != null ? cambio.medicoId() : medicoId,
+                cambio.fechaHora(),
+                cambio.fechaHoraAnterior(),
+                cambio.pacienteId(),
+                cambio.pacienteNombre());
+        historiales.computeIfAbsent(medicoId, id -> new Historial()).guardar(evento);
+        messagingTemplate.convertAndSend(DESTINO_AGENDA.formatted(medicoId), evento);
+    }
+
+    /**
+     * Últimos eventos de un médico en un búfer circular.
+     */
+    private final class Historial {
+
+        private final EventoAgendaDTO[] eventos = new EventoAgendaDTO[capacidadHistorial];
+        private int siguiente;
+        private int total;
+        /** Id más alto que ya no está en el historial. */
+        private long descartadoHasta = inicio;
+
+        synchronized void guardar(EventoAgendaDTO evento) {
+            if (total == eventos.length) {
+                descartadoHasta = eventos[siguiente].getId();
+            } else {
+                total++;
+            }
+            eventos[siguiente] = evento;
+            siguiente = (siguiente + 1) % eventos.length;
+        }
+
+        synchronized ReanudacionAgendaDTO desde(long ultimoEvento, long actual) {
+            List<EventoAgendaDTO> pendientes = new ArrayList<>();
+            int primero = Math.floorMod(siguiente - total, eventos.length);
+            for (int i = 0; i < total; i++) {
+                EventoAgendaDTO evento = eventos[(primero + i) % eventos.length];
+                if (evento.getId() > ultimoEvento) {
+                    pendientes.add(evento);
+                }
+            }
+            return new ReanudacionAgendaDTO(ultimoEvento >= descartadoHasta, actual, pendientes);
+        }
+    }
+}
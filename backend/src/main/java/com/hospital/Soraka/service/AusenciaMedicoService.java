@@ -0,0 +1,227 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.CitaAfectadaDTO;
+import com.hospital.Soraka.dto.medico.AusenciaMedicoPostDTO;
+import com.hospital.Soraka.dto.medico.AusenciaMedicoResponseDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Medico;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.exception.Medico.AusenciaInvalidaException;
+import com.hospital.Soraka.exception.Medico.MedicoNotFoundException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.MedicoRepository;
+import com.hospital.Soraka.service.EmailService.EmailSaliente;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Ausencias de médicos: cancela en bloque su agenda de un periodo y avisa a los pacientes.
+ *
+ * <p>
+ * Las citas confirmadas del periodo pasan a CADUCADA con la nota {@value #NOTA_AUSENCIA}
+ * delante del motivo, de modo que el paciente las sigue viendo en su historial. Los huecos
+ * disponibles no se borran sino que pasan también a CADUCADA, con la nota
+ * {@value #NOTA_BLOQUEO}: así nadie los reserva y la generación diaria de huecos los sigue
+ * viendo ocupados y no los vuelve a abrir. Ambas cosas se hacen con la misma sentencia en
+ * bloque sobre lotes de {@code ausencias.tamano-bloque} citas, cada lote en su propia
+ * transacción, para no mantener bloqueos largos aunque la ausencia afecte a miles de citas.
+ * Si el proceso se interrumpe, repetir la petición continúa donde se quedó.
+ * </p>
+ *
+ * <p>
+ * Cuando se confirma cada lote, los avisos a sus pacientes se encolan y un único hilo los
+ * envía en segundo plano con {@link EmailService#enviarLote(List)}, en lotes de
+ * {@code ausencias.tamano-lote-avisos}: como en los recordatorios, nunca hay más de una
+ * sesión SMTP abierta por los avisos, por muchas citas que afecte la ausencia. Al terminar
+ * se publica un único {@link CitaCambioEvent} de huecos regenerados del médico para que los
+ * índices en memoria, los clientes suscritos y su agenda en vivo se resincronicen.
+ * </p>
+ */
+@Service
+public class AusenciaMedicoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AusenciaMedicoService.class);
+
+    static final String NOTA_AUSENCIA = "[Cancelada por ausencia del médico] ";
+    static final String NOTA_BLOQUEO = "[Bloqueado por ausencia del médico]";
+
+    private final CitaRepository citaRepository;
+    private final MedicoRepository medicoRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int tamanoBloque;
+    private final int tamanoLoteAvisos;
+    private final int maxDias;
+    private final Counter canceladas;
+    private final Counter bloqueadas;
+
+    private final ExecutorService avisos =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("ausencias-avisos").factory());
+
+    public AusenciaMedicoService(CitaRepository citaRepository,
+                                 MedicoRepository medicoRepository,
+                                 EmailService emailService,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ausencias.tamano-bloque:500}") int tamanoBloque,
+                                 @Value("${ausencias.tamano-lote-avisos:50}") int tamanoLoteAvisos,
+                                 @Value("${ausencias.max-dias:90}") int maxDias) {
+        this.citaRepository = citaRepository;
+        this.medicoRepository = medicoRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.tamanoBloque = tamanoBloque;
+        this.tamanoLoteAvisos = tamanoLoteAvisos;
+        this.maxDias = maxDias;
+        this.canceladas = Counter.builder("soraka.ausencias.citas")
+                .description("Citas afectadas por ausencias de médicos")
+                .tag("resultado", "cancelada")
+                .register(meterRegistry);
+        this.bloqueadas = Counter.builder("soraka.ausencias.citas")
+                .description("Citas afectadas por ausencias de médicos")
+                .tag("resultado", "bloqueada")
+                .register(meterRegistry);
+    }
+
+    /** Filas leídas en un bloque (para saber si quedan más) y lo que se hizo con ellas. */
+    private record Bloque<T>(int seleccionadas, T resultado) {
+    }
+
+    @PreDestroy
+    void cerrar() {
+        avisos.shutdown();
+    }
+
+    /**
+     * Registra una ausencia. Solo afecta a las citas que aún no han empezado.
+     *
+     * @param medicoId id del médico
+     * @param dto      periodo de la ausencia
+     * @return resumen de las citas canceladas y los huecos bloqueados
+     * @throws MedicoNotFoundException    si el médico no existe
+     * @throws AusenciaInvalidaException  si el periodo no es válido
+     */
+    public AusenciaMedicoResponseDTO registrar(Long medicoId, AusenciaMedicoPostDTO dto) {
+        long inicio = System.nanoTime();
+        if (!dto.getHasta().isAfter(dto.getDesde())) {
+            throw new AusenciaInvalidaException("La fecha de fin debe ser posterior a la de inicio");
+        }
+        if (dto.getDesde().plusDays(maxDias).isBefore(dto.getHasta())) {
+            throw new AusenciaInvalidaException("La ausencia no puede superar " + maxDias + " días");
+        }
+        Medico medico = medicoRepository.findById(medicoId)
+                .orElseThrow(() -> new MedicoNotFoundException("Medico no encontrado"));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime desde = dto.getDesde().isAfter(ahora) ? dto.getDesde() : ahora;
+        LocalDateTime hasta = dto.getHasta();
+
+        // Primero los huecos libres, para que nadie reserve en el periodo mientras se cancela
+        int totalBloqueadas = 0;
+        Bloque<Integer> bloqueado;
+        do {
+            bloqueado = transactionTemplate.execute(status -> {
+                List<Long> ids = citaRepository.findIdsByMedicoAndEstadoEntre(
+                        medicoId, EstadoCita.DISPONIBLE, desde, hasta, PageRequest.of(0, tamanoBloque));
+                return new Bloque<>(ids.size(), ids.isEmpty() ? 0 : citaRepository.actualizarEstadoConNota(
+                        ids, EstadoCita.DISPONIBLE, EstadoCita.CADUCADA, NOTA_BLOQUEO));
+            });
+            totalBloqueadas += bloqueado.resultado();
+            bloqueadas.increment(bloqueado.resultado());
+        } while (bloqueado.seleccionadas() == tamanoBloque);
+
+        int totalCanceladas = 0;
+        int totalAvisos = 0;
+        Bloque<List<CitaAfectadaDTO>> cancelado;
+        do {
+            cancelado = transactionTemplate.execute(status -> {
+                List<CitaAfectadaDTO> afectadas = citaRepository.findAfectadasByMedicoAndEstadoEntre(
+                        medicoId, EstadoCita.CONFIRMADA, desde, hasta, PageRequest.of(0, tamanoBloque));
+                return new Bloque<>(afectadas.size(), cancelar(afectadas));
+            });
+            // Los avisos salen solo cuando el bloque ya está confirmado
+            totalCanceladas += cancelado.resultado().size();
+            canceladas.increment(cancelado.resultado().size());
+            totalAvisos += encolarAvisos(medico, cancelado.resultado());
+        } while (cancelado.seleccionadas() == tamanoBloque);
+
+        if (totalCanceladas + totalBloqueadas > 0) {
+            eventPublisher.publishEvent(CitaCambioEvent.regeneradas(medicoId));
+        }
+        log.info(">>> [Ausencias] Médico {} ausente de {} a {}: {} citas canceladas, {} huecos bloqueados",
+                medicoId, desde, hasta, totalCanceladas, totalBloqueadas);
+
+        return new AusenciaMedicoResponseDTO(medicoId, desde, hasta, totalCanceladas, totalBloqueadas, totalAvisos,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Pasa el bloque a CADUCADA con una sola sentencia.
+     *
+     * @return las citas del bloque que se han cancelado; si algún paciente canceló la suya
+     * entre la consulta y la actualización, no se incluye y no recibe aviso
+     */
+    private List<CitaAfectadaDTO> cancelar(List<CitaAfectadaDTO> afectadas) {
+        if (afectadas.isEmpty()) {
+            return afectadas;
+        }
+        List<Long> ids = afectadas.stream().map(CitaAfectadaDTO::citaId).toList();
+        int actualizadas = citaRepository.actualizarEstadoConNota(
+                ids, EstadoCita.CONFIRMADA, EstadoCita.CADUCADA, NOTA_AUSENCIA);
+        if (actualizadas == afectadas.size()) {
+            return afectadas;
+        }
+        Set<Long> caducadas = citaRepository.findAllById(ids).stream()
+                .filter(c -> c.getEstado() == EstadoCita.CADUCADA)
+                .map(Cita::getId)
+                .collect(Collectors.toSet());
+        return afectadas.stream().filter(c -> caducadas.contains(c.citaId())).toList();
+    }
+
+    /**
+     * Encola los avisos de un bloque ya confirmado, repartidos en lotes de envío.
+     *
+     * @return número de avisos encolados
+     */
+    private int encolarAvisos(Medico medico, List<CitaAfectadaDTO> afectadas) {
+        List<EmailSaliente> emails = afectadas.stream()
+                .map(c -> emailService.crearCancelacionAusencia(
+                        c.pacienteEmail(),
+                        c.pacienteNombre(),
+                        medico.getUsuario().getNombre(),
+                        medico.getEspecialidad().getNombre(),
+                        c.fechaHora()))
+                .toList();
+
+        for (int i = 0; i < emails.size(); i += tamanoLoteAvisos) {
+            List<EmailSaliente> lote = emails.subList(i, Math.min(i + tamanoLoteAvisos, emails.size()));
+            avisos.execute(() -> {
+                List<EmailSaliente> fallidos = emailService.enviarLote(lote);
+                if (!fallidos.isEmpty()) {
+                    log.warn(">>> [Ausencias] No se pudo avisar a {} de {} pacientes del médico {}",
+                            fallidos.size(), lote.size(), medico.getId());
+                }
+            });
+        }
+        return emails.size();
+    }
+}
@@ -0,0 +1,260 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.HuecoLibreDTO;
+import com.hospital.Soraka.dto.medico.CalendarioMedicoDTO;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.exception.Medico.CalendarioInvalidoException;
+import com.hospital.Soraka.exception.Medico.MedicoNotFoundException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.MedicoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Disponibilidad de cada médico como mapa de bits por día, para pintar calendarios.
+ *
+ * <p>
+ * El día se divide en {@value #HUECOS_DIA} huecos de {@value #MINUTOS_HUECO} minutos; el bit
+ * {@code i} de un día indica que el hueco que empieza a las {@code i * 30} minutos está
+ * disponible. Un día entero cabe en un {@code long} (y por debajo de 2^53, así que llega
+ * exacto a JavaScript), frente a un {@code CitaResponseDTO} por hueco. Las citas que no
+ * empiezan en un múltiplo de 30 minutos no se representan.
+ * </p>
+ *
+ * <p>
+ * Se construye al arrancar con una proyección de {@link CitaRepository} y se mantiene con los
+ * {@link CitaCambioEvent} confirmados. Refleja el estado en base de datos: los huecos
+ * retenidos temporalmente siguen marcados como libres.
+ * </p>
+ */
+@Service
+public class CalendarioDisponibilidadService {
+
+    public static final int MINUTOS_HUECO = 30;
+    public static final int HUECOS_DIA = 24 * 60 / MINUTOS_HUECO;
+
+    private static final long NANOS_HUECO = Duration.ofMinutes(MINUTOS_HUECO).toNanos();
+
+    private final CitaRepository citaRepository;
+    private final MedicoRepository medicoRepository;
+    private final int maxDias;
+
+    private final Object escritura = new Object();
+    private volatile Map<Long, NavigableMap<LocalDate, Long>> porMedico = new ConcurrentHashMap<>();
+
+    public CalendarioDisponibilidadService(CitaRepository citaRepository,
+                                           MedicoRepository medicoRepository,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${citas.calendario.max-dias:62}") int maxDias) {
+        this.citaRepository = citaRepository;
+        this.medicoRepository = medicoRepository;
+        this.maxDias = maxDias;
+
+        Gauge.builder("soraka.calendario.dias", this,
+                        s -> s.porMedico.values().stream().mapToInt(Map::size).sum())
+                .description("Días con huecos libres en los mapas de bits de disponibilidad")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    /**
+     * Vuelve a cargar los mapas de bits desde la base de datos y los sustituye de una vez.
+     */
+    public void reconstruir() {
+        synchronized (escritura) {
+            Map<Long, NavigableMap<LocalDate, Long>> nuevo = new ConcurrentHashMap<>();
+            for (HuecoLibreDTO hueco : citaRepository.findHuecosByEstadoAndFechaHoraAfter(
+                    EstadoCita.DISPONIBLE, LocalDateTime.now())) {
+                marcar(nuevo, hueco.medicoId(), hueco.fechaHora(), true);
+            }
+            porMedico = nuevo;
+        }
+    }
+
+    /**
+     * Aplica un cambio confirmado. Los huecos regenerados en bloque se publican fuera de
+     * transacción.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarCita(CitaCambioEvent cambio) {
+        switch (cambio.tipo()) {
+            case CANCELADA -> {
+                synchronized (escritura) {
+                    marcar(porMedico, cambio.medicoId(), cambio.fechaHora(), true);
+                }
+            }
+            case RESERVADA, ELIMINADA -> {
+                synchronized (escritura) {
+                    marcar(porMedico, cambio.medicoId(), cambio.fechaHora(), false);
+                }
+            }
+            case REPROGRAMADA -> {
+                // (médico, fecha) es única: si el bit anterior estaba activo, la cita movida era un hueco libre
+                synchronized (escritura) {
+                    if (libre(cambio.medicoAnteriorId(), cambio.fechaHoraAnterior())) {
+                        marcar(porMedico, cambio.medicoAnteriorId(), cambio.fechaHoraAnterior(), false);
+                        marcar(porMedico, cambio.medicoId(), cambio.fechaHora(), true);
+                    }
+                }
+            }
+            case CADUCADAS -> podar(cambio.fechaHora());
+            case REGENERADAS -> reconstruir();
+            case RETENIDA, RETENCION_LIBERADA -> {
+            }
+        }
+    }
+
+    /**
+     * Calendario de disponibilidad de un médico.
+     *
+     * @param medicoId id del médico
+     * @param desde    primer día; hoy si es {@code null}
+     * @param dias     número de días, entre 1 y {@code citas.calendario.max-dias}
+     * @param formato  {@code bits} o {@code rangos}
+     * @return calendario en el formato pedido
+     * @throws MedicoNotFoundException      si el médico no existe
+     * @throws CalendarioInvalidoException  si el número de días o el formato no son válidos
+     */
+    public CalendarioMedicoDTO calendario(Long medicoId, LocalDate desde, int dias, String formato) {
+        if (dias < 1 || dias > maxDias) {
+            throw new CalendarioInvalidoException("El número de días debe estar entre 1 y " + maxDias);
+        }
+        boolean enRangos = "rangos".equalsIgnoreCase(formato);
+        if (!enRangos && !"bits".equalsIgnoreCase(formato)) {
+            throw new CalendarioInvalidoException("Formato de calendario no soportado: " + formato + ". Use bits o rangos");
+        }
+        if (!medicoRepository.existsById(medicoId)) {
+            throw new MedicoNotFoundException("Medico no encontrado");
+        }
+
+        LocalDate inicio = desde != null ? desde : LocalDate.now();
+        long[] bits = bits(medicoId, inicio, dias);
+        if (!enRangos) {
+            return new CalendarioMedicoDTO(medicoId, inicio, MINUTOS_HUECO, bits, null);
+        }
+        int[][][] rangos = new int[dias][][];
+        for (int i = 0; i < dias; i++) {
+            rangos[i] = rangos(bits[i]);
+        }
+        return new CalendarioMedicoDTO(medicoId, inicio, MINUTOS_HUECO, null, rangos);
+    }
+
+    /**
+     * Mapas de bits de los días {@code [desde, desde + dias)} de un médico. Los huecos ya
+     * pasados aparecen como ocupados.
+     *
+     * @return un {@code long} por día
+     */
+    public long[] bits(Long medicoId, LocalDate desde, int dias) {
+        NavigableMap<LocalDate, Long> delMedico = porMedico.getOrDefault(medicoId, new ConcurrentSkipListMap<>());
+        LocalDateTime ahora = LocalDateTime.now();
+        long[] resultado = new long[dias];
+        for (int i = 0; i < dias; i++) {
+            LocalDate dia = desde.plusDays(i);
+            if (dia.isBefore(ahora.toLocalDate())) {
+                continue;
+            }
+            long bits = delMedico.getOrDefault(dia, 0L);
+            resultado[i] = dia.equals(ahora.toLocalDate()) ? bits & ~mascaraAnteriores(ahora.toLocalTime()) : bits;
+        }
+        return resultado;
+    }
+
+    /**
+     * Convierte un mapa de bits en rangos de huecos libres consecutivos.
+     *
+     * @return pares {@code [inicio, fin)} de índices de hueco
+     */
+    public static int[][] rangos(long bits) {
+        List<int[]> rangos = new ArrayList<>();
+        long resto = bits;
+        while (resto != 0) {
+            int inicio = Long.numberOfTrailingZeros(resto);
+            int fin = Long.numberOfTrailingZeros(~(resto >>> inicio)) + inicio;
+            rangos.add(new int[]{inicio, fin});
+            resto &= fin >= Long.SIZE ? 0 : -1L << fin;
+        }
+        return rangos.toArray(int[][]::new);
+    }
+
+    private boolean libre(Long medicoId, LocalDateTime fechaHora) {
+        int bit = indice(fechaHora);
+        NavigableMap<LocalDate, Long> delMedico = medicoId != null ? porMedico.get(medicoId) : null;
+        if (bit < 0 || delMedico == null) {
+            return false;
+        }
+        return (delMedico.getOrDefault(fechaHora.toLocalDate(), 0L) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Quita los huecos anteriores a {@code hasta}: los días completos se eliminan y del día de
+     * {@code hasta} se apagan los bits de los huecos que ya empezaron.
+     */
+    private void podar(LocalDateTime hasta) {
+        long mascara = mascaraAnteriores(hasta.toLocalTime());
+        synchronized (escritura) {
+            for (NavigableMap<LocalDate, Long> delMedico : porMedico.values()) {
+                delMedico.headMap(hasta.toLocalDate()).clear();
+                delMedico.computeIfPresent(hasta.toLocalDate(), (dia, bits) -> {
+                    long quedan = bits & ~mascara;
+                    return quedan == 0 ? null : quedan;
+                });
+            }
+        }
+    }
+
+    private static void marcar(Map<Long, NavigableMap<LocalDate, Long>> porMedico,
+                               Long medicoId, LocalDateTime fechaHora, boolean libre) {
+        int bit = indice(fechaHora);
+        if (bit < 0 || medicoId == null) {
+            return;
+        }
+        porMedico.computeIfAbsent(medicoId, k -> new ConcurrentSkipListMap<>())
+                .compute(fechaHora.toLocalDate(), (dia, bits) -> {
+                    long valor = bits != null ? bits : 0L;
+                    valor = libre ? valor | (1L << bit) : valor & ~(1L << bit);
+                    return valor == 0 ? null : valor;
+                });
+    }
+
+    /**
+     * @return índice del hueco que empieza a esa hora, o -1 si no empieza en un múltiplo de 30 minutos
+     */
+    private static int indice(LocalDateTime fechaHora) {
+        if (fechaHora == null) {
+            return -1;
+        }
+        long nanos = fechaHora.toLocalTime().toNanoOfDay();
+        return nanos % NANOS_HUECO == 0 ? (int) (nanos / NANOS_HUECO) : -1;
+    }
+
+    /**
+     * @return bits de los huecos del día que empiezan antes de {@code hora}
+     */
+    private static long mascaraAnteriores(LocalTime hora) {
+        long empezados = (hora.toNanoOfDay() + NANOS_HUECO - 1) / NANOS_HUECO;
+        return empezados >= Long.SIZE ? -1L : (1L << empezados) - 1;
+    }
+}
@@ -1,29 +1,55 @@
 package com.hospital.Soraka.service;
 
+import com.hospital.Soraka.config.EjecutorTareas;
+import com.hospital.Soraka.config.EjecutorTareas.Planificacion;
+import com.hospital.Soraka.config.PlanificadoresConfig;
 import com.hospital.Soraka.dto.cita.*;
 import com.hospital.Soraka.entity.Cita;
 import com.hospital.Soraka.entity.Medico;
 import com.hospital.Soraka.entity.Usuario;
 import com.hospital.Soraka.enums.EstadoCita;
 import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.enums.TipoCambioCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
 import com.hospital.Soraka.exception.Cita.CitaNoCancelableException;
 import com.hospital.Soraka.exception.Cita.CitaNoDisponibleException;
 import com.hospital.Soraka.exception.Cita.CitaNotFoundException;
 import com.hospital.Soraka.exception.Cita.CitaOcupadaException;
+import com.hospital.Soraka.exception.Cita.CitaRetenidaException;
+import com.hospital.Soraka.exception.Cita.CreacionMasivaInvalidaException;
 import com.hospital.Soraka.exception.Medico.MedicoNotFoundException;
 import com.hospital.Soraka.exception.Usuario.UsuarioNotFoundException;
+import com.hospital.Soraka.jfr.OperacionCitaEvent;
+import com.hospital.Soraka.repository.CitaJdbcRepository;
+import com.hospital.Soraka.repository.CitaJdbcRepository.NuevaCita;
 import com.hospital.Soraka.repository.CitaRepository;
 import com.hospital.Soraka.repository.MedicoRepository;
 import com.hospital.Soraka.repository.UsuarioRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
 
 /**
  * Servicio de negocio encargado de la gestión de citas médicas.
@@ -36,9 +62,44 @@ import java.util.List;
 @Transactional
 public class CitaService {
 
+    private static final Logger log = LoggerFactory.getLogger(CitaService.class);
+
+    private static final String CRON_GENERACION = "0 0 1 * * *";
+    private static final long INTERVALO_CIERRE_MS = 30000;
+
+    /** Días hacia delante para los que se generan huecos disponibles. */
+    private static final int DIAS_GENERACION = 7;
+
+    /** Duración de los huecos que genera el sistema; se asume para las citas ya existentes. */
+    private static final int MINUTOS_HUECO = 30;
+
     @Autowired
     private CitaRepository citaRepository;
 
+    @Autowired
+    private CitaJdbcRepository citaJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EjecutorTareas ejecutorTareas;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RetencionCitasService retencionCitasService;
+
+    @Value("${tareas.generacion-citas.particiones:4}")
+    private int particionesGeneracion;
+
+    @Value("${citas.bulk.max-dias:120}")
+    private int maxDiasBulk;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
@@ -92,15 +153,74 @@ public class CitaService {
     }
 
     /**
-     * Lista todas las citas disponibles con fecha futura.
+     * Lista todas las citas disponibles con fecha futura, salvo las que otro usuario
+     * tiene retenidas mientras completa su reserva.
      *
+     * @param usuarioId id del usuario que consulta
      * @return lista de citas disponibles
      */
-    public List<CitaResponseDTO> listarDisponibles() {
-        return citaRepository.findByEstadoAndFechaHoraAfter(
+    public List<CitaResponseDTO> listarDisponibles(Long usuarioId) {
+        return disponiblesPara(usuarioId).stream().map(this::buildResponse).toList();
+    }
+
+    /**
+     * Las mismas citas que {@link #listarDisponibles(Long)}, agrupadas por médico y día
+     * ({@link DisponiblesAgrupadasDTO}) para no repetir los datos del médico en cada hueco.
+     *
+     * @param usuarioId id del usuario que consulta
+     * @return citas disponibles agrupadas
+     */
+    public DisponiblesAgrupadasDTO listarDisponiblesAgrupadas(Long usuarioId) {
+        List<Cita> citas = new ArrayList<>(disponiblesPara(usuarioId));
+        citas.sort(Comparator.comparing((Cita c) -> c.getMedico().getId())
+                .thenComparing(Cita::getFechaHora)
+                .thenComparing(Cita::getId));
+
+        List<DisponiblesAgrupadasDTO.Medico> medicos = new ArrayList<>();
+        List<DisponiblesAgrupadasDTO.Grupo> grupos = new ArrayList<>();
+        int inicio = 0;
+        for (int i = 1; i <= citas.size(); i++) {
+            Cita primera = citas.get(inicio);
+            if (i < citas.size()
+                    && citas.get(i).getMedico().getId().equals(primera.getMedico().getId())
+                    && citas.get(i).getFechaHora().toLocalDate().equals(primera.getFechaHora().toLocalDate())) {
+                continue;
+            }
+            Medico medico = primera.getMedico();
+            if (medicos.isEmpty() || !medicos.get(medicos.size() - 1).id().equals(medico.getId())) {
+                medicos.add(new DisponiblesAgrupadasDTO.Medico(
+                        medico.getId(), medico.getUsuario().getNombre(), medico.getEspecialidad().getNombre()));
+            }
+
+            int[] minutos = new int[i - inicio];
+            long[] ids = new long[i - inicio];
+            long idAnterior = 0;
+            for (int j = inicio; j < i; j++) {
+                Cita cita = citas.get(j);
+                minutos[j - inicio] = cita.getFechaHora().getHour() * 60 + cita.getFechaHora().getMinute();
+                ids[j - inicio] = cita.getId() - idAnterior;
+                idAnterior = cita.getId();
+            }
+            grupos.add(new DisponiblesAgrupadasDTO.Grupo(
+                    medico.getId(), primera.getFechaHora().toLocalDate(), minutos, ids));
+            inicio = i;
+        }
+        return new DisponiblesAgrupadasDTO(medicos, grupos);
+    }
+
+    private List<Cita> disponiblesPara(Long usuarioId) {
+        List<Cita> disponibles = citaRepository.findByEstadoAndFechaHoraAfter(
                 EstadoCita.DISPONIBLE,
                 LocalDateTime.now()
-        ).stream().map(this::buildResponse).toList();
+        ).stream()
+                .filter(c -> !retencionCitasService.retenidaPorOtro(c.getId(), usuarioId))
+                .toList();
+
+        DistributionSummary.builder("soraka.citas.disponibles.resultado")
+                .description("Número de citas devueltas por el listado de disponibles")
+                .register(meterRegistry)
+                .record(disponibles.size());
+        return disponibles;
     }
 
     public List<CitaResponseDTO> getCitasPorMedico(Long usuarioId) {
@@ -121,7 +241,8 @@ public class CitaService {
     /**
      * Crea una nueva cita médica.
      * <p>
-     * Un usuario con rol PACIENTE solo puede crear citas para sí mismo.
+     * Un usuario con rol PACIENTE solo puede crear citas para sí mismo. La cita nace confirmada,
+     * así que al confirmarse se notifica como reservada ({@link CitaCambioEvent}).
      *
      * @param dto datos de creación de la cita
      * @return cita creada
@@ -142,8 +263,104 @@ public class CitaService {
             throw new CitaOcupadaException("El médico ya tiene otra cita en esa fecha y hora");
         }
 
-        Cita nueva = new Cita(paciente, medico, dto.getFechaHora(), dto.getMotivo());
-        return buildResponse(citaRepository.save(nueva));
+        Cita nueva = citaRepository.save(new Cita(paciente, medico, dto.getFechaHora(), dto.getMotivo()));
+        eventPublisher.publishEvent(CitaCambioEvent.de(TipoCambioCita.RESERVADA, nueva));
+        return buildResponse(nueva);
+    }
+
+    /**
+     * Abre de una vez un rango de huecos disponibles en la agenda de un médico.
+     * <p>
+     * La duración debe ser múltiplo de {@value #MINUTOS_HUECO} minutos y la hora de inicio caer
+     * en punto o y media, para que cada hueco empiece en una franja del calendario. Los huecos
+     * guardan su duración, y las citas existentes del médico en el rango se cargan con una sola
+     * consulta; se omiten los huecos que se solapan con alguna de ellas (de la duración
+     * guardada, o {@value #MINUTOS_HUECO} minutos si no tiene) o que ya han empezado. El resto se inserta con lotes JDBC en la misma
+     * transacción, de modo que se crean todos o ninguno. Al confirmarse se publica un único
+     * {@link CitaCambioEvent} de huecos regenerados para el médico, que pide a su agenda en
+     * vivo que se resincronice.
+     *
+     * @param dto médico, fechas, horario y duración de los huecos
+     * @return resumen de la operación
+     * @throws MedicoNotFoundException           si el médico no existe
+     * @throws CreacionMasivaInvalidaException   si el rango o el horario no son válidos
+     * @throws CitaOcupadaException              si otra operación ocupa alguno de los huecos durante la inserción
+     */
+    public CitasBulkResponseDTO createCitasBulk(CitasBulkPostDTO dto) {
+        long inicio = System.nanoTime();
+        if (dto.getFechaHasta().isBefore(dto.getFechaDesde())) {
+            throw new CreacionMasivaInvalidaException("La fecha de fin no puede ser anterior a la de inicio");
+        }
+        if (dto.getFechaDesde().plusDays(maxDiasBulk).isBefore(dto.getFechaHasta().plusDays(1))) {
+            throw new CreacionMasivaInvalidaException("El rango no puede superar " + maxDiasBulk + " días");
+        }
+        if (dto.getDuracionMinutos() % MINUTOS_HUECO != 0
+                || dto.getHoraInicio().getMinute() % MINUTOS_HUECO != 0
+                || dto.getHoraInicio().getSecond() != 0 || dto.getHoraInicio().getNano() != 0) {
+            throw new CreacionMasivaInvalidaException("La duración debe ser múltiplo de " + MINUTOS_HUECO
+                    + " minutos y la hora de inicio en punto o y media");
+        }
+        if (!dto.getHoraInicio().plusMinutes(dto.getDuracionMinutos()).isAfter(dto.getHoraInicio())
+                || dto.getHoraInicio().plusMinutes(dto.getDuracionMinutos()).isAfter(dto.getHoraFin())) {
+            throw new CreacionMasivaInvalidaException("El horario debe admitir al menos un hueco completo en el mismo día");
+        }
+        Long medicoId = dto.getMedicoId();
+        if (!medicoRepository.existsById(medicoId)) {
+            throw new MedicoNotFoundException("Medico no encontrado");
+        }
+
+        LocalDateTime desde = dto.getFechaDesde().atTime(dto.getHoraInicio());
+        LocalDateTime hasta = dto.getFechaHasta().atTime(dto.getHoraFin());
+        // Una cita que empieza antes del rango todavía puede solapar con su primer hueco
+        NavigableMap<LocalDateTime, Integer> ocupadas = citaJdbcRepository.findDuracionesOcupadas(
+                medicoId, desde.minusMinutes(CitasBulkPostDTO.DURACION_MAXIMA), hasta);
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<NuevaCita> nuevas = new ArrayList<>();
+        int solapadas = 0;
+        int pasadas = 0;
+        for (LocalDate fecha = dto.getFechaDesde(); !fecha.isAfter(dto.getFechaHasta()); fecha = fecha.plusDays(1)) {
+            if (dto.getDiasSemana() != null && !dto.getDiasSemana().isEmpty()
+                    && !dto.getDiasSemana().contains(fecha.getDayOfWeek())) {
+                continue;
+            }
+            LocalDateTime fin = fecha.atTime(dto.getHoraFin());
+            for (LocalDateTime hora = fecha.atTime(dto.getHoraInicio());
+                 !hora.plusMinutes(dto.getDuracionMinutos()).isAfter(fin);
+                 hora = hora.plusMinutes(dto.getDuracionMinutos())) {
+                Map.Entry<LocalDateTime, Integer> anterior = ocupadas.floorEntry(hora);
+                LocalDateTime siguiente = ocupadas.ceilingKey(hora);
+                if (!hora.isAfter(ahora)) {
+                    pasadas++;
+                } else if ((anterior != null && finDe(anterior).isAfter(hora))
+                        || (siguiente != null && siguiente.isBefore(hora.plusMinutes(dto.getDuracionMinutos())))) {
+                    solapadas++;
+                } else {
+                    nuevas.add(NuevaCita.disponible(medicoId, hora, dto.getDuracionMinutos()));
+                }
+            }
+        }
+
+        try {
+            citaJdbcRepository.insertarLote(nuevas);
+        } catch (DataIntegrityViolationException e) {
+            throw new CitaOcupadaException("Otra operación ha ocupado alguno de los huecos; no se ha creado ninguno");
+        }
+        if (!nuevas.isEmpty()) {
+            eventPublisher.publishEvent(CitaCambioEvent.regeneradas(medicoId));
+        }
+        return new CitasBulkResponseDTO(
+                medicoId,
+                nuevas.size(),
+                solapadas,
+                pasadas,
+                nuevas.isEmpty() ? null : nuevas.get(0).fechaHora(),
+                nuevas.isEmpty() ? null : nuevas.get(nuevas.size() - 1).fechaHora(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private static LocalDateTime finDe(Map.Entry<LocalDateTime, Integer> cita) {
+        return cita.getKey().plusMinutes(cita.getValue() != null ? cita.getValue() : MINUTOS_HUECO);
     }
 
     /* =========================
@@ -160,7 +377,8 @@ public class CitaService {
      *   <li>El médico (actual o nuevo) no tenga otra cita en la misma fecha/hora</li>
      * </ul>
      * La modificación del médico valida que el nuevo médico exista y que no tenga conflictos.
-     * No permite modificar el estado de la cita directamente.
+     * No permite modificar el estado de la cita directamente. Si cambian la fecha o el médico,
+     * se notifica como reprogramada ({@link CitaCambioEvent}) al confirmarse.
      *
      * @param id  id de la cita a modificar
      * @param dto DTO con los campos a actualizar: fechaHora, medicoId, motivo
@@ -200,9 +418,16 @@ public class CitaService {
                 throw new CitaOcupadaException("El médico ya tiene otra cita en esa fecha y hora");
             }
 
+            Long medicoAnteriorId = cita.getMedico().getId();
+            LocalDateTime fechaAnterior = cita.getFechaHora();
+
             // Actualizamos los valores
             cita.setFechaHora(nuevaFecha);
             cita.setMedico(nuevoMedico);
+
+            if (!nuevaFecha.equals(fechaAnterior) || !nuevoMedico.getId().equals(medicoAnteriorId)) {
+                eventPublisher.publishEvent(CitaCambioEvent.reprogramada(cita, medicoAnteriorId, fechaAnterior));
+            }
         }
 
         if (dto.getMotivo() != null) {
@@ -217,7 +442,8 @@ public class CitaService {
        ========================= */
 
     /**
-     * Elimina una cita si el usuario tiene permisos.
+     * Elimina una cita si el usuario tiene permisos. Al confirmarse, se notifica a los
+     * clientes suscritos ({@link CitaCambioEvent}).
      *
      * @param id id de la cita
      */
@@ -226,6 +452,7 @@ public class CitaService {
                 .orElseThrow(() -> new CitaNotFoundException("Cita no encontrada"));
 
         citaRepository.delete(cita);
+        eventPublisher.publishEvent(CitaCambioEvent.de(TipoCambioCita.ELIMINADA, cita));
     }
 
     /* =========================
@@ -234,12 +461,22 @@ public class CitaService {
 
     /**
      * Reserva una cita disponible para un paciente.
+     * <p>
+     * El cambio se vuelca de inmediato para que un conflicto de versión con otra reserva
+     * concurrente se detecte (y se mida) aquí y no al confirmar la transacción.
+     * Si otro paciente tiene la cita retenida ({@link RetencionCitasService}), se rechaza.
+     * Al confirmarse, el hueco se notifica como ocupado a los clientes suscritos
+     * ({@link CitaCambioEvent}).
      *
      * @param citaId id de la cita
      * @param paciente paciente que reserva
      * @param dto datos adicionales de la reserva
      */
     public void reservarCita(Long citaId, Usuario paciente, ReservarCitaDTO dto) {
+        medirOperacion("reservar", citaId, () -> reservar(citaId, paciente, dto));
+    }
+
+    private void reservar(Long citaId, Usuario paciente, ReservarCitaDTO dto) {
         Cita cita = citaRepository.findById(citaId)
                 .orElseThrow(() -> new CitaNotFoundException("Cita no encontrada"));
 
@@ -251,20 +488,30 @@ public class CitaService {
             throw new CitaNoDisponibleException("No se puede reservar una cita pasada");
         }
 
+        if (retencionCitasService.retenidaPorOtro(citaId, paciente.getId())) {
+            throw new CitaRetenidaException("Otro paciente está reservando esta cita");
+        }
+
         cita.setPaciente(paciente);
         cita.setMotivo(dto.getMotivo());
         cita.setEstado(EstadoCita.CONFIRMADA);
 
-        citaRepository.save(cita);
+        citaRepository.saveAndFlush(cita);
+        eventPublisher.publishEvent(CitaCambioEvent.de(TipoCambioCita.RESERVADA, cita));
     }
 
     /**
-     * Cancela una cita previamente confirmada.
+     * Cancela una cita previamente confirmada. Al confirmarse, el hueco se notifica
+     * como liberado a los clientes suscritos ({@link CitaCambioEvent}).
      *
      * @param citaId id de la cita
      * @param paciente paciente que cancela
      */
     public void cancelarCita(Long citaId, Usuario paciente) {
+        medirOperacion("cancelar", citaId, () -> cancelar(citaId, paciente));
+    }
+
+    private void cancelar(Long citaId, Usuario paciente) {
         Cita cita = citaRepository.findById(citaId)
                 .orElseThrow(() -> new CitaNotFoundException("Cita no encontrada"));
 
@@ -283,7 +530,45 @@ public class CitaService {
         cita.setMotivo(null);
         cita.setEstado(EstadoCita.DISPONIBLE);
 
-        citaRepository.save(cita);
+        citaRepository.saveAndFlush(cita);
+        eventPublisher.publishEvent(CitaCambioEvent.de(TipoCambioCita.CANCELADA, cita));
+    }
+
+    /**
+     * Mide una operación de reserva o cancelación en {@code soraka.citas.operacion},
+     * etiquetada con su resultado: {@code ok}, {@code conflicto} (la cita no está en el
+     * estado esperado), {@code bloqueo-optimista} (otra petición la modificó a la vez)
+     * o {@code error}. La misma medición se emite como {@link OperacionCitaEvent} para
+     * las grabaciones JFR.
+     */
+    private void medirOperacion(String operacion, Long citaId, Runnable accion) {
+        OperacionCitaEvent evento = new OperacionCitaEvent();
+        evento.begin();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String resultado = "error";
+        try {
+            accion.run();
+            resultado = "ok";
+        } catch (CitaNoDisponibleException | CitaNoCancelableException | CitaRetenidaException e) {
+            resultado = "conflicto";
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            resultado = "bloqueo-optimista";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("soraka.citas.operacion")
+                    .description("Duración y resultado de las reservas y cancelaciones de citas")
+                    .tag("operacion", operacion)
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.operacion = operacion;
+                evento.citaId = citaId;
+                evento.resultado = resultado;
+                evento.commit();
+            }
+        }
     }
 
     /* =========================
@@ -293,35 +578,69 @@ public class CitaService {
     /**
      * Genera automáticamente citas DISPONIBLES para los médicos.
      * Cada cita se crea con paciente = null y estado = DISPONIBLE.
+     * <p>
+     * Los médicos se reparten en {@code tareas.generacion-citas.particiones} particiones
+     * (por id), cada una con su propio lease, para que varias instancias puedan repartirse
+     * el trabajo. Cada médico se procesa en su propia transacción: sus huecos ya existentes
+     * se cargan con una única consulta por rango y los nuevos se insertan en lote. Al terminar
+     * la partición se publica un único {@link CitaCambioEvent} de huecos regenerados.
      */
-    @Scheduled(cron = "0 0 1 * * *") // Todos los días a medianoche
+    @Scheduled(cron = CRON_GENERACION, scheduler = PlanificadoresConfig.GENERACION_CITAS) // Todos los días a la 01:00
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void generarCitasDisponibles() {
-        List<Medico> medicos = medicoRepository.findAll();
+        ejecutorTareas.ejecutarParticionado("generacion-citas", Planificacion.cron(CRON_GENERACION),
+                particionesGeneracion, particion -> generarHuecos(particion, particionesGeneracion));
+    }
+
+    private int generarHuecos(int particion, int particiones) {
         LocalDate hoy = LocalDate.now();
         LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime desde = hoy.plusDays(1).atStartOfDay();
+        LocalDateTime hasta = hoy.plusDays(DIAS_GENERACION + 1).atStartOfDay();
 
-        for (Medico medico : medicos) {
-            LocalDate fecha = hoy.plusDays(1);
-            LocalDate fechaFin = hoy.plusDays(7);
+        int creadas = 0;
+        for (Long medicoId : medicoRepository.findAllIds()) {
+            if (Math.floorMod(medicoId, particiones) != particion) {
+                continue;
+            }
+            try {
+                creadas += transactionTemplate.execute(status -> generarHuecosMedico(medicoId, desde, hasta, ahora));
+            } catch (DataIntegrityViolationException e) {
+                // Otro proceso creó una cita en uno de los huecos entre la consulta y la inserción;
+                // el resto de huecos del médico se generarán en la siguiente ejecución
+                log.warn(">>> [Generación] Huecos del médico {} omitidos: {}", medicoId, e.getMessage());
+            }
+        }
+        if (creadas > 0) {
+            eventPublisher.publishEvent(CitaCambioEvent.regeneradas());
+        }
+        return creadas;
+    }
 
-            while (!fecha.isAfter(fechaFin)) {
-                LocalDateTime hora = fecha.atTime(8, 0);
-                LocalDateTime fin = fecha.atTime(15, 0);
+    private int generarHuecosMedico(Long medicoId, LocalDateTime desde, LocalDateTime hasta, LocalDateTime ahora) {
+        Set<LocalDateTime> ocupadas = citaJdbcRepository
+                .findFechasOcupadas(List.of(medicoId), desde, hasta)
+                .getOrDefault(medicoId, Set.of());
 
-                while (hora.isBefore(fin)) {
-                    if (hora.isAfter(ahora) && !citaRepository.existsByMedicoAndFechaHora(medico, hora)) {
+        return citaJdbcRepository.insertarLote(calcularHuecos(medicoId, desde, hasta, ahora, ocupadas));
+    }
 
-                        Cita cita = new Cita();
-                        cita.setMedico(medico);
-                        cita.setFechaHora(hora);
-                        cita.setEstado(EstadoCita.DISPONIBLE);
-                        citaRepository.save(cita);
-                    }
-                        hora = hora.plusMinutes(30);
+    /**
+     * Huecos de {@value #MINUTOS_HUECO} minutos entre las 08:00 y las 15:00 de cada día de {@code [desde, hasta)}
+     * que son posteriores a {@code ahora} y no están ocupados.
+     */
+    static List<NuevaCita> calcularHuecos(Long medicoId, LocalDateTime desde, LocalDateTime hasta,
+                                          LocalDateTime ahora, Set<LocalDateTime> ocupadas) {
+        List<NuevaCita> nuevas = new ArrayList<>();
+        for (LocalDate fecha = desde.toLocalDate(); fecha.isBefore(hasta.toLocalDate()); fecha = fecha.plusDays(1)) {
+            LocalDateTime fin = fecha.atTime(15, 0);
+            for (LocalDateTime hora = fecha.atTime(8, 0); hora.isBefore(fin); hora = hora.plusMinutes(MINUTOS_HUECO)) {
+                if (hora.isAfter(ahora) && !ocupadas.contains(hora)) {
+                    nuevas.add(NuevaCita.disponible(medicoId, hora));
                 }
-                    fecha = fecha.plusDays(1);
             }
         }
+        return nuevas;
     }
 
     /**
@@ -330,27 +649,23 @@ public class CitaService {
      *   <li>CONFIRMADA → REALIZADA</li>
      *   <li>DISPONIBLE → CADUCADA</li>
      * </ul>
-     * Se ejecuta cada 10 minutos.
+     * Se ejecuta cada 30 segundos, con una sentencia UPDATE por transición
+     * en una transacción propia. Si caduca algún hueco se publica un único
+     * {@link CitaCambioEvent} con la fecha límite, no uno por cita.
      */
-    @Scheduled(fixedDelay = 30000) // cada 30 segundos
+    @Scheduled(fixedDelay = INTERVALO_CIERRE_MS, scheduler = PlanificadoresConfig.CIERRE_CITAS)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cerrarCitasPasadas() {
-        System.out.println(">>> SCHEDULER EJECUTÁNDOSE: " + LocalDateTime.now());
-
-        List<Cita> citasPasadas =
-                citaRepository.findByFechaHoraBeforeAndEstadoIn(
-                        LocalDateTime.now(),
-                        List.of(EstadoCita.CONFIRMADA, EstadoCita.DISPONIBLE)
-                );
-
-        for (Cita c : citasPasadas) {
-            if (c.getEstado() == EstadoCita.CONFIRMADA) {
-                c.setEstado(EstadoCita.REALIZADA);
-            } else {
-                c.setEstado(EstadoCita.CADUCADA);
-            }
-        }
-
-        citaRepository.saveAll(citasPasadas);
+        ejecutorTareas.ejecutar("cierre-citas", Planificacion.retardoFijo(INTERVALO_CIERRE_MS),
+                () -> transactionTemplate.execute(status -> {
+                    LocalDateTime ahora = LocalDateTime.now();
+                    int realizadas = citaRepository.actualizarEstadoAnteriores(EstadoCita.CONFIRMADA, EstadoCita.REALIZADA, ahora);
+                    int caducadas = citaRepository.actualizarEstadoAnteriores(EstadoCita.DISPONIBLE, EstadoCita.CADUCADA, ahora);
+                    if (caducadas > 0) {
+                        eventPublisher.publishEvent(CitaCambioEvent.caducadas(ahora));
+                    }
+                    return realizadas + caducadas;
+                }));
     }
 
     /**
@@ -359,7 +674,7 @@ public class CitaService {
      * @param c entidad cita
      * @return DTO de respuesta
      */
-    private CitaResponseDTO buildResponse(Cita c) {
+    CitaResponseDTO buildResponse(Cita c) {
         return new CitaResponseDTO(
                 c.getId(),
                 c.getPaciente() != null ? c.getPaciente().getId() : null,
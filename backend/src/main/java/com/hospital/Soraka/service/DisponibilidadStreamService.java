@@ -0,0 +1,232 @@
+package com.hospital.Soraka.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.Soraka.dto.cita.CambioDisponibilidadDTO;
+import com.hospital.Soraka.enums.TipoCambioCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stream SSE de cambios en la disponibilidad de citas.
+ *
+ * <p>
+ * Cada cliente se suscribe a todos los huecos, a los de una especialidad o a los de un médico
+ * y recibe un evento por cambio confirmado, en lugar de volver a descargar la lista completa
+ * de {@code /api/citas/disponibles}:
+ * </p>
+ * <ul>
+ *   <li>{@code ocupada}: un hueco se reservó, se retuvo o se eliminó y deja de estar disponible;</li>
+ *   <li>{@code liberada}: una reserva se canceló, o una retención terminó sin reserva,
+ *       y el hueco vuelve a estar disponible;</li>
+ *   <li>{@code movida}: la cita cambió de fecha o de médico; si el cliente la tiene en su lista
+ *       y sigue cumpliendo su filtro la actualiza, y si no, la quita;</li>
+ *   <li>{@code caducadas}: los huecos anteriores a {@code fechaHora} dejaron de estar disponibles;</li>
+ *   <li>{@code resincronizar}: el cliente no leyó a tiempo y se descartaron cambios, o se
+ *       generaron huecos en bloque; debe volver a cargar la lista completa.</li>
+ * </ul>
+ *
+ * <p>
+ * Cada suscriptor tiene una cola acotada ({@code citas.sse.capacidad-cola}) que vacía un hilo
+ * virtual propio, de modo que un cliente lento no retrasa al resto ni a la transacción que
+ * publica el cambio. Cada {@code citas.sse.latido-segundos} se envía un comentario de latido
+ * para que los proxies no cierren la conexión y se detecten los clientes desconectados.
+ * </p>
+ */
+@Service
+public class DisponibilidadStreamService {
+
+    public static final String EVENTO_CONECTADO = "conectado";
+    public static final String EVENTO_RESINCRONIZAR = "resincronizar";
+
+    private static final Set<DataWithMediaType> LATIDO = SseEmitter.event().comment("latido").build();
+    private static final Set<DataWithMediaType> RESINCRONIZAR = SseEmitter.event().name(EVENTO_RESINCRONIZAR).data("{}").build();
+
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int capacidadCola;
+    private final Counter desbordados;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-", 0).factory());
+
+    public DisponibilidadStreamService(ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${citas.sse.timeout-minutos:30}") long timeoutMinutos,
+                                       @Value("${citas.sse.capacidad-cola:256}") int capacidadCola) {
+        this.objectMapper = objectMapper;
+        this.timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutos);
+        this.capacidadCola = capacidadCola;
+
+        Gauge.builder("soraka.sse.suscriptores", suscriptores, Set::size)
+                .description("Clientes suscritos al stream de disponibilidad")
+                .register(meterRegistry);
+        this.desbordados = Counter.builder("soraka.sse.desbordados")
+                .description("Veces que un cliente lento llenó su cola y tuvo que resincronizar")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra un suscriptor. Si se indican ambos filtros, se aplica el del médico.
+     *
+     * @param especialidadId solo cambios de esta especialidad, o {@code null}
+     * @param medicoId       solo cambios de este médico, o {@code null}
+     * @return emisor SSE de la respuesta
+     */
+    public SseEmitter suscribir(Long especialidadId, Long medicoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter, especialidadId, medicoId);
+
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> suscriptores.remove(suscriptor));
+
+        suscriptores.add(suscriptor);
+        // Primer evento: confirma la suscripción y envía las cabeceras de inmediato
+        suscriptor.encolar(SseEmitter.event().name(EVENTO_CONECTADO).data("{}").build());
+        return emitter;
+    }
+
+    /**
+     * Reparte un cambio confirmado entre los suscriptores interesados. El evento se serializa
+     * una sola vez para todos. Los cambios publicados fuera de transacción (retenciones) se
+     * reparten en el momento.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publicar(CitaCambioEvent cambio) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+
+        if (cambio.tipo() == TipoCambioCita.REGENERADAS) {
+            suscriptores.forEach(s -> s.encolar(RESINCRONIZAR));
+            return;
+        }
+
+        Set<DataWithMediaType> evento;
+        try {
+            evento = SseEmitter.event()
+                    .name(nombreEvento(cambio.tipo()))
+                    .data(objectMapper.writeValueAsString(new CambioDisponibilidadDTO(
+                            cambio.citaId(), cambio.medicoId(), cambio.especialidadId(), cambio.fechaHora())))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.acepta(cambio)) {
+                suscriptor.encolar(evento);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${citas.sse.latido-segundos:15}", timeUnit = TimeUnit.SECONDS)
+    public void latido() {
+        for (Suscriptor suscriptor : suscriptores) {
+            // Si hay eventos pendientes, ya mantienen viva la conexión
+            if (suscriptor.cola.isEmpty()) {
+                suscriptor.encolar(LATIDO);
+            }
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        suscriptores.forEach(s -> s.emitter.complete());
+        envios.shutdownNow();
+    }
+
+    private static String nombreEvento(TipoCambioCita tipo) {
+        return switch (tipo) {
+            case RESERVADA, RETENIDA, ELIMINADA -> "ocupada";
+            case CANCELADA, RETENCION_LIBERADA -> "liberada";
+            case REPROGRAMADA -> "movida";
+            case CADUCADAS -> "caducadas";
+            case REGENERADAS -> EVENTO_RESINCRONIZAR;
+        };
+    }
+
+    /**
+     * Cliente conectado con su cola de eventos pendientes. Solo un hilo a la vez escribe
+     * en su emisor.
+     */
+    private final class Suscriptor {
+
+        private final SseEmitter emitter;
+        private final Long especialidadId;
+        private final Long medicoId;
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> cola = new ArrayBlockingQueue<>(capacidadCola);
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        Suscriptor(SseEmitter emitter, Long especialidadId, Long medicoId) {
+            this.emitter = emitter;
+            this.especialidadId = especialidadId;
+            this.medicoId = medicoId;
+        }
+
+        boolean acepta(CitaCambioEvent cambio) {
+            if (cambio.tipo() == TipoCambioCita.CADUCADAS) {
+                return true;
+            }
+            if (medicoId != null) {
+                return medicoId.equals(cambio.medicoId()) || medicoId.equals(cambio.medicoAnteriorId());
+            }
+            return especialidadId == null || especialidadId.equals(cambio.especialidadId());
+        }
+
+        void encolar(Set<DataWithMediaType> evento) {
+            if (!cola.offer(evento)) {
+                // Cola llena: los cambios pendientes ya no sirven, el cliente debe recargar la lista
+                cola.clear();
+                cola.offer(RESINCRONIZAR);
+                desbordados.increment();
+            }
+            programar();
+        }
+
+        private void programar() {
+            if (enviando.compareAndSet(false, true)) {
+                envios.execute(this::vaciar);
+            }
+        }
+
+        private void vaciar() {
+            try {
+                Set<DataWithMediaType> evento;
+                while ((evento = cola.poll()) != null) {
+                    emitter.send(evento);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado o emisor ya cerrado
+                suscriptores.remove(this);
+                cola.clear();
+                return;
+            } finally {
+                enviando.set(false);
+            }
+            if (!cola.isEmpty()) {
+                programar();
+            }
+        }
+    }
+}
@@ -1,20 +1,150 @@
 package com.hospital.Soraka.service;
 
+import com.hospital.Soraka.jfr.EnvioEmailEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servicio encargado de componer y enviar los emails de la aplicación.
+ * <p>
+ * Las plantillas HTML se compilan una sola vez al cargar la clase
+ * (ver {@link PlantillaEmail}). Los envíos masivos se hacen con
+ * {@link #enviarLote(List)}, que reutiliza una única conexión SMTP
+ * para todos los mensajes del lote.
+ * <p>
+ * El transporte SMTP de Jakarta Mail hace la E/S de red dentro de métodos
+ * {@code synchronized}, que fijan un hilo virtual a su hilo portador mientras dura el envío.
+ * Por eso, con {@code spring.threads.virtual.enabled=true}, los envíos se delegan en un pequeño
+ * pool de hilos de plataforma y el hilo virtual que llama simplemente espera el resultado.
+ * <p>
+ * La latencia de cada envío SMTP se publica en {@code soraka.email.envio}, etiquetada
+ * por tipo ({@code confirmacion} o {@code lote}) y resultado.
+ */
 @Service
 public class EmailService {
 
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+
+    private static final DateTimeFormatter FORMATO_FECHA =
+            DateTimeFormatter.ofPattern("EEEE d 'de' MMMM 'a las' HH:mm", Locale.of("es", "ES"));
+
+    private static final PlantillaEmail PLANTILLA_CONFIRMACION = PlantillaEmail.compilar("""
+            <html>
+                <body>
+                    <p>Gracias por registrarte.</p>
+                    <p>Haz clic en el botón para activar tu cuenta:</p>
+                    <a href="{{enlace}}"
+                       style="
+                           display:inline-block;
+                           padding:12px 20px;
+                           color:white;
+                           background-color:#2563eb;
+                           text-decoration:none;
+                           border-radius:6px;
+                           font-weight:bold;
+                       ">
+                        Activar cuenta
+                    </a>
+                    <p style="margin-top:20px;">
+                        Si no creaste esta cuenta, ignora este email.
+                    </p>
+                </body>
+            </html>
+            """);
+
+    private static final PlantillaEmail PLANTILLA_RECORDATORIO = PlantillaEmail.compilar("""
+            <html>
+                <body>
+                    <p>Hola {{paciente}},</p>
+                    <p>Te recordamos que tienes una cita con <strong>{{medico}}</strong>
+                       ({{especialidad}}) el <strong>{{fecha}}</strong>.</p>
+                    <p>Si no puedes asistir, cancélala desde la aplicación para que
+                       otro paciente pueda aprovechar el hueco.</p>
+                </body>
+            </html>
+            """);
+
+    private static final PlantillaEmail PLANTILLA_OFERTA_LISTA_ESPERA = PlantillaEmail.compilar("""
+            <html>
+                <body>
+                    <p>Hola {{paciente}},</p>
+                    <p>Se ha liberado una cita con <strong>{{medico}}</strong>
+                       ({{especialidad}}) el <strong>{{fecha}}</strong>.</p>
+                    <p>La tienes reservada para ti durante {{minutos}} minutos:
+                       confírmala desde la aplicación antes de que pase al siguiente paciente
+                       de la lista de espera.</p>
+                </body>
+            </html>
+            """);
+
+    private static final PlantillaEmail PLANTILLA_CANCELACION_AUSENCIA = PlantillaEmail.compilar("""
+            <html>
+                <body>
+                    <p>Hola {{paciente}},</p>
+                    <p>Sentimos comunicarte que tu cita con <strong>{{medico}}</strong>
+                       ({{especialidad}}) del <strong>{{fecha}}</strong> ha sido cancelada
+                       porque el médico no podrá pasar consulta.</p>
+                    <p>Puedes reservar un nuevo hueco desde la aplicación.</p>
+                </body>
+            </html>
+            """);
+
+    /** Hilos de plataforma dedicados a la E/S SMTP cuando se usan hilos virtuales. */
+    private static final int HILOS_ENVIO = 2;
+
     private final JavaMailSender mailSender;
+    private final ExecutorService envios;
+    private final MeterRegistry meterRegistry;
 
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender,
+                        MeterRegistry meterRegistry,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales) {
         this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.envios = hilosVirtuales
+                ? Executors.newFixedThreadPool(HILOS_ENVIO, Thread.ofPlatform().name("smtp-", 1).factory())
+                : null;
     }
 
+    @PreDestroy
+    void cerrar() {
+        if (envios != null) {
+            envios.shutdown();
+        }
+    }
+
+    /**
+     * Email ya renderizado, pendiente de envío.
+     *
+     * @param destinatario dirección del destinatario
+     * @param asunto       asunto del mensaje
+     * @param html         cuerpo HTML
+     */
+    public record EmailSaliente(String destinatario, String asunto, String html) {}
+
     public void enviarEmailConfirmacion(String email, String token) {
         String enlace = "http://localhost:8080/auth/confirmar?token=" + token;
 
@@ -24,37 +154,164 @@ public class EmailService {
 
             helper.setTo(email);
             helper.setSubject("Confirmación de cuenta");
+            helper.setText(PLANTILLA_CONFIRMACION.renderizar(Map.of("enlace", enlace)), true);
 
-            String contenidoHtml = """
-                <html>
-                    <body>
-                        <p>Gracias por registrarte.</p>
-                        <p>Haz clic en el botón para activar tu cuenta:</p>
-                        <a href="%s"
-                           style="
-                               display:inline-block;
-                               padding:12px 20px;
-                               color:white;
-                               background-color:#2563eb;
-                               text-decoration:none;
-                               border-radius:6px;
-                               font-weight:bold;
-                           ">
-                            Activar cuenta
-                        </a>
-                        <p style="margin-top:20px;">
-                            Si no creaste esta cuenta, ignora este email.
-                        </p>
-                    </body>
-                </html>
-                """.formatted(enlace);
-
-            helper.setText(contenidoHtml, true);
-
-            mailSender.send(message);
+            enviar("confirmacion", () -> mailSender.send(message));
 
         } catch (MessagingException e) {
             throw new RuntimeException("Error enviando email de confirmación", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Compone el recordatorio de una cita confirmada.
+     *
+     * @param email        email del paciente
+     * @param paciente     nombre del paciente
+     * @param medico       nombre del médico
+     * @param especialidad especialidad del médico
+     * @param fechaHora    fecha y hora de la cita
+     * @return email listo para enviar con {@link #enviarLote(List)}
+     */
+    public EmailSaliente crearRecordatorio(String email, String paciente, String medico,
+                                           String especialidad, LocalDateTime fechaHora) {
+        String html = PLANTILLA_RECORDATORIO.renderizar(Map.of(
+                "paciente", paciente,
+                "medico", medico,
+                "especialidad", especialidad,
+                "fecha", fechaHora.format(FORMATO_FECHA)
+        ));
+        return new EmailSaliente(email, "Recordatorio de tu cita médica", html);
+    }
+
+    /**
+     * Compone el aviso de un hueco liberado ofrecido a un paciente de la lista de espera.
+     *
+     * @param email        email del paciente
+     * @param paciente     nombre del paciente
+     * @param medico       nombre del médico
+     * @param especialidad especialidad del médico
+     * @param fechaHora    fecha y hora de la cita
+     * @param minutos      minutos que dura la oferta
+     * @return email listo para enviar con {@link #enviarLote(List)}
+     */
+    public EmailSaliente crearOfertaListaEspera(String email, String paciente, String medico,
+                                                String especialidad, LocalDateTime fechaHora, long minutos) {
+        String html = PLANTILLA_OFERTA_LISTA_ESPERA.renderizar(Map.of(
+                "paciente", paciente,
+                "medico", medico,
+                "especialidad", especialidad,
+                "fecha", fechaHora.format(FORMATO_FECHA),
+                "minutos", String.valueOf(minutos)
+        ));
+        return new EmailSaliente(email, "Hay un hueco libre para ti", html);
+    }
+
+    /**
+     * Compone el aviso de una cita cancelada por ausencia del médico.
+     *
+     * @param email        email del paciente
+     * @param paciente     nombre del paciente
+     * @param medico       nombre del médico
+     * @param especialidad especialidad del médico
+     * @param fechaHora    fecha y hora de la cita
+     * @return email listo para enviar con {@link #enviarLote(List)}
+     */
+    public EmailSaliente crearCancelacionAusencia(String email, String paciente, String medico,
+                                                  String especialidad, LocalDateTime fechaHora) {
+        String html = PLANTILLA_CANCELACION_AUSENCIA.renderizar(Map.of(
+                "paciente", paciente,
+                "medico", medico,
+                "especialidad", especialidad,
+                "fecha", fechaHora.format(FORMATO_FECHA)
+        ));
+        return new EmailSaliente(email, "Tu cita médica ha sido cancelada", html);
+    }
+
+    /**
+     * Envía un lote de emails reutilizando una única conexión SMTP.
+     * <p>
+     * {@link JavaMailSender#send(MimeMessage...)} abre el transporte una vez
+     * y envía todos los mensajes por él, en lugar de conectar y autenticar
+     * por cada email.
+     *
+     * @param lote emails a enviar
+     * @return emails que no se pudieron enviar (vacío si todo fue bien)
+     */
+    public List<EmailSaliente> enviarLote(List<EmailSaliente> lote) {
+        List<EmailSaliente> fallidos = new ArrayList<>();
+        Map<MimeMessage, EmailSaliente> mensajes = new LinkedHashMap<>();
+
+        for (EmailSaliente email : lote) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+                helper.setTo(email.destinatario());
+                helper.setSubject(email.asunto());
+                helper.setText(email.html(), true);
+                mensajes.put(message, email);
+            } catch (MessagingException e) {
+                log.warn("No se pudo componer el email para {}: {}", email.destinatario(), e.getMessage());
+                fallidos.add(email);
+            }
+        }
+
+        if (mensajes.isEmpty()) {
+            return fallidos;
+        }
+
+        try {
+            MimeMessage[] mimeMessages = mensajes.keySet().toArray(MimeMessage[]::new);
+            enviar("lote", () -> mailSender.send(mimeMessages));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                fallidos.addAll(mensajes.values());
+            } else {
+                e.getFailedMessages().keySet().forEach(m -> fallidos.add(mensajes.get(m)));
+            }
+            log.warn("Fallaron {} de {} emails del lote: {}", fallidos.size(), lote.size(), e.getMessage());
+        } catch (MailException e) {
+            fallidos.addAll(mensajes.values());
+            log.warn("No se pudo enviar el lote de {} emails: {}", lote.size(), e.getMessage());
+        }
+
+        return fallidos;
+    }
+
+    /**
+     * Ejecuta y mide un envío SMTP, en el pool de plataforma si existe o en el hilo actual si no.
+     * Además de la métrica se emite un {@link EnvioEmailEvent} para las grabaciones JFR.
+     * Las excepciones del envío se propagan tal cual al llamador.
+     */
+    private void enviar(String tipo, Runnable envio) {
+        EnvioEmailEvent evento = new EnvioEmailEvent();
+        evento.begin();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String resultado = "error";
+        try {
+            if (envios == null) {
+                envio.run();
+            } else {
+                CompletableFuture.runAsync(envio, envios).join();
+            }
+            resultado = "ok";
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("soraka.email.envio")
+                    .description("Latencia de los envíos SMTP")
+                    .tag("tipo", tipo)
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.tipo = tipo;
+                evento.resultado = resultado;
+                evento.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.hospital.Soraka.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import com.hospital.Soraka.enums.FormatoExportacion;
+import com.hospital.Soraka.repository.CitaJdbcRepository;
+import com.hospital.Soraka.repository.CitaJdbcRepository.FiltroExportacion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación completa de citas en NDJSON o CSV.
+ *
+ * <p>
+ * Las filas se leen con el cursor de {@link CitaJdbcRepository#recorrer} y se escriben en la
+ * salida según llegan, de modo que la memoria usada no depende del número de citas.
+ * La salida puede comprimirse con gzip sobre la marcha.
+ * </p>
+ */
+@Service
+public class ExportacionCitasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionCitasService.class);
+
+    private static final int TAMANO_BUFFER = 16 * 1024;
+
+    private static final String CABECERA_CSV =
+            "id,pacienteId,pacienteNombre,medicoId,medicoNombre,medicoEspecialidad,fechaHora,estado,motivo\n";
+
+    @Autowired
+    private CitaJdbcRepository citaJdbcRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${citas.exportacion.fetch-size:0}")
+    private int tamanoFetch;
+
+    /**
+     * Escribe en {@code salida} las citas que cumplen el filtro.
+     *
+     * @param filtro  filtros de la exportación
+     * @param formato formato de salida
+     * @param gzip    si la salida se comprime con gzip
+     * @param salida  flujo de la respuesta; no se cierra
+     * @throws IOException si falla la escritura (por ejemplo, el cliente cerró la conexión)
+     */
+    public void exportar(FiltroExportacion filtro, FormatoExportacion formato, boolean gzip, OutputStream salida)
+            throws IOException {
+        GZIPOutputStream comprimida = gzip ? new GZIPOutputStream(salida, TAMANO_BUFFER) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(comprimida != null ? comprimida : salida, StandardCharsets.UTF_8),
+                TAMANO_BUFFER);
+
+        long inicio = System.nanoTime();
+        long filas;
+        try {
+            filas = formato == FormatoExportacion.CSV
+                    ? escribirCsv(filtro, writer)
+                    : escribirNdjson(filtro, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (comprimida != null) {
+            comprimida.finish();
+        }
+
+        Counter.builder("soraka.citas.exportadas")
+                .description("Citas escritas por las exportaciones")
+                .tag("formato", formato.getExtension())
+                .register(meterRegistry)
+                .increment(filas);
+        log.info("Exportadas {} citas en {} ({} ms)", filas, formato, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private long escribirNdjson(FiltroExportacion filtro, Writer writer) throws IOException {
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(writer);
+        generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generador.setPrettyPrinter(new MinimalPrettyPrinter(""));
+
+        long filas = citaJdbcRepository.recorrer(filtro, tamanoFetch, cita -> {
+            try {
+                generador.writeObject(cita);
+                generador.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generador.flush();
+        return filas;
+    }
+
+    private long escribirCsv(FiltroExportacion filtro, Writer writer) throws IOException {
+        writer.write(CABECERA_CSV);
+        return citaJdbcRepository.recorrer(filtro, tamanoFetch, cita -> {
+            try {
+                writer.write(filaCsv(cita));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    static String filaCsv(CitaResponseDTO cita) {
+        return String.join(",",
+                valor(cita.getId()),
+                valor(cita.getPacienteId()),
+                texto(cita.getPacienteNombre()),
+                valor(cita.getMedicoId()),
+                texto(cita.getMedicoNombre()),
+                texto(cita.getMedicoEspecialidad()),
+                valor(cita.getFechaHora()),
+                valor(cita.getEstado()),
+                texto(cita.getMotivo())) + "\n";
+    }
+
+    private static String valor(Object valor) {
+        return valor == null ? "" : valor.toString();
+    }
+
+    /**
+     * Escapa un campo de texto según RFC 4180. Los valores que empiezan como una fórmula
+     * se prefijan con un apóstrofo para que las hojas de cálculo no los evalúen.
+     */
+    private static String texto(String valor) {
+        if (valor == null || valor.isEmpty()) {
+            return "";
+        }
+        if ("=+-@".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.jfr.GrabacionJfrEstadoDTO;
+import com.hospital.Soraka.exception.Jfr.GrabacionJfrNoActivaException;
+import com.hospital.Soraka.jfr.AutenticacionJwtEvent;
+import com.hospital.Soraka.jfr.EnvioEmailEvent;
+import com.hospital.Soraka.jfr.OperacionCitaEvent;
+import com.hospital.Soraka.jfr.TareaProgramadaEvent;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Gestiona una grabación continua de JDK Flight Recorder para perfilar la aplicación en producción.
+ *
+ * <p>
+ * Solo existe una grabación a la vez. Es acotada: JFR descarta los datos más antiguos que
+ * {@code jfr.grabacion.max-edad-minutos} y mantiene el repositorio en disco por debajo de
+ * {@code jfr.grabacion.max-tamano-mb}, así que puede dejarse activa indefinidamente.
+ * Usa la configuración JFR {@code jfr.grabacion.configuracion} ({@code default}, de
+ * sobrecarga mínima, o {@code profile}) y habilita siempre los eventos propios de Soraka.
+ * </p>
+ */
+@Service
+public class GrabacionJfrService {
+
+    private static final Logger log = LoggerFactory.getLogger(GrabacionJfrService.class);
+
+    private static final String NOMBRE = "soraka";
+
+    private final String configuracion;
+    private final long maxEdadMinutos;
+    private final long maxTamanoMb;
+
+    private Recording grabacion;
+
+    public GrabacionJfrService(@Value("${jfr.grabacion.configuracion:default}") String configuracion,
+                               @Value("${jfr.grabacion.max-edad-minutos:30}") long maxEdadMinutos,
+                               @Value("${jfr.grabacion.max-tamano-mb:100}") long maxTamanoMb) {
+        this.configuracion = configuracion;
+        this.maxEdadMinutos = maxEdadMinutos;
+        this.maxTamanoMb = maxTamanoMb;
+    }
+
+    /**
+     * Inicia la grabación continua. Si ya hay una en curso no hace nada.
+     *
+     * @return estado de la grabación
+     */
+    public synchronized GrabacionJfrEstadoDTO iniciar() {
+        if (activa()) {
+            return estado();
+        }
+
+        Recording nueva;
+        try {
+            nueva = new Recording(Configuration.getConfiguration(configuracion));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Configuración JFR no válida: " + configuracion, e);
+        }
+        nueva.setName(NOMBRE);
+        nueva.setToDisk(true);
+        nueva.setMaxAge(Duration.ofMinutes(maxEdadMinutos));
+        nueva.setMaxSize(maxTamanoMb * 1024 * 1024);
+        nueva.enable(OperacionCitaEvent.class);
+        nueva.enable(AutenticacionJwtEvent.class);
+        nueva.enable(EnvioEmailEvent.class);
+        nueva.enable(TareaProgramadaEvent.class);
+        nueva.start();
+
+        grabacion = nueva;
+        log.warn(">>> [JFR] Grabación iniciada ({}, {} min, {} MB)", configuracion, maxEdadMinutos, maxTamanoMb);
+        return estado();
+    }
+
+    /**
+     * Vuelca el contenido actual de la grabación a un fichero temporal, sin detenerla.
+     * El llamador es responsable de borrar el fichero.
+     *
+     * @return ruta del fichero {@code .jfr}
+     * @throws GrabacionJfrNoActivaException si no hay ninguna grabación en curso
+     */
+    public synchronized Path volcar() {
+        if (!activa()) {
+            throw new GrabacionJfrNoActivaException("No hay ninguna grabación JFR en curso");
+        }
+        try {
+            Path destino = Files.createTempFile("soraka-", ".jfr");
+            grabacion.dump(destino);
+            return destino;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Detiene la grabación y libera sus datos.
+     *
+     * @throws GrabacionJfrNoActivaException si no hay ninguna grabación en curso
+     */
+    public synchronized void detener() {
+        if (!activa()) {
+            throw new GrabacionJfrNoActivaException("No hay ninguna grabación JFR en curso");
+        }
+        grabacion.close();
+        grabacion = null;
+        log.warn(">>> [JFR] Grabación detenida");
+    }
+
+    /**
+     * @return estado de la grabación y límites configurados
+     */
+    public synchronized GrabacionJfrEstadoDTO estado() {
+        boolean activa = activa();
+        return new GrabacionJfrEstadoDTO(
+                activa,
+                activa ? grabacion.getStartTime() : null,
+                maxEdadMinutos,
+                maxTamanoMb,
+                activa ? grabacion.getSize() : 0);
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() {
+        if (grabacion != null) {
+            grabacion.close();
+            grabacion = null;
+        }
+    }
+
+    private boolean activa() {
+        return grabacion != null && grabacion.getState() == RecordingState.RUNNING;
+    }
+}
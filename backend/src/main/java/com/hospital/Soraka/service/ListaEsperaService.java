@@ -0,0 +1,414 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.listaespera.ListaEsperaPostDTO;
+import com.hospital.Soraka.dto.listaespera.ListaEsperaResponseDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.exception.Cita.CitaNoDisponibleException;
+import com.hospital.Soraka.exception.Cita.CitaRetenidaException;
+import com.hospital.Soraka.exception.Especialidad.EspecialidadNotFoundException;
+import com.hospital.Soraka.exception.ListaEspera.EntradaListaEsperaNotFoundException;
+import com.hospital.Soraka.exception.ListaEspera.ListaEsperaInvalidaException;
+import com.hospital.Soraka.exception.Medico.MedicoNotFoundException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.EspecialidadRepository;
+import com.hospital.Soraka.repository.ListaEsperaRepository;
+import com.hospital.Soraka.repository.ListaEsperaRepository.Entrada;
+import com.hospital.Soraka.repository.MedicoRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lista de espera de citas con reasignación automática de los huecos liberados.
+ *
+ * <p>
+ * Las peticiones se guardan en {@code lista_espera} y se indexan en memoria por médico y por
+ * especialidad, cada índice ordenado por prioridad y orden de alta. Cuando se confirma la
+ * cancelación de una cita, el hueco se ofrece al primer paciente cuyo rango lo admite
+ * recorriendo solo las peticiones de ese médico y de su especialidad, sin consultar la tabla.
+ * </p>
+ *
+ * <p>
+ * La oferta es una retención ({@link RetencionCitasService}) de {@code lista-espera.oferta-minutos}
+ * más un email. Si el paciente la deja caducar o la libera, el hueco pasa al siguiente; si
+ * reserva, su petición sale de la lista. Los pacientes que ya tienen otra cita retenida u
+ * ofrecida se saltan para no quitarles esa retención.
+ * </p>
+ *
+ * <p>
+ * El emparejamiento se ejecuta en un único hilo, de modo que dos huecos liberados a la vez
+ * nunca se ofrecen al mismo paciente, y las ofertas en curso solo se tocan desde ese hilo.
+ * El índice y las ofertas son de esta instancia; la tabla solo se lee al arrancar. Las
+ * peticiones de un usuario borrado mientras tanto (la tabla las elimina en cascada) se
+ * descartan del índice cuando les tocaría una oferta.
+ * </p>
+ */
+@Service
+public class ListaEsperaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ListaEsperaService.class);
+
+    /** Mayor prioridad primero; a igual prioridad, por orden de alta. */
+    private static final Comparator<Entrada> ORDEN = Comparator
+            .comparingInt(Entrada::prioridad).reversed()
+            .thenComparing(Entrada::fechaAlta)
+            .thenComparing(Entrada::id);
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final CitaRepository citaRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final MedicoRepository medicoRepository;
+    private final EspecialidadRepository especialidadRepository;
+    private final RetencionCitasService retencionCitasService;
+    private final EmailService emailService;
+    private final Duration duracionOferta;
+    private final int maxPorPaciente;
+    private final Counter ofertas;
+
+    private final Map<Long, Entrada> porId = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Entrada>> porMedico = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Entrada>> porEspecialidad = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> porUsuario = new ConcurrentHashMap<>();
+
+    // Solo se usan desde el hilo del emparejador
+    private final Map<Long, Oferta> ofertaPorCita = new HashMap<>();
+    private final Set<Long> usuariosConOferta = new HashSet<>();
+
+    private final ExecutorService emparejador =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("lista-espera").factory());
+    private final ExecutorService avisos = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ListaEsperaService(ListaEsperaRepository listaEsperaRepository,
+                              CitaRepository citaRepository,
+                              UsuarioRepository usuarioRepository,
+                              MedicoRepository medicoRepository,
+                              EspecialidadRepository especialidadRepository,
+                              RetencionCitasService retencionCitasService,
+                              EmailService emailService,
+                              MeterRegistry meterRegistry,
+                              @Value("${lista-espera.oferta-minutos:15}") long ofertaMinutos,
+                              @Value("${lista-espera.max-por-paciente:5}") int maxPorPaciente) {
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.citaRepository = citaRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.medicoRepository = medicoRepository;
+        this.especialidadRepository = especialidadRepository;
+        this.retencionCitasService = retencionCitasService;
+        this.emailService = emailService;
+        this.duracionOferta = Duration.ofMinutes(ofertaMinutos);
+        this.maxPorPaciente = maxPorPaciente;
+
+        Gauge.builder("soraka.lista.espera.entradas", porId, Map::size)
+                .description("Peticiones en la lista de espera")
+                .register(meterRegistry);
+        this.ofertas = Counter.builder("soraka.lista.espera.ofertas")
+                .description("Huecos liberados ofrecidos a pacientes de la lista de espera")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hueco ofrecido a un paciente.
+     *
+     * @param descartadas peticiones a las que ya se ofreció este hueco
+     */
+    private record Oferta(Long entradaId, Long usuarioId, Set<Long> descartadas) {
+    }
+
+    @PostConstruct
+    void cargar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        listaEsperaRepository.purgarCaducadas(ahora);
+        listaEsperaRepository.findVigentes(ahora).forEach(this::indexar);
+    }
+
+    @PreDestroy
+    void cerrar() throws InterruptedException {
+        emparejador.shutdown();
+        emparejador.awaitTermination(5, TimeUnit.SECONDS);
+        avisos.shutdown();
+    }
+
+    /**
+     * Apunta al paciente en la lista de espera de un médico o de una especialidad.
+     *
+     * @param paciente paciente autenticado
+     * @param dto      médico o especialidad y rango de fechas
+     * @return petición creada
+     * @throws ListaEsperaInvalidaException si la petición no es válida o supera el límite por paciente
+     */
+    public ListaEsperaResponseDTO apuntar(Usuario paciente, ListaEsperaPostDTO dto) {
+        if ((dto.getMedicoId() == null) == (dto.getEspecialidadId() == null)) {
+            throw new ListaEsperaInvalidaException("Indica un médico o una especialidad, pero no ambos");
+        }
+        if (dto.getDesde() == null || dto.getHasta() == null || !dto.getHasta().isAfter(dto.getDesde())) {
+            throw new ListaEsperaInvalidaException("El rango de fechas no es válido");
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        if (dto.getHasta().isBefore(ahora)) {
+            throw new ListaEsperaInvalidaException("El rango de fechas ya ha terminado");
+        }
+        if (dto.getMedicoId() != null && !medicoRepository.existsById(dto.getMedicoId())) {
+            throw new MedicoNotFoundException("Médico no encontrado");
+        }
+        if (dto.getEspecialidadId() != null && !especialidadRepository.existsById(dto.getEspecialidadId())) {
+            throw new EspecialidadNotFoundException("Especialidad no encontrada");
+        }
+        if (porUsuario.getOrDefault(paciente.getId(), Set.of()).size() >= maxPorPaciente) {
+            throw new ListaEsperaInvalidaException(
+                    "No puedes tener más de " + maxPorPaciente + " peticiones en la lista de espera");
+        }
+
+        Entrada entrada = listaEsperaRepository.insertar(paciente.getId(), dto.getMedicoId(),
+                dto.getEspecialidadId(), dto.getDesde(), dto.getHasta(), 0, ahora);
+        indexar(entrada);
+        return new ListaEsperaResponseDTO(entrada);
+    }
+
+    /**
+     * @return peticiones del paciente en orden de prioridad
+     */
+    public List<ListaEsperaResponseDTO> listarPropias(Long usuarioId) {
+        return porUsuario.getOrDefault(usuarioId, Set.of()).stream()
+                .map(porId::get)
+                .filter(e -> e != null)
+                .sorted(ORDEN)
+                .map(ListaEsperaResponseDTO::new)
+                .toList();
+    }
+
+    /**
+     * Saca una petición de la lista. El paciente solo puede quitar las suyas; ADMIN, cualquiera.
+     *
+     * @throws EntradaListaEsperaNotFoundException si no existe
+     * @throws AccessDeniedException               si no es del usuario
+     */
+    public void darDeBaja(Long id, Usuario usuario) {
+        Entrada entrada = buscar(id);
+        if (usuario.getRol() != Rol.ADMIN && !entrada.usuarioId().equals(usuario.getId())) {
+            throw new AccessDeniedException("No puedes quitar esta petición");
+        }
+        eliminar(entrada);
+    }
+
+    /**
+     * Cambia la prioridad de una petición (solo ADMIN).
+     *
+     * @throws EntradaListaEsperaNotFoundException si no existe
+     */
+    public ListaEsperaResponseDTO cambiarPrioridad(Long id, int prioridad) {
+        Entrada actual = buscar(id);
+        Entrada nueva = actual.conPrioridad(prioridad);
+        listaEsperaRepository.actualizarPrioridad(id, prioridad);
+        desindexar(actual);
+        indexar(nueva);
+        return new ListaEsperaResponseDTO(nueva);
+    }
+
+    /**
+     * Reacciona a los cambios confirmados de las citas en el hilo del emparejador:
+     * <ul>
+     *   <li>cancelación: ofrece el hueco;</li>
+     *   <li>retención liberada de una oferta: la pasa al siguiente paciente;</li>
+     *   <li>reserva de una oferta: saca la petición de la lista.</li>
+     * </ul>
+     * Las retenciones se publican fuera de transacción, de ahí {@code fallbackExecution}.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarCita(CitaCambioEvent cambio) {
+        Runnable accion = switch (cambio.tipo()) {
+            case CANCELADA -> () -> ofrecer(cambio, new HashSet<>());
+            case RETENCION_LIBERADA -> () -> reofrecer(cambio);
+            case RESERVADA -> () -> completar(cambio);
+            default -> null;
+        };
+        if (accion != null) {
+            emparejador.execute(() -> {
+                try {
+                    accion.run();
+                } catch (RuntimeException e) {
+                    log.warn(">>> [ListaEspera] Error emparejando la cita {}: {}", cambio.citaId(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void reofrecer(CitaCambioEvent cambio) {
+        Oferta oferta = ofertaPorCita.remove(cambio.citaId());
+        if (oferta == null) {
+            return;
+        }
+        usuariosConOferta.remove(oferta.usuarioId());
+        oferta.descartadas().add(oferta.entradaId());
+        ofrecer(cambio, oferta.descartadas());
+    }
+
+    private void completar(CitaCambioEvent cambio) {
+        Oferta oferta = ofertaPorCita.remove(cambio.citaId());
+        if (oferta == null) {
+            return;
+        }
+        usuariosConOferta.remove(oferta.usuarioId());
+        Entrada entrada = porId.get(oferta.entradaId());
+        if (entrada != null && oferta.usuarioId().equals(cambio.pacienteId())) {
+            eliminar(entrada);
+        }
+    }
+
+    /**
+     * Ofrece el hueco al primer paciente elegible de las peticiones de su médico y de su
+     * especialidad, recorriendo ambos índices a la vez en orden de prioridad.
+     */
+    private void ofrecer(CitaCambioEvent cambio, Set<Long> descartadas) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (cambio.fechaHora().isBefore(ahora)) {
+            return;
+        }
+
+        List<Entrada> descartar = new ArrayList<>();
+        Iterator<Entrada> deMedico = iterador(porMedico, cambio.medicoId());
+        Iterator<Entrada> deEspecialidad = iterador(porEspecialidad, cambio.especialidadId());
+        Entrada a = siguiente(deMedico);
+        Entrada b = siguiente(deEspecialidad);
+        Cita cita = null;
+        try {
+            while (a != null || b != null) {
+                Entrada entrada;
+                if (b == null || (a != null && ORDEN.compare(a, b) <= 0)) {
+                    entrada = a;
+                    a = siguiente(deMedico);
+                } else {
+                    entrada = b;
+                    b = siguiente(deEspecialidad);
+                }
+
+                if (entrada.hasta().isBefore(ahora)) {
+                    descartar.add(entrada);
+                    continue;
+                }
+                if (!entrada.admite(cambio.fechaHora())
+                        || descartadas.contains(entrada.id())
+                        || usuariosConOferta.contains(entrada.usuarioId())
+                        || retencionCitasService.tieneRetencion(entrada.usuarioId())) {
+                    continue;
+                }
+
+                if (cita == null) {
+                    cita = citaRepository.findById(cambio.citaId()).orElse(null);
+                    if (cita == null || cita.getEstado() != EstadoCita.DISPONIBLE) {
+                        return;
+                    }
+                }
+                Usuario paciente = usuarioRepository.findById(entrada.usuarioId()).orElse(null);
+                if (paciente == null) {
+                    descartar.add(entrada);
+                    continue;
+                }
+                try {
+                    retencionCitasService.retener(cita, entrada.usuarioId(), duracionOferta);
+                } catch (CitaRetenidaException | CitaNoDisponibleException e) {
+                    // Otro paciente se adelantó a retener el hueco
+                    return;
+                }
+                ofertaPorCita.put(cita.getId(), new Oferta(entrada.id(), entrada.usuarioId(), descartadas));
+                usuariosConOferta.add(entrada.usuarioId());
+                ofertas.increment();
+                avisar(paciente, cita);
+                return;
+            }
+        } finally {
+            descartar.forEach(this::eliminar);
+        }
+    }
+
+    private void avisar(Usuario paciente, Cita cita) {
+        EmailService.EmailSaliente email = emailService.crearOfertaListaEspera(
+                paciente.getEmail(),
+                paciente.getNombre(),
+                cita.getMedico().getUsuario().getNombre(),
+                cita.getMedico().getEspecialidad().getNombre(),
+                cita.getFechaHora(),
+                duracionOferta.toMinutes());
+        avisos.execute(() -> {
+            if (!emailService.enviarLote(List.of(email)).isEmpty()) {
+                log.warn(">>> [ListaEspera] No se pudo avisar de la cita {} a {}", cita.getId(), email.destinatario());
+            }
+        });
+    }
+
+    private Entrada buscar(Long id) {
+        Entrada entrada = porId.get(id);
+        if (entrada == null) {
+            throw new EntradaListaEsperaNotFoundException("Petición de lista de espera no encontrada");
+        }
+        return entrada;
+    }
+
+    private void eliminar(Entrada entrada) {
+        listaEsperaRepository.eliminar(entrada.id());
+        desindexar(entrada);
+    }
+
+    private void indexar(Entrada entrada) {
+        porId.put(entrada.id(), entrada);
+        porUsuario.computeIfAbsent(entrada.usuarioId(), k -> ConcurrentHashMap.newKeySet()).add(entrada.id());
+        if (entrada.medicoId() != null) {
+            porMedico.computeIfAbsent(entrada.medicoId(), k -> new ConcurrentSkipListSet<>(ORDEN)).add(entrada);
+        } else {
+            porEspecialidad.computeIfAbsent(entrada.especialidadId(), k -> new ConcurrentSkipListSet<>(ORDEN)).add(entrada);
+        }
+    }
+
+    private void desindexar(Entrada entrada) {
+        porId.remove(entrada.id(), entrada);
+        Set<Long> delUsuario = porUsuario.get(entrada.usuarioId());
+        if (delUsuario != null) {
+            delUsuario.remove(entrada.id());
+        }
+        NavigableSet<Entrada> indice = entrada.medicoId() != null
+                ? porMedico.get(entrada.medicoId())
+                : porEspecialidad.get(entrada.especialidadId());
+        if (indice != null) {
+            indice.remove(entrada);
+        }
+    }
+
+    private static Iterator<Entrada> iterador(Map<Long, NavigableSet<Entrada>> indice, Long clave) {
+        NavigableSet<Entrada> entradas = clave != null ? indice.get(clave) : null;
+        return entradas != null ? entradas.iterator() : null;
+    }
+
+    private static Entrada siguiente(Iterator<Entrada> iterador) {
+        return iterador != null && iterador.hasNext() ? iterador.next() : null;
+    }
+}
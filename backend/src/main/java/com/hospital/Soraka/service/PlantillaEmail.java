@@ -0,0 +1,80 @@
+package com.hospital.Soraka.service;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla HTML de email precompilada.
+ * <p>
+ * El texto se analiza una única vez al construir la plantilla, separando los
+ * fragmentos literales de los marcadores {@code {{nombre}}}. Renderizar consiste
+ * solo en concatenar fragmentos y valores sobre un {@link StringBuilder}
+ * dimensionado, sin volver a recorrer ni formatear el texto original.
+ * <p>
+ * Los valores se escapan como HTML, ya que proceden de datos introducidos por usuarios.
+ */
+public final class PlantillaEmail {
+
+    private final String[] literales;
+    private final String[] variables;
+    private final int longitudBase;
+
+    private PlantillaEmail(String[] literales, String[] variables) {
+        this.literales = literales;
+        this.variables = variables;
+        int longitud = 0;
+        for (String literal : literales) {
+            longitud += literal.length();
+        }
+        this.longitudBase = longitud;
+    }
+
+    /**
+     * Compila una plantilla con marcadores {@code {{nombre}}}.
+     *
+     * @param texto texto de la plantilla
+     * @return plantilla lista para renderizar
+     * @throws IllegalArgumentException si algún marcador no está cerrado
+     */
+    public static PlantillaEmail compilar(String texto) {
+        List<String> literales = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+
+        int desde = 0;
+        int inicio;
+        while ((inicio = texto.indexOf("{{", desde)) >= 0) {
+            int fin = texto.indexOf("}}", inicio);
+            if (fin < 0) {
+                throw new IllegalArgumentException("Marcador sin cerrar en la posición " + inicio);
+            }
+            literales.add(texto.substring(desde, inicio));
+            variables.add(texto.substring(inicio + 2, fin).trim());
+            desde = fin + 2;
+        }
+        literales.add(texto.substring(desde));
+
+        return new PlantillaEmail(literales.toArray(String[]::new), variables.toArray(String[]::new));
+    }
+
+    /**
+     * Renderiza la plantilla con los valores indicados.
+     *
+     * @param valores valores por nombre de marcador; los ausentes se renderizan vacíos
+     * @return HTML resultante
+     */
+    public String renderizar(Map<String, String> valores) {
+        StringBuilder sb = new StringBuilder(longitudBase + variables.length * 32);
+        for (int i = 0; i < variables.length; i++) {
+            sb.append(literales[i]);
+            String valor = valores.get(variables[i]);
+            if (valor != null) {
+                sb.append(HtmlUtils.htmlEscape(valor));
+            }
+        }
+        sb.append(literales[variables.length]);
+        return sb.toString();
+    }
+}
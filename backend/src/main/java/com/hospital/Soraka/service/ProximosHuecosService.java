@@ -0,0 +1,235 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.HuecoLibreDTO;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.repository.CitaRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Próximos huecos libres de una especialidad, sin consultar la base de datos.
+ *
+ * <p>
+ * Mantiene en memoria los huecos disponibles futuros, agrupados por especialidad y, dentro de
+ * cada una, por hora del día; cada grupo está ordenado por fecha. Una consulta mezcla las
+ * cabezas de los grupos de la franja pedida con una cola de prioridad y se detiene al reunir
+ * {@code n} huecos, así que su coste depende de {@code n} y del número de horas distintas de
+ * la franja, no de cuántos días de agenda haya.
+ * </p>
+ *
+ * <p>
+ * El índice se construye con una proyección de {@link CitaRepository} al arrancar y cuando se
+ * regeneran huecos en bloque, y se mantiene con los {@link CitaCambioEvent} confirmados. Las
+ * escrituras se serializan; las consultas no bloquean. Los huecos retenidos por otros
+ * pacientes se descartan al consultar.
+ * </p>
+ */
+@Service
+public class ProximosHuecosService {
+
+    private static final Comparator<HuecoLibreDTO> ORDEN = Comparator
+            .comparing(HuecoLibreDTO::fechaHora)
+            .thenComparing(HuecoLibreDTO::citaId);
+
+    private final CitaRepository citaRepository;
+    private final RetencionCitasService retencionCitasService;
+    private final int maxResultados;
+
+    private final Object escritura = new Object();
+    private volatile Indice indice = new Indice();
+
+    public ProximosHuecosService(CitaRepository citaRepository,
+                                 RetencionCitasService retencionCitasService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${citas.proximos-huecos.max:50}") int maxResultados) {
+        this.citaRepository = citaRepository;
+        this.retencionCitasService = retencionCitasService;
+        this.maxResultados = maxResultados;
+
+        Gauge.builder("soraka.huecos.indexados", this, s -> s.indice.porCita.size())
+                .description("Huecos disponibles en el índice de próximos huecos")
+                .register(meterRegistry);
+    }
+
+    /** Huecos por especialidad y hora del día, más un acceso por id de cita para las bajas. */
+    private static final class Indice {
+
+        final Map<Long, NavigableMap<LocalTime, NavigableSet<HuecoLibreDTO>>> porEspecialidad = new ConcurrentHashMap<>();
+        final Map<Long, HuecoLibreDTO> porCita = new ConcurrentHashMap<>();
+
+        void anadir(HuecoLibreDTO hueco) {
+            if (hueco.especialidadId() == null) {
+                return;
+            }
+            HuecoLibreDTO anterior = porCita.put(hueco.citaId(), hueco);
+            if (anterior != null) {
+                grupo(anterior).remove(anterior);
+            }
+            grupo(hueco).add(hueco);
+        }
+
+        HuecoLibreDTO quitar(Long citaId) {
+            HuecoLibreDTO hueco = porCita.remove(citaId);
+            if (hueco != null) {
+                grupo(hueco).remove(hueco);
+            }
+            return hueco;
+        }
+
+        private NavigableSet<HuecoLibreDTO> grupo(HuecoLibreDTO hueco) {
+            return porEspecialidad
+                    .computeIfAbsent(hueco.especialidadId(), k -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(hueco.fechaHora().toLocalTime(), k -> new ConcurrentSkipListSet<>(ORDEN));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    /**
+     * Vuelve a cargar el índice desde la base de datos y lo sustituye de una vez.
+     */
+    public void reconstruir() {
+        synchronized (escritura) {
+            Indice nuevo = new Indice();
+            citaRepository.findHuecosByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now())
+                    .forEach(nuevo::anadir);
+            indice = nuevo;
+        }
+    }
+
+    /**
+     * Aplica un cambio confirmado. Las retenciones no tocan el índice (se filtran al consultar),
+     * pero se publican fuera de transacción, igual que los huecos regenerados.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarCita(CitaCambioEvent cambio) {
+        switch (cambio.tipo()) {
+            case CANCELADA -> {
+                synchronized (escritura) {
+                    indice.anadir(new HuecoLibreDTO(cambio.citaId(), cambio.medicoId(),
+                            cambio.especialidadId(), cambio.fechaHora()));
+                }
+            }
+            case RESERVADA, ELIMINADA -> {
+                synchronized (escritura) {
+                    indice.quitar(cambio.citaId());
+                }
+            }
+            case REPROGRAMADA -> {
+                // Solo importa si la cita movida es un hueco libre
+                synchronized (escritura) {
+                    if (indice.quitar(cambio.citaId()) != null) {
+                        indice.anadir(new HuecoLibreDTO(cambio.citaId(), cambio.medicoId(),
+                                cambio.especialidadId(), cambio.fechaHora()));
+                    }
+                }
+            }
+            case CADUCADAS -> caducar(cambio.fechaHora());
+            case REGENERADAS -> reconstruir();
+            case RETENIDA, RETENCION_LIBERADA -> {
+            }
+        }
+    }
+
+    /**
+     * Próximos huecos libres de una especialidad, opcionalmente dentro de una franja horaria.
+     * Si {@code desde} es posterior a {@code hasta}, la franja cruza la medianoche.
+     *
+     * @param especialidadId id de la especialidad
+     * @param n              número de huecos, entre 1 y {@code citas.proximos-huecos.max}
+     * @param desde          hora mínima de inicio (incluida), o {@code null}
+     * @param hasta          hora máxima de inicio (incluida), o {@code null}
+     * @param usuarioId      usuario que consulta, para no ofrecerle huecos retenidos por otros
+     * @return huecos en orden de fecha
+     */
+    public List<HuecoLibreDTO> buscar(Long especialidadId, int n, LocalTime desde, LocalTime hasta, Long usuarioId) {
+        int limite = Math.max(1, Math.min(n, maxResultados));
+        NavigableMap<LocalTime, NavigableSet<HuecoLibreDTO>> porHora = indice.porEspecialidad.get(especialidadId);
+        if (porHora == null) {
+            return List.of();
+        }
+
+        LocalTime inicio = desde != null ? desde : LocalTime.MIN;
+        LocalTime fin = hasta != null ? hasta : LocalTime.MAX;
+        List<NavigableMap<LocalTime, NavigableSet<HuecoLibreDTO>>> franjas = !inicio.isAfter(fin)
+                ? List.of(porHora.subMap(inicio, true, fin, true))
+                : List.of(porHora.tailMap(inicio, true), porHora.headMap(fin, true));
+
+        HuecoLibreDTO ahora = new HuecoLibreDTO(Long.MIN_VALUE, null, null, LocalDateTime.now());
+        PriorityQueue<Cursor> cabezas = new PriorityQueue<>(Comparator.comparing(Cursor::actual, ORDEN));
+        for (NavigableMap<LocalTime, NavigableSet<HuecoLibreDTO>> franja : franjas) {
+            for (NavigableSet<HuecoLibreDTO> grupo : franja.values()) {
+                Iterator<HuecoLibreDTO> it = grupo.tailSet(ahora, true).iterator();
+                if (it.hasNext()) {
+                    cabezas.add(new Cursor(it, it.next()));
+                }
+            }
+        }
+
+        List<HuecoLibreDTO> resultado = new ArrayList<>(limite);
+        while (resultado.size() < limite && !cabezas.isEmpty()) {
+            Cursor cursor = cabezas.poll();
+            HuecoLibreDTO hueco = cursor.actual;
+            if (!retencionCitasService.retenidaPorOtro(hueco.citaId(), usuarioId)) {
+                resultado.add(hueco);
+            }
+            if (cursor.it.hasNext()) {
+                cursor.actual = cursor.it.next();
+                cabezas.add(cursor);
+            }
+        }
+        return resultado;
+    }
+
+    private void caducar(LocalDateTime hasta) {
+        HuecoLibreDTO limite = new HuecoLibreDTO(Long.MIN_VALUE, null, null, hasta);
+        synchronized (escritura) {
+            for (NavigableMap<LocalTime, NavigableSet<HuecoLibreDTO>> porHora : indice.porEspecialidad.values()) {
+                for (NavigableSet<HuecoLibreDTO> grupo : porHora.values()) {
+                    NavigableSet<HuecoLibreDTO> pasados = grupo.headSet(limite, false);
+                    pasados.forEach(h -> indice.porCita.remove(h.citaId(), h));
+                    pasados.clear();
+                }
+            }
+        }
+    }
+
+    /** Posición de la mezcla dentro de un grupo de hora. */
+    private static final class Cursor {
+        final Iterator<HuecoLibreDTO> it;
+        HuecoLibreDTO actual;
+
+        Cursor(Iterator<HuecoLibreDTO> it, HuecoLibreDTO actual) {
+            this.it = it;
+            this.actual = actual;
+        }
+
+        HuecoLibreDTO actual() {
+            return actual;
+        }
+    }
+}
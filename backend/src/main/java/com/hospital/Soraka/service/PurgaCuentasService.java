@@ -0,0 +1,152 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.config.EjecutorTareas;
+import com.hospital.Soraka.config.EjecutorTareas.Planificacion;
+import com.hospital.Soraka.config.PlanificadoresConfig;
+import com.hospital.Soraka.repository.TokenConfirmacionRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Purga periódica de tokens de confirmación caducados y, opcionalmente,
+ * de las cuentas que nunca llegaron a activarse.
+ * <p>
+ * {@link ConfirmacionService} solo elimina un token cuando se confirma, por lo que
+ * sin esta tarea {@code token_confirmacion} y {@code usuarios} crecen sin límite.
+ * <p>
+ * El borrado se hace en bloques acotados, cada uno en su propia transacción, para
+ * no mantener bloqueos largos ni generar transacciones enormes. Las cuentas demo,
+ * los usuarios con médico asociado y los que tienen citas nunca se eliminan.
+ * <p>
+ * Una cuenta sin confirmar se reconoce por su token caducado: las desactivadas por un
+ * administrador no tienen token y no se tocan. Por eso, con la purga de cuentas habilitada,
+ * los tokens de cuentas sin activar no se borran solos sino junto con su cuenta, en el
+ * mismo bloque.
+ * Los totales eliminados se publican como métricas {@code soraka.purga.eliminados}.
+ */
+@Service
+public class PurgaCuentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgaCuentasService.class);
+
+    private final TokenConfirmacionRepository tokenRepo;
+    private final UsuarioRepository usuarioRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final EjecutorTareas ejecutorTareas;
+    private final Counter tokensEliminados;
+    private final Counter usuariosEliminados;
+
+    @Value("${purga.cron:0 30 3 * * *}")
+    private String cron;
+
+    @Value("${purga.tamano-bloque:500}")
+    private int tamanoBloque;
+
+    @Value("${purga.usuarios-sin-activar.habilitado:false}")
+    private boolean purgarUsuarios;
+
+    @Value("${purga.usuarios-sin-activar.antiguedad-dias:30}")
+    private int antiguedadDias;
+
+    public PurgaCuentasService(TokenConfirmacionRepository tokenRepo,
+                               UsuarioRepository usuarioRepo,
+                               TransactionTemplate transactionTemplate,
+                               EjecutorTareas ejecutorTareas,
+                               MeterRegistry meterRegistry) {
+        this.tokenRepo = tokenRepo;
+        this.usuarioRepo = usuarioRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.ejecutorTareas = ejecutorTareas;
+        this.tokensEliminados = Counter.builder("soraka.purga.eliminados")
+                .description("Filas eliminadas por la purga de cuentas sin confirmar")
+                .tag("tipo", "token")
+                .register(meterRegistry);
+        this.usuariosEliminados = Counter.builder("soraka.purga.eliminados")
+                .description("Filas eliminadas por la purga de cuentas sin confirmar")
+                .tag("tipo", "usuario")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la purga completa: primero los tokens caducados y después,
+     * si está habilitado, las cuentas sin activar más antiguas que el límite.
+     */
+    @Scheduled(cron = "${purga.cron:0 30 3 * * *}", scheduler = PlanificadoresConfig.PURGA)
+    public void purgar() {
+        ejecutorTareas.ejecutar("purga", Planificacion.cron(cron), () -> {
+            int tokens = purgarTokensExpirados();
+            int usuarios = purgarUsuarios ? purgarUsuariosSinActivar() : 0;
+
+            log.info(">>> [Purga] Eliminados {} tokens caducados y {} cuentas sin activar", tokens, usuarios);
+            return tokens + usuarios;
+        });
+    }
+
+    /**
+     * Elimina los tokens de confirmación caducados en bloques de {@code purga.tamano-bloque}.
+     * Si la purga de cuentas está habilitada, conserva los de cuentas sin activar, que
+     * {@link #purgarUsuariosSinActivar()} necesita para reconocerlas.
+     *
+     * @return número de tokens eliminados
+     */
+    public int purgarTokensExpirados() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int total = 0;
+        int eliminados;
+
+        do {
+            eliminados = transactionTemplate.execute(status -> {
+                List<Long> ids = purgarUsuarios
+                        ? tokenRepo.findIdsExpiradosDeActivos(ahora, PageRequest.of(0, tamanoBloque))
+                        : tokenRepo.findIdsExpirados(ahora, PageRequest.of(0, tamanoBloque));
+                return ids.isEmpty() ? 0 : tokenRepo.deleteByIdIn(ids);
+            });
+            total += eliminados;
+            tokensEliminados.increment(eliminados);
+        } while (eliminados == tamanoBloque);
+
+        return total;
+    }
+
+    /**
+     * Elimina las cuentas nunca activadas (inactivas y con el token de confirmación caducado)
+     * registradas hace más de {@code purga.usuarios-sin-activar.antiguedad-dias} días, junto
+     * con sus tokens.
+     *
+     * @return número de usuarios eliminados
+     */
+    public int purgarUsuariosSinActivar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime limite = ahora.minusDays(antiguedadDias);
+        int total = 0;
+        int eliminados;
+
+        do {
+            eliminados = transactionTemplate.execute(status -> {
+                List<Long> ids = usuarioRepo.findIdsSinActivarAnterioresA(
+                        limite, ahora, DataInitializer.EMAILS_DEMO, PageRequest.of(0, tamanoBloque));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                tokensEliminados.increment(tokenRepo.deleteByUsuarioIdIn(ids));
+                return usuarioRepo.deleteByIdIn(ids);
+            });
+            total += eliminados;
+            usuariosEliminados.increment(eliminados);
+        } while (eliminados == tamanoBloque);
+
+        return total;
+    }
+}
@@ -0,0 +1,167 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.EjecutorTareas;
+import com.hospital.Soraka.config.EjecutorTareas.Planificacion;
+import com.hospital.Soraka.config.PlanificadoresConfig;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.TipoRecordatorio;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.RecordatorioEnviadoRepository;
+import com.hospital.Soraka.service.EmailService.EmailSaliente;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Envío programado de recordatorios de citas confirmadas.
+ * <p>
+ * En cada ejecución, y para cada {@link TipoRecordatorio}, se buscan con una única
+ * consulta por rango las citas CONFIRMADAS que caen en su ventana:
+ * <ul>
+ *     <li>{@code DIA_ANTES}: entre 2 y 24 horas desde ahora.</li>
+ *     <li>{@code DOS_HORAS_ANTES}: dentro de las próximas 2 horas.</li>
+ * </ul>
+ * Antes de enviar, cada recordatorio se reclama en {@link RecordatorioEnviadoRepository};
+ * si otro nodo (o una ejecución anterior) ya lo reclamó, se omite. Los emails se envían
+ * por lotes mediante {@link EmailService#enviarLote(List)} y las marcas de los que fallan
+ * se liberan para reintentarlos en la siguiente ejecución.
+ * <p>
+ * Se ejecuta en el hilo del planificador, nunca en hilos de petición.
+ */
+@Service
+public class RecordatorioService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordatorioService.class);
+
+    /** Días que se conservan las marcas de recordatorios enviados. */
+    private static final int DIAS_RETENCION_MARCAS = 7;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private RecordatorioEnviadoRepository recordatorioEnviadoRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EjecutorTareas ejecutorTareas;
+
+    @Value("${recordatorios.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${recordatorios.intervalo-ms:300000}")
+    private long intervaloMs;
+
+    @Value("${recordatorios.tamano-lote:50}")
+    private int tamanoLote;
+
+    /**
+     * Busca y envía los recordatorios pendientes de todas las ventanas.
+     */
+    @Scheduled(fixedDelayString = "${recordatorios.intervalo-ms:300000}", initialDelay = 60000,
+            scheduler = PlanificadoresConfig.RECORDATORIOS)
+    public void enviarRecordatorios() {
+        if (!habilitado) {
+            return;
+        }
+        ejecutorTareas.ejecutar("recordatorios", Planificacion.retardoFijo(intervaloMs), this::enviarPendientes);
+    }
+
+    private int enviarPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int enviados = 0;
+
+        for (TipoRecordatorio tipo : TipoRecordatorio.values()) {
+            enviados += procesarVentana(tipo, ahora);
+        }
+
+        recordatorioEnviadoRepository.purgarAnteriores(ahora.minusDays(DIAS_RETENCION_MARCAS));
+
+        if (enviados > 0) {
+            log.info(">>> [Recordatorios] Enviados {} recordatorios", enviados);
+        }
+        return enviados;
+    }
+
+    /**
+     * Procesa la ventana de un tipo de recordatorio.
+     *
+     * @param tipo  tipo de recordatorio
+     * @param ahora instante de referencia de la ejecución
+     * @return número de recordatorios enviados
+     */
+    private int procesarVentana(TipoRecordatorio tipo, LocalDateTime ahora) {
+        LocalDateTime desde = ahora.plus(siguienteAntelacion(tipo));
+        LocalDateTime hasta = ahora.plus(tipo.getAntelacion());
+
+        List<Cita> candidatas = citaRepository.findConPacienteByEstadoAndFechaHoraEntre(
+                EstadoCita.CONFIRMADA, desde, hasta);
+
+        int enviados = 0;
+        for (int i = 0; i < candidatas.size(); i += tamanoLote) {
+            enviados += procesarLote(tipo, candidatas.subList(i, Math.min(i + tamanoLote, candidatas.size())));
+        }
+        return enviados;
+    }
+
+    private int procesarLote(TipoRecordatorio tipo, List<Cita> citas) {
+        Set<Long> yaMarcadas = recordatorioEnviadoRepository.findCitaIdsMarcadas(
+                tipo, citas.stream().map(Cita::getId).toList());
+
+        List<EmailSaliente> lote = new ArrayList<>();
+        Map<EmailSaliente, Long> citaPorEmail = new IdentityHashMap<>();
+
+        for (Cita c : citas) {
+            if (yaMarcadas.contains(c.getId()) || !recordatorioEnviadoRepository.reclamar(c.getId(), tipo)) {
+                continue;
+            }
+            EmailSaliente email = emailService.crearRecordatorio(
+                    c.getPaciente().getEmail(),
+                    c.getPaciente().getNombre(),
+                    c.getMedico().getUsuario().getNombre(),
+                    c.getMedico().getEspecialidad().getNombre(),
+                    c.getFechaHora());
+            lote.add(email);
+            citaPorEmail.put(email, c.getId());
+        }
+
+        if (lote.isEmpty()) {
+            return 0;
+        }
+
+        List<EmailSaliente> fallidos = emailService.enviarLote(lote);
+        for (EmailSaliente email : fallidos) {
+            recordatorioEnviadoRepository.liberar(citaPorEmail.get(email), tipo);
+        }
+        return lote.size() - fallidos.size();
+    }
+
+    /**
+     * Antelación del siguiente tipo más cercano, que delimita el inicio de la ventana,
+     * para que una cita solo reciba el recordatorio de la ventana en la que cae.
+     */
+    private Duration siguienteAntelacion(TipoRecordatorio tipo) {
+        Duration inicio = Duration.ZERO;
+        for (TipoRecordatorio otro : TipoRecordatorio.values()) {
+            if (otro.getAntelacion().compareTo(tipo.getAntelacion()) < 0
+                    && otro.getAntelacion().compareTo(inicio) > 0) {
+                inicio = otro.getAntelacion();
+            }
+        }
+        return inicio;
+    }
+}
@@ -0,0 +1,243 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.RetencionCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.TipoCambioCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.exception.Cita.CitaNoDisponibleException;
+import com.hospital.Soraka.exception.Cita.CitaNotFoundException;
+import com.hospital.Soraka.exception.Cita.CitaRetenidaException;
+import com.hospital.Soraka.repository.CitaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Retenciones temporales de citas mientras el paciente completa la reserva.
+ *
+ * <p>
+ * Un paciente retiene un hueco disponible durante {@code citas.retencion.ttl-segundos}; mientras
+ * dura, el hueco no aparece en los listados de disponibles de otros usuarios y solo él puede
+ * reservarlo. Cada paciente tiene como mucho una retención: retener otro hueco libera el anterior,
+ * y volver a retener el mismo la renueva.
+ * </p>
+ *
+ * <p>
+ * Las retenciones viven en memoria: un mapa por cita y un índice ordenado por caducidad que
+ * recorre cada {@code citas.retencion.barrido-ms} un barrido que libera las caducadas. La
+ * comprobación de vigencia no depende del barrido. Al retener o liberar se publica un
+ * {@link CitaCambioEvent} para que los clientes suscritos oculten o vuelvan a mostrar el hueco.
+ * Con varias instancias, cada una conoce solo sus retenciones.
+ * </p>
+ */
+@Service
+public class RetencionCitasService {
+
+    private final CitaRepository citaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration ttl;
+    private final Counter caducadas;
+
+    private final Map<Long, Retencion> porCita = new ConcurrentHashMap<>();
+    private final Map<Long, Long> citaPorUsuario = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Retencion> porCaducidad = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Retencion::expira).thenComparing(Retencion::citaId));
+
+    public RetencionCitasService(CitaRepository citaRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${citas.retencion.ttl-segundos:120}") long ttlSegundos) {
+        this.citaRepository = citaRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttl = Duration.ofSeconds(ttlSegundos);
+
+        Gauge.builder("soraka.citas.retenidas", porCita, Map::size)
+                .description("Citas retenidas temporalmente por pacientes")
+                .register(meterRegistry);
+        this.caducadas = Counter.builder("soraka.citas.retenciones.caducadas")
+                .description("Retenciones que caducaron sin reserva")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Datos de una retención vigente.
+     *
+     * @param citaId         id de la cita
+     * @param usuarioId      id del paciente que la retiene
+     * @param medicoId       id del médico de la cita
+     * @param especialidadId id de la especialidad, o {@code null}
+     * @param fechaHora      fecha de la cita
+     * @param expira         momento en que caduca
+     */
+    public record Retencion(Long citaId, Long usuarioId, Long medicoId, Long especialidadId,
+                            LocalDateTime fechaHora, Instant expira) {
+
+        boolean vigente(Instant ahora) {
+            return expira.isAfter(ahora);
+        }
+    }
+
+    /**
+     * Retiene una cita disponible para el paciente durante el TTL configurado.
+     *
+     * @param citaId    id de la cita
+     * @param usuarioId id del paciente
+     * @return retención concedida
+     * @throws CitaNotFoundException     si la cita no existe
+     * @throws CitaNoDisponibleException si la cita no está disponible o es pasada
+     * @throws CitaRetenidaException     si otro paciente la tiene retenida
+     */
+    public RetencionCitaDTO retener(Long citaId, Long usuarioId) {
+        Cita cita = citaRepository.findById(citaId)
+                .orElseThrow(() -> new CitaNotFoundException("Cita no encontrada"));
+        Retencion retencion = retener(cita, usuarioId, ttl);
+        return new RetencionCitaDTO(
+                citaId,
+                LocalDateTime.ofInstant(retencion.expira(), ZoneId.systemDefault()),
+                ttl.toSeconds());
+    }
+
+    /**
+     * Retiene una cita ya cargada durante {@code duracion}.
+     *
+     * @return retención concedida
+     * @throws CitaNoDisponibleException si la cita no está disponible o es pasada
+     * @throws CitaRetenidaException     si otro paciente la tiene retenida
+     */
+    public Retencion retener(Cita cita, Long usuarioId, Duration duracion) {
+        if (cita.getEstado() != EstadoCita.DISPONIBLE || cita.getFechaHora().isBefore(LocalDateTime.now())) {
+            throw new CitaNoDisponibleException("La cita no está disponible");
+        }
+
+        Instant ahora = Instant.now();
+        Retencion nueva = new Retencion(
+                cita.getId(),
+                usuarioId,
+                cita.getMedico().getId(),
+                cita.getMedico().getEspecialidad() != null ? cita.getMedico().getEspecialidad().getId() : null,
+                cita.getFechaHora(),
+                ahora.plus(duracion));
+        Retencion[] anterior = new Retencion[1];
+        porCita.compute(cita.getId(), (id, actual) -> {
+            if (actual != null && actual.vigente(ahora) && !actual.usuarioId().equals(usuarioId)) {
+                throw new CitaRetenidaException("Otro paciente está reservando esta cita");
+            }
+            if (actual != null && !actual.usuarioId().equals(usuarioId)) {
+                // Caducada pero aún no barrida: el barrido ya no la encontrará
+                citaPorUsuario.remove(actual.usuarioId(), actual.citaId());
+            }
+            anterior[0] = actual;
+            return nueva;
+        });
+        if (anterior[0] != null) {
+            porCaducidad.remove(anterior[0]);
+        }
+        porCaducidad.add(nueva);
+
+        Long otraCita = citaPorUsuario.put(usuarioId, cita.getId());
+        if (otraCita != null && !otraCita.equals(cita.getId())) {
+            Retencion otra = porCita.get(otraCita);
+            if (otra != null && otra.usuarioId().equals(usuarioId)) {
+                quitar(otra, true);
+            }
+        }
+
+        // Renovar la propia retención no cambia la disponibilidad
+        if (anterior[0] == null || !anterior[0].usuarioId().equals(usuarioId) || !anterior[0].vigente(ahora)) {
+            eventPublisher.publishEvent(CitaCambioEvent.de(TipoCambioCita.RETENIDA, cita));
+        }
+        return nueva;
+    }
+
+    /**
+     * Libera la retención de una cita si la tiene el paciente indicado.
+     *
+     * @param citaId    id de la cita
+     * @param usuarioId id del paciente
+     */
+    public void liberar(Long citaId, Long usuarioId) {
+        Retencion retencion = porCita.get(citaId);
+        if (retencion != null && retencion.usuarioId().equals(usuarioId)) {
+            quitar(retencion, true);
+        }
+    }
+
+    /**
+     * @return {@code true} si la cita tiene una retención vigente de otro usuario
+     */
+    public boolean retenidaPorOtro(Long citaId, Long usuarioId) {
+        Retencion retencion = porCita.get(citaId);
+        return retencion != null && retencion.vigente(Instant.now()) && !retencion.usuarioId().equals(usuarioId);
+    }
+
+    /**
+     * @return {@code true} si el usuario tiene alguna cita retenida
+     */
+    public boolean tieneRetencion(Long usuarioId) {
+        return citaPorUsuario.containsKey(usuarioId);
+    }
+
+    /**
+     * Una cita reservada ya no necesita su retención; la disponibilidad la notifica la reserva.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void alCambiarCita(CitaCambioEvent cambio) {
+        if (cambio.tipo() == TipoCambioCita.RESERVADA) {
+            Retencion retencion = porCita.get(cambio.citaId());
+            if (retencion != null) {
+                quitar(retencion, false);
+            }
+        }
+    }
+
+    /**
+     * Libera las retenciones caducadas, en orden de caducidad.
+     */
+    @Scheduled(fixedDelayString = "${citas.retencion.barrido-ms:1000}")
+    public void barrerCaducadas() {
+        Instant ahora = Instant.now();
+        for (Retencion retencion : porCaducidad) {
+            if (retencion.vigente(ahora)) {
+                break;
+            }
+            if (quitar(retencion, true)) {
+                caducadas.increment();
+            }
+        }
+    }
+
+    /**
+     * Quita una retención de los índices si sigue siendo la actual de su cita.
+     *
+     * @param notificar si se publica que el hueco vuelve a estar disponible
+     * @return {@code true} si se quitó
+     */
+    private boolean quitar(Retencion retencion, boolean notificar) {
+        porCaducidad.remove(retencion);
+        if (!porCita.remove(retencion.citaId(), retencion)) {
+            return false;
+        }
+        citaPorUsuario.remove(retencion.usuarioId(), retencion.citaId());
+        if (notificar) {
+            eventPublisher.publishEvent(CitaCambioEvent.retencionLiberada(
+                    retencion.citaId(), retencion.medicoId(), retencion.especialidadId(), retencion.fechaHora()));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,288 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.salaespera.EstadoSalaEsperaDTO;
+import com.hospital.Soraka.dto.salaespera.TurnoSalaEsperaDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sala de espera virtual para las aperturas de agenda con mucha demanda.
+ *
+ * <p>
+ * Mientras está activa, los pacientes piden un turno y solo los admitidos pueden consultar
+ * huecos, retenerlos o reservar (ver {@code SalaEsperaInterceptor}). Los turnos se numeran
+ * con un {@link AtomicLong} y se admiten en orden avanzando otro contador, la frontera: un
+ * turno está admitido si su número no la supera. Pedir turno y comprobarlo no toma ningún
+ * bloqueo, y volver a pedirlo devuelve el mismo, así que nadie se cuela repitiendo la
+ * petición. El orden es justo dentro de cada instancia; cada una tiene su propia cola.
+ * </p>
+ *
+ * <p>
+ * Cada {@code sala-espera.intervalo-ms} la frontera avanza según la tasa de admisión, que se
+ * ajusta con AIMD a partir de la latencia media de las reservas del intervalo: si supera
+ * {@code sala-espera.latencia-objetivo-ms} la tasa se reduce a la mitad; si no, sube en
+ * {@code sala-espera.incremento}. Un turno admitido vale {@code sala-espera.sesion-minutos};
+ * uno que no llega a admitirse (el paciente abandonó la cola o nunca volvió a consultarlo)
+ * caduca a los {@code sala-espera.max-espera-minutos} de pedirlo. Los turnos caducados se
+ * descartan en el mismo barrido que avanza la frontera.
+ * </p>
+ */
+@Service
+public class SalaEsperaService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalaEsperaService.class);
+
+    private final AtomicBoolean activa;
+    private final AtomicLong emitidos = new AtomicLong();
+    private final AtomicLong frontera = new AtomicLong();
+    private final Map<String, Turno> porToken = new ConcurrentHashMap<>();
+    private final Map<Long, Turno> porUsuario = new ConcurrentHashMap<>();
+
+    private final LongAdder latenciaTotalMs = new LongAdder();
+    private final LongAdder reservas = new LongAdder();
+
+    private final double tasaInicial;
+    private final double tasaMinima;
+    private final double tasaMaxima;
+    private final double incremento;
+    private final long latenciaObjetivoMs;
+    private final long intervaloMs;
+    private final Duration sesion;
+    private final Duration maxEspera;
+
+    // Solo se modifican desde el ajuste periódico
+    private volatile double tasa;
+    private double resto;
+
+    public SalaEsperaService(MeterRegistry meterRegistry,
+                             @Value("${sala-espera.activa:false}") boolean activa,
+                             @Value("${sala-espera.tasa-inicial:20}") double tasaInicial,
+                             @Value("${sala-espera.tasa-minima:2}") double tasaMinima,
+                             @Value("${sala-espera.tasa-maxima:200}") double tasaMaxima,
+                             @Value("${sala-espera.incremento:2}") double incremento,
+                             @Value("${sala-espera.latencia-objetivo-ms:500}") long latenciaObjetivoMs,
+                             @Value("${sala-espera.intervalo-ms:1000}") long intervaloMs,
+                             @Value("${sala-espera.sesion-minutos:10}") long sesionMinutos,
+                             @Value("${sala-espera.max-espera-minutos:60}") long maxEsperaMinutos) {
+        this.activa = new AtomicBoolean(activa);
+        this.tasaInicial = tasaInicial;
+        this.tasaMinima = tasaMinima;
+        this.tasaMaxima = tasaMaxima;
+        this.incremento = incremento;
+        this.latenciaObjetivoMs = latenciaObjetivoMs;
+        this.intervaloMs = intervaloMs;
+        this.sesion = Duration.ofMinutes(sesionMinutos);
+        this.maxEspera = Duration.ofMinutes(maxEsperaMinutos);
+        this.tasa = tasaInicial;
+
+        Gauge.builder("soraka.sala.espera.cola", this, SalaEsperaService::enCola)
+                .description("Turnos de la sala de espera pendientes de admisión")
+                .register(meterRegistry);
+        Gauge.builder("soraka.sala.espera.tasa", this, s -> s.tasa)
+                .description("Turnos admitidos por segundo en la sala de espera")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Turno de un paciente. {@code admitido} se fija la primera vez que se comprueba
+     * después de que la frontera lo haya alcanzado.
+     */
+    private static final class Turno {
+        final String token;
+        final Long usuarioId;
+        final long numero;
+        final Instant emitido = Instant.now();
+        volatile Instant admitido;
+
+        Turno(String token, Long usuarioId, long numero) {
+            this.token = token;
+            this.usuarioId = usuarioId;
+            this.numero = numero;
+        }
+    }
+
+    public boolean isActiva() {
+        return activa.get();
+    }
+
+    /**
+     * Devuelve el turno del paciente, creándolo al final de la cola si no tiene uno vigente.
+     * Con la sala inactiva no se emiten turnos y se responde como admitido.
+     *
+     * @param usuarioId id del paciente
+     * @return turno y posición
+     */
+    public TurnoSalaEsperaDTO pedirTurno(Long usuarioId) {
+        if (!activa.get()) {
+            return new TurnoSalaEsperaDTO(null, 0, true, null, 0);
+        }
+        Turno turno = porUsuario.compute(usuarioId, (id, actual) -> {
+            if (actual != null && !caducado(actual, Instant.now())) {
+                return actual;
+            }
+            if (actual != null) {
+                porToken.remove(actual.token);
+            }
+            Turno nuevo = new Turno(UUID.randomUUID().toString(), id, emitidos.incrementAndGet());
+            porToken.put(nuevo.token, nuevo);
+            return nuevo;
+        });
+        return describir(turno);
+    }
+
+    /**
+     * Estado de un turno para el sondeo del cliente.
+     *
+     * @param token     token del turno
+     * @param usuarioId usuario autenticado; un turno solo vale para quien lo pidió
+     * @return turno, o {@code null} si no existe, es de otro usuario o ha caducado
+     */
+    public TurnoSalaEsperaDTO consultarTurno(String token, Long usuarioId) {
+        Turno turno = vigente(token, usuarioId);
+        return turno != null ? describir(turno) : null;
+    }
+
+    /**
+     * @return {@code true} si la sala está inactiva o el token es un turno admitido del usuario
+     */
+    public boolean admitido(String token, Long usuarioId) {
+        if (!activa.get()) {
+            return true;
+        }
+        Turno turno = vigente(token, usuarioId);
+        return turno != null && marcarAdmitido(turno);
+    }
+
+    /**
+     * @return posición en la cola del turno, o -1 si no es válido
+     */
+    public long posicion(String token, Long usuarioId) {
+        Turno turno = vigente(token, usuarioId);
+        return turno != null ? Math.max(0, turno.numero - frontera.get()) : -1;
+    }
+
+    /**
+     * Registra la latencia de una reserva para el ajuste de la tasa.
+     */
+    public void registrarLatencia(long ms) {
+        latenciaTotalMs.add(ms);
+        reservas.increment();
+    }
+
+    /**
+     * Activa o desactiva la sala. Al activarla se empieza con la tasa inicial; al
+     * desactivarla se descartan todos los turnos.
+     *
+     * @return estado resultante
+     */
+    public EstadoSalaEsperaDTO cambiarEstado(boolean activar) {
+        if (activa.compareAndSet(!activar, activar)) {
+            if (activar) {
+                tasa = tasaInicial;
+                frontera.set(emitidos.get());
+            } else {
+                porToken.clear();
+                porUsuario.clear();
+            }
+            log.warn(">>> [SalaEspera] Sala de espera {}", activar ? "activada" : "desactivada");
+        }
+        return estado();
+    }
+
+    public EstadoSalaEsperaDTO estado() {
+        return new EstadoSalaEsperaDTO(activa.get(), tasa, enCola(), porToken.size());
+    }
+
+    /**
+     * Ajusta la tasa con la latencia del intervalo, avanza la frontera y descarta los
+     * turnos caducados: los admitidos cuya sesión ha terminado y los que llevan más de
+     * {@code sala-espera.max-espera-minutos} sin admitirse.
+     */
+    @Scheduled(fixedRateString = "${sala-espera.intervalo-ms:1000}")
+    public void avanzar() {
+        long total = latenciaTotalMs.sumThenReset();
+        long muestras = reservas.sumThenReset();
+        if (!activa.get()) {
+            return;
+        }
+
+        if (muestras > 0 && total / muestras > latenciaObjetivoMs) {
+            tasa = Math.max(tasaMinima, tasa / 2);
+        } else {
+            tasa = Math.min(tasaMaxima, tasa + incremento);
+        }
+
+        resto += tasa * intervaloMs / 1000.0;
+        long admitir = (long) resto;
+        resto -= admitir;
+        long limite = emitidos.get();
+        frontera.accumulateAndGet(admitir, (actual, n) -> Math.min(limite, actual + n));
+
+        Instant ahora = Instant.now();
+        porToken.values().removeIf(t -> {
+            if (caducado(t, ahora)) {
+                porUsuario.remove(t.usuarioId, t);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private Turno vigente(String token, Long usuarioId) {
+        if (token == null) {
+            return null;
+        }
+        Turno turno = porToken.get(token);
+        if (turno == null || !turno.usuarioId.equals(usuarioId) || caducado(turno, Instant.now())) {
+            return null;
+        }
+        return turno;
+    }
+
+    private boolean marcarAdmitido(Turno turno) {
+        if (turno.numero > frontera.get()) {
+            return false;
+        }
+        if (turno.admitido == null) {
+            turno.admitido = Instant.now();
+        }
+        return true;
+    }
+
+    private boolean caducado(Turno turno, Instant ahora) {
+        Instant admitido = turno.admitido;
+        return admitido != null
+                ? admitido.plus(sesion).isBefore(ahora)
+                : turno.emitido.plus(maxEspera).isBefore(ahora);
+    }
+
+    private TurnoSalaEsperaDTO describir(Turno turno) {
+        if (marcarAdmitido(turno)) {
+            return new TurnoSalaEsperaDTO(turno.token, 0, true,
+                    LocalDateTime.ofInstant(turno.admitido.plus(sesion), ZoneId.systemDefault()), 0);
+        }
+        long posicion = turno.numero - frontera.get();
+        long esperaSegundos = (long) Math.ceil(posicion / Math.max(tasa, tasaMinima));
+        return new TurnoSalaEsperaDTO(turno.token, posicion, false, null, esperaSegundos);
+    }
+
+    private long enCola() {
+        return Math.max(0, emitidos.get() - frontera.get());
+    }
+}
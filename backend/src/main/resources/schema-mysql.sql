@@ -0,0 +1,56 @@
+-- Esquema que no se deriva de las entidades JPA. Se ejecuta en cada arranque
+-- (spring.sql.init.mode=always) antes de que Hibernate valide el resto, así que
+-- cada sentencia debe poder repetirse sin error.
+
+-- Recordatorios: búsqueda por estado y rango de fechas
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+                      'CREATE INDEX idx_citas_estado_fecha ON citas (estado, fecha_hora)',
+                      'DO 0')
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = 'citas' AND index_name = 'idx_citas_estado_fecha');
+PREPARE crear_indice FROM @ddl;
+EXECUTE crear_indice;
+DEALLOCATE PREPARE crear_indice;
+
+-- Duración de los huecos abiertos en bloque (Cita.duracionMinutos)
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+                      'ALTER TABLE citas ADD COLUMN duracion_minutos INT NULL',
+                      'DO 0')
+            FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = 'citas' AND column_name = 'duracion_minutos');
+PREPARE crear_columna FROM @ddl;
+EXECUTE crear_columna;
+DEALLOCATE PREPARE crear_columna;
+
+-- Marcas de recordatorios enviados (ver RecordatorioEnviadoRepository)
+CREATE TABLE IF NOT EXISTS recordatorios_enviados (
+    cita_id     BIGINT      NOT NULL,
+    tipo        VARCHAR(20) NOT NULL,
+    fecha_envio DATETIME    NOT NULL,
+    PRIMARY KEY (cita_id, tipo),
+    CONSTRAINT fk_recordatorios_cita FOREIGN KEY (cita_id) REFERENCES citas (id) ON DELETE CASCADE
+);
+
+-- Leases de las tareas programadas (ver LeaseTareaRepository)
+CREATE TABLE IF NOT EXISTS tareas_lease (
+    nombre          VARCHAR(100) NOT NULL,
+    bloqueado_hasta DATETIME(3)  NOT NULL,
+    bloqueado_en    DATETIME(3)  NOT NULL,
+    bloqueado_por   VARCHAR(255) NOT NULL,
+    PRIMARY KEY (nombre)
+);
+
+-- Lista de espera de citas (ver ListaEsperaRepository)
+CREATE TABLE IF NOT EXISTS lista_espera (
+    id              BIGINT   NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    usuario_id      BIGINT   NOT NULL,
+    medico_id       BIGINT   NULL,
+    especialidad_id BIGINT   NULL,
+    desde           DATETIME NOT NULL,
+    hasta           DATETIME NOT NULL,
+    prioridad       INT      NOT NULL,
+    fecha_alta      DATETIME NOT NULL,
+    CONSTRAINT fk_lista_espera_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id) ON DELETE CASCADE,
+    CONSTRAINT fk_lista_espera_medico FOREIGN KEY (medico_id) REFERENCES medicos (id) ON DELETE CASCADE,
+    CONSTRAINT fk_lista_espera_especialidad FOREIGN KEY (especialidad_id) REFERENCES especialidades (id) ON DELETE CASCADE
+);
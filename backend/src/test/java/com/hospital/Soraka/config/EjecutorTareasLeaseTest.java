@@ -0,0 +1,145 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.SorakaApplication;
+import com.hospital.Soraka.config.EjecutorTareas.Planificacion;
+import com.hospital.Soraka.repository.LeaseTareaRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dos instancias de la aplicación compartiendo la misma base de datos H2:
+ * cada disparo de una tarea debe ejecutarse en un único nodo.
+ */
+class EjecutorTareasLeaseTest {
+
+    private static final String URL_COMPARTIDA =
+            "jdbc:h2:mem:soraka-leases;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+
+    @BeforeAll
+    static void arrancarNodos() {
+        nodoA = arrancar("nodo-a", "create-drop");
+        // El segundo nodo reutiliza el esquema creado por el primero
+        nodoB = arrancar("nodo-b", "none");
+    }
+
+    @AfterAll
+    static void pararNodos() {
+        nodoB.close();
+        nodoA.close();
+    }
+
+    private static ConfigurableApplicationContext arrancar(String nodo, String ddl) {
+        // Como argumentos y no como propiedades por defecto, para que prevalezcan sobre la base
+        // de datos propia de cada contexto que define application-test.properties
+        return new SpringApplicationBuilder(SorakaApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + URL_COMPARTIDA,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddl,
+                        "--tareas.nodo=" + nodo);
+    }
+
+    @Test
+    void cadaDisparoSeEjecutaEnUnSoloNodo() throws Exception {
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        List<Boolean> resultados = enParalelo(ejecutor -> ejecutor.ejecutar(
+                "prueba-lease", Planificacion.retardoFijo(60000), () -> {
+                    ejecuciones.incrementAndGet();
+                    dormir(200);
+                    return 1;
+                }));
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, resultados.stream().filter(Boolean::booleanValue).count());
+    }
+
+    @Test
+    void lasParticionesSeProcesanUnaSolaVez() throws Exception {
+        int particiones = 8;
+        Map<Integer, AtomicInteger> procesadas = new ConcurrentHashMap<>();
+
+        enParalelo(ejecutor -> ejecutor.ejecutarParticionado(
+                "prueba-particiones", Planificacion.cron("0 0 1 * * *"), particiones, particion -> {
+                    procesadas.computeIfAbsent(particion, p -> new AtomicInteger()).incrementAndGet();
+                    dormir(50);
+                    return 1;
+                }));
+
+        assertEquals(particiones, procesadas.size());
+        procesadas.forEach((particion, veces) -> assertEquals(1, veces.get(), "partición " + particion));
+    }
+
+    @Test
+    void unLeaseVencidoPuedeAdquirirloOtroNodo() {
+        LeaseTareaRepository repoA = nodoA.getBean(LeaseTareaRepository.class);
+        LeaseTareaRepository repoB = nodoB.getBean(LeaseTareaRepository.class);
+        LocalDateTime ahora = LocalDateTime.now();
+
+        assertTrue(repoA.adquirir("prueba-vencimiento", "nodo-a", ahora, ahora.plusSeconds(1)));
+        assertFalse(repoB.adquirir("prueba-vencimiento", "nodo-b", ahora, ahora.plusSeconds(1)));
+
+        LocalDateTime despues = ahora.plusSeconds(2);
+        assertTrue(repoB.adquirir("prueba-vencimiento", "nodo-b", despues, despues.plusSeconds(1)));
+        assertFalse(repoA.renovar("prueba-vencimiento", "nodo-a", despues, despues.plusSeconds(1)));
+    }
+
+    /** Lanza la misma llamada a la vez en los dos nodos y devuelve sus resultados. */
+    private static <T> List<T> enParalelo(TareaEnNodo<T> tarea) throws Exception {
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<T>> futuros = new ArrayList<>();
+            for (ConfigurableApplicationContext nodo : List.of(nodoA, nodoB)) {
+                EjecutorTareas ejecutor = nodo.getBean(EjecutorTareas.class);
+                futuros.add(hilos.submit(() -> {
+                    salida.await();
+                    return tarea.ejecutar(ejecutor);
+                }));
+            }
+            salida.countDown();
+
+            List<T> resultados = new ArrayList<>();
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get(30, TimeUnit.SECONDS));
+            }
+            return resultados;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private interface TareaEnNodo<T> {
+        T ejecutar(EjecutorTareas ejecutor);
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.hospital.Soraka.config;
+
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.repository.CitaJdbcRepository.NuevaCita;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga un dataset pequeño con el perfil {@code dataset} sobre H2.
+ */
+@SpringBootTest(properties = {
+        "dataset.medicos=12",
+        "dataset.pacientes=150",
+        "dataset.dias-pasados=10",
+        "dataset.dias-futuros=7",
+        "dataset.tamano-lote=40",
+        "dataset.fecha-referencia=2026-03-04",
+        "dataset.salir-al-terminar=false"
+})
+@ActiveProfiles({"test", "dataset"})
+class GeneradorDatasetTest {
+
+    private static final LocalDate REFERENCIA = LocalDate.of(2026, 3, 4);
+
+    @Autowired
+    private GeneradorDataset generador;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void cargaMedicosPacientesYCitasDeDiasLaborables() {
+        assertEquals(12, contar("SELECT COUNT(*) FROM usuarios WHERE email LIKE 'medico%" + GeneradorDataset.DOMINIO + "'"));
+        assertEquals(150, contar("SELECT COUNT(*) FROM usuarios WHERE email LIKE 'paciente%" + GeneradorDataset.DOMINIO + "'"));
+
+        // 2026-02-22 .. 2026-03-11 sin el día de referencia: 12 días laborables, 14 huecos por día
+        int citas = contar("""
+                SELECT COUNT(*) FROM citas c
+                JOIN medicos m ON m.id = c.medico_id
+                JOIN usuarios u ON u.id = m.usuario_id
+                WHERE u.email LIKE '%""" + GeneradorDataset.DOMINIO + "'");
+        assertEquals(12 * 12 * 14, citas);
+
+        int pasadasMalEstado = contar("""
+                SELECT COUNT(*) FROM citas c
+                JOIN medicos m ON m.id = c.medico_id
+                JOIN usuarios u ON u.id = m.usuario_id
+                WHERE u.email LIKE '%""" + GeneradorDataset.DOMINIO + "' AND c.fecha_hora < '2026-03-04' AND c.estado NOT IN ('REALIZADA', 'CADUCADA')");
+        assertEquals(0, pasadasMalEstado);
+    }
+
+    @Test
+    void laMismaSemillaGeneraLasMismasCitas() {
+        long[] medicos = {1, 2, 3};
+        long[] pacientes = {10, 11, 12, 13, 14};
+
+        List<NuevaCita> primera = generar(medicos, pacientes, 7);
+        List<NuevaCita> segunda = generar(medicos, pacientes, 7);
+        List<NuevaCita> otraSemilla = generar(medicos, pacientes, 8);
+
+        assertEquals(primera, segunda);
+        assertNotEquals(primera, otraSemilla);
+        for (NuevaCita cita : primera) {
+            DayOfWeek dia = cita.fechaHora().getDayOfWeek();
+            assertTrue(dia != DayOfWeek.SATURDAY && dia != DayOfWeek.SUNDAY);
+            boolean pasada = cita.fechaHora().toLocalDate().isBefore(REFERENCIA);
+            boolean conPaciente = cita.estado() == EstadoCita.REALIZADA || cita.estado() == EstadoCita.CONFIRMADA;
+            assertEquals(pasada, cita.estado() == EstadoCita.REALIZADA || cita.estado() == EstadoCita.CADUCADA);
+            assertEquals(conPaciente, cita.pacienteId() != null);
+        }
+    }
+
+    private List<NuevaCita> generar(long[] medicos, long[] pacientes, long semilla) {
+        List<NuevaCita> citas = new ArrayList<>();
+        generador.generarCitas(medicos, pacientes, REFERENCIA, new SplittableRandom(semilla), citas::add);
+        return citas;
+    }
+
+    private int contar(String sql) {
+        return jdbc.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,62 @@
+package com.hospital.Soraka.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Permisos del límite de concurrencia con peticiones asíncronas. Con una sola plaza y sin
+ * espera, una segunda petición solo se admite si la primera ya ha devuelto su permiso.
+ */
+class LimiteConcurrenciaFilterTest {
+
+    private final LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(true, 1, 0, new SimpleMeterRegistry());
+
+    @Test
+    void unaPeticionAsincronaConservaElPermisoHastaTerminar() throws Exception {
+        MockHttpServletRequest exportacion = peticion("/api/citas/exportar");
+        filtro.doFilter(exportacion, new MockHttpServletResponse(), asincrona(null));
+
+        assertEquals(503, filtrar("/api/citas").getStatus());
+
+        ((MockAsyncContext) exportacion.getAsyncContext()).complete();
+        assertEquals(200, filtrar("/api/citas").getStatus());
+    }
+
+    @Test
+    void unStreamSseNoOcupaPlaza() throws Exception {
+        filtro.doFilter(peticion("/api/citas/disponibles/stream"), new MockHttpServletResponse(),
+                asincrona(MediaType.TEXT_EVENT_STREAM_VALUE));
+
+        assertEquals(200, filtrar("/api/citas").getStatus());
+    }
+
+    private MockHttpServletResponse filtrar(String uri) throws Exception {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filtro.doFilter(peticion(uri), respuesta, (req, res) -> {
+        });
+        return respuesta;
+    }
+
+    private static MockHttpServletRequest peticion(String uri) {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", uri);
+        peticion.setAsyncSupported(true);
+        return peticion;
+    }
+
+    /** Cadena que deja la petición en modo asíncrono, como un controlador que devuelve un stream. */
+    private static FilterChain asincrona(String tipo) {
+        return (req, res) -> {
+            if (tipo != null) {
+                res.setContentType(tipo);
+            }
+            req.startAsync();
+        };
+    }
+}
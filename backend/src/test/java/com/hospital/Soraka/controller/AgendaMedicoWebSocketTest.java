@@ -0,0 +1,232 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.CitaPostDTO;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.event.CitaCambioEvent;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.service.CitaService;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Agenda en vivo por STOMP: autenticación con el JWT, eventos en vivo, avisos de
+ * resincronización tras cambios en bloque y reanudación desde el último evento visto.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class AgendaMedicoWebSocketTest {
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @LocalServerPort
+    private int puerto;
+
+    private WebSocketStompClient stompClient;
+    private Usuario medico;
+    private Usuario paciente;
+
+    @BeforeEach
+    void preparar() {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        medico = usuarioRepository.findByEmail(DataInitializer.EMAIL_MEDICO).orElseThrow();
+        paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+    }
+
+    @AfterEach
+    void cerrar() {
+        stompClient.stop();
+    }
+
+    @Test
+    void elMedicoRecibeSusReservasYPuedeReanudar() throws Exception {
+        Long medicoId = medico.getMedico().getId();
+        List<Cita> huecos = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now()).stream()
+                .filter(c -> c.getMedico().getId().equals(medicoId))
+                .limit(2)
+                .toList();
+
+        StompSession sesion = conectar(medico);
+        BlockingQueue<Map<String, Object>> enVivo = suscribir(sesion, "/topic/medicos/" + medicoId + "/agenda", new StompHeaders());
+        // La respuesta a una suscripción a /app confirma que la de /topic ya está registrada
+        suscribir(sesion, "/app/medicos/" + medicoId + "/agenda", new StompHeaders()).poll(5, TimeUnit.SECONDS);
+
+        citaService.reservarCita(huecos.get(0).getId(), paciente, new ReservarCitaDTO());
+        Map<String, Object> reserva = enVivo.poll(5, TimeUnit.SECONDS);
+        assertNotNull(reserva);
+        assertEquals("RESERVADA", reserva.get("tipo"));
+        assertEquals(huecos.get(0).getId().intValue(), reserva.get("citaId"));
+        assertEquals(paciente.getNombre(), reserva.get("pacienteNombre"));
+        sesion.disconnect();
+
+        // Mientras está desconectado se producen dos cambios más
+        citaService.reservarCita(huecos.get(1).getId(), paciente, new ReservarCitaDTO());
+        citaService.cancelarCita(huecos.get(0).getId(), paciente);
+
+        StompHeaders cabeceras = new StompHeaders();
+        cabeceras.add(AgendaMedicoWsController.CABECERA_ULTIMO_EVENTO, String.valueOf(reserva.get("id")));
+        Map<String, Object> reanudacion = suscribir(conectar(medico), "/app/medicos/" + medicoId + "/agenda", cabeceras)
+                .poll(5, TimeUnit.SECONDS);
+        assertNotNull(reanudacion);
+        assertEquals(true, reanudacion.get("completa"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> perdidos = (List<Map<String, Object>>) reanudacion.get("eventos");
+        assertEquals(List.of("RESERVADA", "CANCELADA"), perdidos.stream().map(e -> e.get("tipo")).toList());
+    }
+
+    @Test
+    void elMedicoRecibeLasCitasQueCreaUnAdministrador() throws Exception {
+        Long medicoId = medico.getMedico().getId();
+        StompSession sesion = conectar(medico);
+        BlockingQueue<Map<String, Object>> enVivo = suscribir(sesion, "/topic/medicos/" + medicoId + "/agenda", new StompHeaders());
+        suscribir(sesion, "/app/medicos/" + medicoId + "/agenda", new StompHeaders()).poll(5, TimeUnit.SECONDS);
+
+        CitaPostDTO dto = new CitaPostDTO();
+        dto.setPacienteId(paciente.getId());
+        dto.setMedicoId(medicoId);
+        dto.setFechaHora(LocalDateTime.now().plusDays(400).withHour(9).withMinute(0).withSecond(0).withNano(0));
+        CitaResponseDTO creada = citaService.createCita(dto);
+
+        Map<String, Object> evento = enVivo.poll(5, TimeUnit.SECONDS);
+        assertNotNull(evento);
+        assertEquals("RESERVADA", evento.get("tipo"));
+        assertEquals(creada.getId().intValue(), evento.get("citaId"));
+    }
+
+    @Test
+    void losCambiosEnBloquePidenResincronizarLaAgenda() throws Exception {
+        Long medicoId = medico.getMedico().getId();
+        StompSession sesion = conectar(medico);
+        BlockingQueue<Map<String, Object>> enVivo = suscribir(sesion, "/topic/medicos/" + medicoId + "/agenda", new StompHeaders());
+        suscribir(sesion, "/app/medicos/" + medicoId + "/agenda", new StompHeaders()).poll(5, TimeUnit.SECONDS);
+
+        // Se publican fuera de transacción, cuando termina el proceso en bloque
+        eventPublisher.publishEvent(CitaCambioEvent.regeneradas(medicoId));
+        Map<String, Object> delMedico = enVivo.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delMedico);
+        assertEquals("REGENERADAS", delMedico.get("tipo"));
+        assertEquals(medicoId.intValue(), delMedico.get("medicoId"));
+
+        eventPublisher.publishEvent(CitaCambioEvent.regeneradas(medicoId + 1000));
+        eventPublisher.publishEvent(CitaCambioEvent.regeneradas());
+        Map<String, Object> deTodos = enVivo.poll(5, TimeUnit.SECONDS);
+        assertNotNull(deTodos);
+        assertEquals("REGENERADAS", deTodos.get("tipo"));
+        assertEquals(medicoId.intValue(), deTodos.get("medicoId"));
+        assertTrue(enVivo.isEmpty());
+    }
+
+    @Test
+    void sinReferenciaLaReanudacionNoEstaCompleta() throws Exception {
+        Long medicoId = medico.getMedico().getId();
+        Map<String, Object> reanudacion = suscribir(conectar(medico), "/app/medicos/" + medicoId + "/agenda", new StompHeaders())
+                .poll(5, TimeUnit.SECONDS);
+        assertNotNull(reanudacion);
+        assertEquals(false, reanudacion.get("completa"));
+    }
+
+    @Test
+    void unPacienteNoPuedeSuscribirseALaAgenda() throws Exception {
+        Long medicoId = medico.getMedico().getId();
+        StompSession sesion = conectar(paciente);
+        suscribir(sesion, "/topic/medicos/" + medicoId + "/agenda", new StompHeaders());
+
+        // El servidor responde con un frame ERROR y cierra la sesión
+        long limite = System.currentTimeMillis() + 5000;
+        while (sesion.isConnected() && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        assertFalse(sesion.isConnected());
+    }
+
+    @Test
+    void sinTokenNoSePuedeConectar() {
+        // El CONNECT se rechaza con un frame ERROR y la sesión nunca llega a establecerse
+        assertThrows(ExecutionException.class, () -> stompClient
+                .connectAsync("ws://localhost:" + puerto + "/ws", new WebSocketHttpHeaders(), new StompHeaders(),
+                        new StompSessionHandlerAdapter() {
+                        })
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    private StompSession conectar(Usuario usuario) throws Exception {
+        StompHeaders connect = new StompHeaders();
+        connect.add("Authorization", tokens.bearer(usuario));
+        StompSession sesion = stompClient
+                .connectAsync("ws://localhost:" + puerto + "/ws", new WebSocketHttpHeaders(), connect,
+                        new StompSessionHandlerAdapter() {
+                        })
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(sesion.isConnected());
+        return sesion;
+    }
+
+    private BlockingQueue<Map<String, Object>> suscribir(StompSession sesion, String destino, StompHeaders cabeceras) {
+        BlockingQueue<Map<String, Object>> recibidos = new LinkedBlockingQueue<>();
+        cabeceras.setDestination(destino);
+        sesion.subscribe(cabeceras, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                recibidos.add((Map<String, Object>) payload);
+            }
+        });
+        return recibidos;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hospital.Soraka.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Medico;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.MedicoRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.service.CitaService;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hospital.Soraka.support.RespuestaJson.ok;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ausencias de médicos: las citas confirmadas del periodo se cancelan con nota, los huecos
+ * libres se bloquean (y la generación diaria no los vuelve a abrir) y el resto de la agenda
+ * no se toca.
+ * <p>
+ * El bloque es de dos citas para que el periodo se procese en varias transacciones.
+ */
+@SpringBootTest(properties = {
+        "ausencias.tamano-bloque=2",
+        "ausencias.tamano-lote-avisos=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class AusenciaMedicoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Test
+    void cancelaLasConfirmadasYBloqueaLosHuecosDelPeriodo() throws Exception {
+        Medico medico = medicoRepository.findAll().get(0);
+        Usuario paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        LocalDateTime desde = LocalDateTime.now().plusDays(200).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+        List<Cita> confirmadas = new ArrayList<>();
+        List<Cita> libres = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            confirmadas.add(citaRepository.save(new Cita(paciente, medico, desde.plusMinutes(60L * i), "Revisión")));
+            libres.add(citaRepository.save(new Cita(medico, desde.plusMinutes(60L * i + 30))));
+        }
+        Cita fuera = citaRepository.save(new Cita(paciente, medico, desde.plusDays(2), "Revisión"));
+
+        JsonNode resumen = ok(registrar(medico.getId(), desde, desde.plusDays(1)));
+        assertEquals(5, resumen.get("canceladas").asInt());
+        assertEquals(5, resumen.get("bloqueadas").asInt());
+        assertEquals(5, resumen.get("avisos").asInt());
+
+        for (Cita cita : confirmadas) {
+            Cita cancelada = citaRepository.findById(cita.getId()).orElseThrow();
+            assertEquals(EstadoCita.CADUCADA, cancelada.getEstado());
+            assertEquals("[Cancelada por ausencia del médico] Revisión", cancelada.getMotivo());
+        }
+        for (Cita cita : libres) {
+            Cita bloqueada = citaRepository.findById(cita.getId()).orElseThrow();
+            assertEquals(EstadoCita.CADUCADA, bloqueada.getEstado());
+            assertEquals("[Bloqueado por ausencia del médico]", bloqueada.getMotivo());
+        }
+        assertEquals(EstadoCita.CONFIRMADA, citaRepository.findById(fuera.getId()).orElseThrow().getEstado());
+
+        // Repetir la ausencia no vuelve a cancelar ni a avisar
+        JsonNode repetida = ok(registrar(medico.getId(), desde, desde.plusDays(1)));
+        assertEquals(0, repetida.get("canceladas").asInt());
+        assertEquals(0, repetida.get("avisos").asInt());
+    }
+
+    @Test
+    void laGeneracionDiariaNoReabreLosHuecosDeLaAusencia() throws Exception {
+        Medico medico = medicoRepository.findAll().get(0);
+        LocalDateTime desde = LocalDate.now().plusDays(2).atStartOfDay();
+        LocalDateTime hasta = desde.plusDays(1);
+
+        assertTrue(ok(registrar(medico.getId(), desde, hasta)).get("bloqueadas").asInt() > 0);
+        citaService.generarCitasDisponibles();
+
+        assertTrue(citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, desde).stream()
+                .noneMatch(c -> c.getMedico().getId().equals(medico.getId()) && c.getFechaHora().isBefore(hasta)));
+    }
+
+    @Test
+    void validaElPeriodoYSoloLaPuedeRegistrarUnAdministrador() throws Exception {
+        Long medicoId = medicoRepository.findAll().get(0).getId();
+        LocalDateTime desde = LocalDateTime.now().plusDays(300);
+
+        registrar(medicoId, desde, desde.minusHours(1)).andExpect(status().isBadRequest());
+        registrar(medicoId, desde, desde.plusDays(365)).andExpect(status().isBadRequest());
+        registrar(-1L, desde, desde.plusDays(1)).andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/medicos/{id}/ausencias", medicoId)
+                        .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_MEDICO))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo(desde, desde.plusDays(1))))
+                .andExpect(status().isForbidden());
+    }
+
+    private ResultActions registrar(Long medicoId, LocalDateTime desde, LocalDateTime hasta) throws Exception {
+        return mockMvc.perform(post("/api/medicos/{id}/ausencias", medicoId)
+                .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo(desde, hasta)));
+    }
+
+    private static String cuerpo(LocalDateTime desde, LocalDateTime hasta) {
+        return """
+                {"desde": "%s", "hasta": "%s"}""".formatted(desde, hasta);
+    }
+}
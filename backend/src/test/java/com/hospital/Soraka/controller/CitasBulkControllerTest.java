@@ -0,0 +1,123 @@
+package com.hospital.Soraka.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.MedicoRepository;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static com.hospital.Soraka.support.RespuestaJson.ok;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creación masiva de huecos: crea los del rango pedido y omite los que se solapan con citas
+ * existentes o ya han empezado.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class CitasBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Test
+    void creaElRangoYOmiteLosHuecosSolapados() throws Exception {
+        Long medicoId = medicoRepository.findAll().get(0).getId();
+        LocalDate desde = LocalDate.now().plusDays(30);
+        LocalDate hasta = desde.plusDays(13);
+        long laborables = desde.datesUntil(hasta.plusDays(1))
+                .filter(d -> d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY)
+                .count();
+
+        long antes = citaRepository.count();
+        JsonNode creadas = ok(crear(medicoId, desde, hasta, "16:00", "18:00", 60, true));
+        assertEquals(laborables * 2, creadas.get("creadas").asLong());
+        assertEquals(0, creadas.get("omitidasOcupadas").asInt());
+        assertEquals(0, creadas.get("omitidasPasadas").asInt());
+        assertEquals(antes + laborables * 2, citaRepository.count());
+
+        // Los huecos de una hora cubren hasta las 18:00: de los de 30 minutos solo queda libre el último
+        JsonNode solapadas = ok(crear(medicoId, desde, hasta, "16:30", "18:30", 30, true));
+        assertEquals(laborables, solapadas.get("creadas").asLong());
+        assertEquals(laborables * 3, solapadas.get("omitidasOcupadas").asLong());
+    }
+
+    @Test
+    void unaCitaQueEmpiezaAntesDelHuecoTambienLoOcupa() throws Exception {
+        Long medicoId = medicoRepository.findAll().get(0).getId();
+        LocalDate dia = LocalDate.now().plusDays(60);
+
+        assertEquals(1, ok(crear(medicoId, dia, dia, "08:00", "09:30", 90, false)).get("creadas").asInt());
+
+        // La cita de las 08:00 dura hasta las 09:30: los huecos de las 08:30 y 09:00 se omiten y el de las 09:30 no
+        JsonNode resumen = ok(crear(medicoId, dia, dia, "08:30", "10:00", 30, false));
+        assertEquals(1, resumen.get("creadas").asInt());
+        assertEquals(2, resumen.get("omitidasOcupadas").asInt());
+        assertEquals(dia.atTime(9, 30), LocalDateTime.parse(resumen.get("primera").asText()));
+    }
+
+    @Test
+    void omiteLosHuecosPasadosYValidaLaPeticion() throws Exception {
+        Long medicoId = medicoRepository.findAll().get(0).getId();
+        LocalDate ayer = LocalDate.now().minusDays(1);
+
+        JsonNode resumen = ok(crear(medicoId, ayer, ayer, "20:00", "21:00", 30, false));
+        assertEquals(0, resumen.get("creadas").asInt());
+        assertEquals(2, resumen.get("omitidasPasadas").asInt());
+
+        crear(medicoId, ayer, ayer.minusDays(1), "08:00", "09:00", 30, false).andExpect(status().isBadRequest());
+        crear(medicoId, ayer, ayer, "08:00", "08:20", 30, false).andExpect(status().isBadRequest());
+        crear(medicoId, ayer, ayer, "08:00", "09:00", 45, false).andExpect(status().isBadRequest());
+        crear(medicoId, ayer, ayer, "08:15", "09:00", 30, false).andExpect(status().isBadRequest());
+        crear(medicoId, ayer, ayer.plusDays(365), "08:00", "09:00", 30, false).andExpect(status().isBadRequest());
+        crear(-1L, ayer, ayer, "08:00", "09:00", 30, false).andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/citas/bulk")
+                        .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo(medicoId, ayer, ayer, "08:00", "09:00", 30, false)))
+                .andExpect(status().isForbidden());
+    }
+
+    private ResultActions crear(Long medicoId, LocalDate desde, LocalDate hasta, String horaInicio, String horaFin,
+                                int duracion, boolean laborables) throws Exception {
+        return mockMvc.perform(post("/api/citas/bulk")
+                .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo(medicoId, desde, hasta, horaInicio, horaFin, duracion, laborables)));
+    }
+
+    private String cuerpo(Long medicoId, LocalDate desde, LocalDate hasta, String horaInicio, String horaFin,
+                          int duracion, boolean laborables) {
+        return """
+                {"medicoId": %d, "fechaDesde": "%s", "fechaHasta": "%s", "horaInicio": "%s", "horaFin": "%s",
+                 "duracionMinutos": %d%s}""".formatted(medicoId, desde, hasta, horaInicio, horaFin, duracion,
+                laborables ? ", \"diasSemana\": [\"MONDAY\", \"TUESDAY\", \"WEDNESDAY\", \"THURSDAY\", \"FRIDAY\"]" : "");
+    }
+}
@@ -0,0 +1,99 @@
+package com.hospital.Soraka.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.DisponiblesAgrupadasDTO;
+import com.hospital.Soraka.support.RespuestaJson;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+
+/**
+ * Formato agrupado de {@code /api/citas/disponibles}: al decodificarlo se obtienen las mismas
+ * citas que en el formato de lista, con los datos de cada médico una sola vez.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class DisponiblesAgrupadasControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Test
+    void seNegociaPorCabeceraAcceptYDecodificaLasMismasCitas() throws Exception {
+        Set<String> lista = citas(leer(get("/api/citas/disponibles").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE))));
+        assertFalse(lista.isEmpty());
+
+        JsonNode agrupadas = RespuestaJson.ok(mockMvc.perform(get("/api/citas/disponibles")
+                        .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE))
+                        .header(HttpHeaders.ACCEPT, DisponiblesAgrupadasDTO.MEDIA_TYPE))
+                .andExpect(content().contentTypeCompatibleWith(DisponiblesAgrupadasDTO.MEDIA_TYPE)));
+
+        assertEquals(lista, decodificar(agrupadas));
+    }
+
+    @Test
+    void seNegociaPorParametro() throws Exception {
+        Set<String> lista = citas(leer(get("/api/citas/disponibles").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE))));
+        JsonNode agrupadas = leer(get("/api/citas/disponibles").param("formato", "agrupado")
+                .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE)));
+
+        assertEquals(lista, decodificar(agrupadas));
+        Set<Long> medicos = new HashSet<>();
+        agrupadas.get("medicos").forEach(m -> medicos.add(m.get("id").asLong()));
+        assertEquals(agrupadas.get("medicos").size(), medicos.size());
+    }
+
+    private Set<String> decodificar(JsonNode agrupadas) {
+        Map<Long, JsonNode> medicos = new HashMap<>();
+        agrupadas.get("medicos").forEach(m -> medicos.put(m.get("id").asLong(), m));
+
+        Set<String> citas = new HashSet<>();
+        for (JsonNode grupo : agrupadas.get("grupos")) {
+            JsonNode medico = medicos.get(grupo.get("medicoId").asLong());
+            LocalDate dia = LocalDate.parse(grupo.get("dia").asText());
+            long id = 0;
+            for (int i = 0; i < grupo.get("ids").size(); i++) {
+                id += grupo.get("ids").get(i).asLong();
+                LocalDateTime fechaHora = dia.atStartOfDay().plusMinutes(grupo.get("minutos").get(i).asInt());
+                citas.add(id + "|" + medico.get("nombre").asText() + "|" + medico.get("especialidad").asText() + "|" + fechaHora);
+            }
+        }
+        return citas;
+    }
+
+    private Set<String> citas(JsonNode lista) {
+        Set<String> citas = new HashSet<>();
+        lista.forEach(c -> citas.add(c.get("id").asLong() + "|" + c.get("medicoNombre").asText() + "|"
+                + c.get("medicoEspecialidad").asText() + "|" + LocalDateTime.parse(c.get("fechaHora").asText())));
+        return citas;
+    }
+
+    private JsonNode leer(RequestBuilder peticion) throws Exception {
+        return RespuestaJson.ok(mockMvc.perform(peticion));
+    }
+}
@@ -0,0 +1,103 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exportación de citas en streaming sobre los datos demo.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class ExportacionCitasControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Test
+    void exportaTodasLasCitasEnNdjson() throws Exception {
+        List<String> lineas = lineas(exportar(get("/api/citas/exportar")).getResponse().getContentAsByteArray());
+
+        assertEquals(citaRepository.count(), lineas.size());
+        assertTrue(lineas.get(0).startsWith("{\"id\":"));
+    }
+
+    @Test
+    void filtraPorEstadoYComprimeEnCsv() throws Exception {
+        LocalDateTime ahora = LocalDateTime.now();
+        long disponibles = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, ahora.minusYears(10)).size();
+
+        MvcResult resultado = exportar(get("/api/citas/exportar")
+                .param("formato", "csv")
+                .param("estado", "DISPONIBLE")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertEquals("gzip", resultado.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        byte[] csv = new GZIPInputStream(new ByteArrayInputStream(resultado.getResponse().getContentAsByteArray()))
+                .readAllBytes();
+        List<String> lineas = lineas(csv);
+        assertTrue(lineas.get(0).startsWith("id,pacienteId"));
+        assertEquals(disponibles, lineas.size() - 1);
+        assertTrue(lineas.stream().skip(1).allMatch(l -> l.contains(",DISPONIBLE,")));
+    }
+
+    @Test
+    void rechazaUnFormatoDesconocido() throws Exception {
+        mockMvc.perform(get("/api/citas/exportar").param("formato", "xml").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void soloParaAdministradores() throws Exception {
+        mockMvc.perform(get("/api/citas/exportar").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE)))
+                .andExpect(status().isForbidden());
+    }
+
+    private MvcResult exportar(MockHttpServletRequestBuilder peticion) throws Exception {
+        MvcResult inicial = mockMvc.perform(peticion.header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(inicial))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+    }
+
+    private static List<String> lineas(byte[] contenido) {
+        return new String(contenido, StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.hospital.Soraka.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Negociación de CBOR y Smile: los listados devuelven los mismos datos que en JSON, en menos
+ * bytes, y sin cabecera {@code Accept} se sigue respondiendo en JSON.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class FormatosBinariosControllerTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Test
+    void losListadosSeSirvenEnCborYSmileConLosMismosDatos() throws Exception {
+        for (String uri : new String[]{"/api/citas", "/api/usuarios", "/api/medicos"}) {
+            byte[] json = peticion(uri, MediaType.APPLICATION_JSON);
+            byte[] cbor = peticion(uri, MediaType.APPLICATION_CBOR);
+            byte[] smile = peticion(uri, SMILE);
+
+            JsonNode esperado = new ObjectMapper().readTree(json);
+            assertEquals(esperado, new ObjectMapper(new CBORFactory()).readTree(cbor), uri);
+            assertEquals(esperado, new ObjectMapper(new SmileFactory()).readTree(smile), uri);
+            assertTrue(cbor.length < json.length, uri);
+            assertTrue(smile.length < json.length, uri);
+        }
+    }
+
+    @Test
+    void sinCabeceraAcceptSeRespondeEnJson() throws Exception {
+        mockMvc.perform(get("/api/citas").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    private byte[] peticion(String uri, MediaType tipo) throws Exception {
+        return mockMvc.perform(get(uri).header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN)).accept(tipo))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(tipo))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
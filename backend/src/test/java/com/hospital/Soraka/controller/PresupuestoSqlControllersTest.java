@@ -0,0 +1,124 @@
+package com.hospital.Soraka.controller;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.config.SqlPorPeticionFilter;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.support.PresupuestoSql;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Presupuesto de sentencias SQL de los endpoints de listado.
+ * <p>
+ * Además de los datos demo se crean varios pacientes con citas confirmadas, de modo que
+ * un endpoint que cargue las relaciones una a una (N+1) supere el presupuesto. Cada
+ * petición incluye la consulta del usuario que hace el filtro JWT.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PresupuestoSqlControllersTest {
+
+    private static final int PACIENTES_EXTRA = 15;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @BeforeAll
+    void crearPacientesConCitas() {
+        List<Cita> disponibles = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now());
+        List<Cita> reservadas = new ArrayList<>();
+        for (int i = 0; i < PACIENTES_EXTRA; i++) {
+            Usuario paciente = usuarioRepository.save(
+                    new Usuario("Paciente " + i, "paciente" + i + "@presupuesto.test", "x".repeat(60), Rol.PACIENTE));
+            Cita cita = disponibles.get(i * 7);
+            cita.setPaciente(paciente);
+            cita.setEstado(EstadoCita.CONFIRMADA);
+            reservadas.add(cita);
+        }
+        citaRepository.saveAll(reservadas);
+    }
+
+    @Test
+    void listadoDeCitas() throws Exception {
+        comprobar(2, "/api/citas", DataInitializer.EMAIL_ADMIN);
+    }
+
+    @Test
+    void citasDisponibles() throws Exception {
+        comprobar(2, "/api/citas/disponibles", DataInitializer.EMAIL_PACIENTE);
+        comprobar(2, "/api/citas/disponibles?formato=agrupado", DataInitializer.EMAIL_PACIENTE);
+    }
+
+    @Test
+    void citasDelPaciente() throws Exception {
+        comprobar(2, "/api/citas/mis-citas", DataInitializer.EMAIL_PACIENTE);
+    }
+
+    @Test
+    void citasDelMedico() throws Exception {
+        comprobar(3, "/api/citas/mis-citas-medico", DataInitializer.EMAIL_MEDICO);
+    }
+
+    @Test
+    void listadoDeMedicos() throws Exception {
+        comprobar(2, "/api/medicos", DataInitializer.EMAIL_PACIENTE);
+        PresupuestoSql.comprobar(1, () -> mockMvc.perform(get("/api/medicos/publicos")).andExpect(status().isOk()));
+    }
+
+    @Test
+    void listadoDeUsuarios() throws Exception {
+        comprobar(2, "/api/usuarios", DataInitializer.EMAIL_ADMIN);
+    }
+
+    @Test
+    void laRespuestaIncluyeLasCabecerasSql() throws Exception {
+        peticion("/api/citas/disponibles", tokens.bearer(DataInitializer.EMAIL_PACIENTE))
+                .andExpect(header().exists(SqlPorPeticionFilter.CABECERA_CONSULTAS))
+                .andExpect(header().exists(SqlPorPeticionFilter.CABECERA_TIEMPO));
+    }
+
+    private void comprobar(int maximo, String uri, String email) throws Exception {
+        String bearer = tokens.bearer(email);
+        PresupuestoSql.comprobar(maximo, () -> peticion(uri, bearer));
+    }
+
+    private ResultActions peticion(String uri, String bearer) throws Exception {
+        return mockMvc.perform(get(uri).header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk());
+    }
+}
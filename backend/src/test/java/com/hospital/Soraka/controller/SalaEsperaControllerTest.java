@@ -0,0 +1,165 @@
+package com.hospital.Soraka.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.config.SalaEsperaInterceptor;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.service.SalaEsperaService;
+import com.hospital.Soraka.support.RespuestaJson;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sala de espera virtual: los pacientes solo reservan con un turno admitido, en orden de
+ * llegada, y la tasa de admisión baja cuando las reservas se ralentizan.
+ * <p>
+ * El intervalo es de una hora para que la frontera solo avance al llamar a
+ * {@link SalaEsperaService#avanzar()}, y la tasa admite un turno por intervalo.
+ */
+@SpringBootTest(properties = {
+        "sala-espera.intervalo-ms=3600000",
+        "sala-espera.tasa-inicial=0.0003",
+        "sala-espera.tasa-minima=0.0001",
+        "sala-espera.incremento=0"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class SalaEsperaControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private SalaEsperaService salaEsperaService;
+
+    @AfterEach
+    void desactivar() throws Exception {
+        mockMvc.perform(put("/api/sala-espera/estado").param("activa", "false")
+                        .header("Authorization", tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void soloLosTurnosAdmitidosPuedenConsultarHuecos() throws Exception {
+        activar();
+        String primero = tokens.bearer(crearPaciente());
+        String segundo = tokens.bearer(crearPaciente());
+
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", primero))
+                .andExpect(status().isTooManyRequests());
+        // Las otras consultas de huecos tampoco se saltan la sala
+        mockMvc.perform(get("/api/citas/disponibles/proximas").param("especialidadId", "1")
+                        .header("Authorization", primero))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/api/medicos/1/calendario").header("Authorization", primero))
+                .andExpect(status().isTooManyRequests());
+
+        JsonNode turnoPrimero = pedirTurno(primero);
+        JsonNode turnoSegundo = pedirTurno(segundo);
+        assertFalse(turnoPrimero.get("admitido").asBoolean());
+        assertEquals(turnoPrimero.get("posicion").asLong() + 1, turnoSegundo.get("posicion").asLong());
+        // Volver a pedir turno no mueve al paciente al final
+        assertEquals(turnoPrimero.get("turno").asText(), pedirTurno(primero).get("turno").asText());
+
+        salaEsperaService.avanzar();
+
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", primero)
+                        .header(SalaEsperaInterceptor.CABECERA_TURNO, turnoPrimero.get("turno").asText()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", segundo)
+                        .header(SalaEsperaInterceptor.CABECERA_TURNO, turnoSegundo.get("turno").asText()))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.posicion").value(1));
+        // Un turno solo vale para quien lo pidió
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", segundo)
+                        .header(SalaEsperaInterceptor.CABECERA_TURNO, turnoPrimero.get("turno").asText()))
+                .andExpect(status().isTooManyRequests());
+        // Los médicos y administradores no pasan por la sala
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void laTasaSeReduceALaMitadSiLasReservasSeRalentizan() throws Exception {
+        activar();
+        double inicial = salaEsperaService.estado().getTasa();
+
+        salaEsperaService.registrarLatencia(10_000);
+        salaEsperaService.avanzar();
+
+        assertEquals(inicial / 2, salaEsperaService.estado().getTasa(), 1e-9);
+    }
+
+    @Test
+    void sinSalaActivaNoSeExigeTurno() throws Exception {
+        assertFalse(salaEsperaService.isActiva());
+        mockMvc.perform(get("/api/citas/disponibles").header("Authorization", tokens.bearer(DataInitializer.EMAIL_PACIENTE)))
+                .andExpect(status().isOk());
+        assertTrue(pedirTurno(tokens.bearer(DataInitializer.EMAIL_PACIENTE)).get("admitido").asBoolean());
+    }
+
+    @Test
+    void elFrontendPuedeEnviarElTurnoDesdeOtroOrigen() throws Exception {
+        // El API en otro host que el del frontend (cors.allowed-origin del perfil de test)
+        mockMvc.perform(options("http://api.soraka.test/api/citas/disponibles")
+                        .header(HttpHeaders.ORIGIN, "http://localhost")
+                        .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET")
+                        .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization, " + SalaEsperaInterceptor.CABECERA_TURNO))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "http://localhost"))
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS,
+                        containsStringIgnoringCase(SalaEsperaInterceptor.CABECERA_TURNO)));
+    }
+
+    private void activar() throws Exception {
+        mockMvc.perform(put("/api/sala-espera/estado").param("activa", "true")
+                        .header("Authorization", tokens.bearer(DataInitializer.EMAIL_ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activa").value(true));
+        mockMvc.perform(put("/api/sala-espera/estado").param("activa", "true")
+                        .header("Authorization", tokens.bearer(DataInitializer.EMAIL_PACIENTE)))
+                .andExpect(status().isForbidden());
+    }
+
+    private JsonNode pedirTurno(String token) throws Exception {
+        return RespuestaJson.ok(mockMvc.perform(post("/api/sala-espera/turno").header("Authorization", token)));
+    }
+
+    private String crearPaciente() {
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        Usuario paciente = new Usuario("Paciente " + id, id + "@sala.test", "x".repeat(60), Rol.PACIENTE);
+        paciente.setActivo(true);
+        return usuarioRepository.save(paciente).getEmail();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.dto.medico.CalendarioMedicoDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.exception.Medico.CalendarioInvalidoException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Mapas de bits de disponibilidad: coinciden con la base de datos, siguen a las reservas y
+ * cancelaciones, y se pueden expresar como rangos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CalendarioDisponibilidadServiceTest {
+
+    @Autowired
+    private CalendarioDisponibilidadService calendarioService;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void coincideConLaBaseDeDatosYSigueALasReservas() {
+        Usuario paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        Cita hueco = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now().plusDays(1))
+                .get(0);
+        Long medicoId = hueco.getMedico().getId();
+        LocalDate dia = hueco.getFechaHora().toLocalDate();
+
+        assertEquals(esperado(medicoId, dia), bits(medicoId, dia));
+
+        long bit = 1L << (hueco.getFechaHora().toLocalTime().toSecondOfDay() / 1800);
+        citaService.reservarCita(hueco.getId(), paciente, new ReservarCitaDTO());
+        assertEquals(0, bits(medicoId, dia) & bit);
+        assertEquals(esperado(medicoId, dia), bits(medicoId, dia));
+
+        citaService.cancelarCita(hueco.getId(), paciente);
+        assertEquals(bit, bits(medicoId, dia) & bit);
+    }
+
+    @Test
+    void convierteLosBitsEnRangosYValidaLaConsulta() {
+        assertArrayEquals(new int[][]{{0, 2}, {4, 6}, {47, 48}},
+                CalendarioDisponibilidadService.rangos(0b110011L | 1L << 47));
+        assertEquals(0, CalendarioDisponibilidadService.rangos(0).length);
+
+        Long medicoId = citaRepository.findAll().get(0).getMedico().getId();
+        CalendarioMedicoDTO rangos = calendarioService.calendario(medicoId, null, 3, "rangos");
+        assertEquals(3, rangos.getRangos().length);
+        assertEquals(null, rangos.getBits());
+
+        assertThrows(CalendarioInvalidoException.class, () -> calendarioService.calendario(medicoId, null, 0, "bits"));
+        assertThrows(CalendarioInvalidoException.class, () -> calendarioService.calendario(medicoId, null, 7, "json"));
+    }
+
+    private long bits(Long medicoId, LocalDate dia) {
+        return calendarioService.calendario(medicoId, dia, 1, "bits").getBits()[0];
+    }
+
+    private long esperado(Long medicoId, LocalDate dia) {
+        long bits = 0;
+        for (Cita cita : citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now())) {
+            if (cita.getMedico().getId().equals(medicoId) && cita.getFechaHora().toLocalDate().equals(dia)
+                    && cita.getFechaHora().getMinute() % 30 == 0) {
+                bits |= 1L << (cita.getFechaHora().toLocalTime().toSecondOfDay() / 1800);
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,151 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stream SSE de disponibilidad: los cambios confirmados llegan a los suscriptores
+ * interesados, en orden y solo a ellos.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class DisponibilidadStreamTest {
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @LocalServerPort
+    private int puerto;
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    void cadaSuscriptorRecibeSoloLosCambiosDeSuMedico() throws Exception {
+        List<Cita> disponibles = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now());
+        Cita primera = disponibles.get(0);
+        Cita otra = disponibles.stream()
+                .filter(c -> !c.getMedico().getId().equals(primera.getMedico().getId()))
+                .findFirst().orElseThrow();
+        Usuario paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+
+        try (Suscripcion medicoPrimera = suscribir("?medicoId=" + primera.getMedico().getId());
+             Suscripcion medicoOtra = suscribir("?medicoId=" + otra.getMedico().getId())) {
+
+            citaService.reservarCita(primera.getId(), paciente, new ReservarCitaDTO());
+            citaService.reservarCita(otra.getId(), paciente, new ReservarCitaDTO());
+            citaService.cancelarCita(primera.getId(), paciente);
+
+            Evento ocupada = medicoPrimera.siguiente();
+            assertEquals("ocupada", ocupada.nombre());
+            assertTrue(ocupada.datos().contains("\"citaId\":" + primera.getId()));
+            Evento liberada = medicoPrimera.siguiente();
+            assertEquals("liberada", liberada.nombre());
+            assertTrue(liberada.datos().contains("\"citaId\":" + primera.getId()));
+
+            // El primer cambio que recibe el otro suscriptor es el de su médico
+            Evento deOtra = medicoOtra.siguiente();
+            assertEquals("ocupada", deOtra.nombre());
+            assertTrue(deOtra.datos().contains("\"citaId\":" + otra.getId()));
+        }
+    }
+
+    private Suscripcion suscribir(String consulta) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/citas/disponibles/stream" + consulta))
+                .header("Authorization", tokens.bearer(DataInitializer.EMAIL_PACIENTE))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<InputStream> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, respuesta.statusCode());
+
+        Suscripcion suscripcion = new Suscripcion(respuesta.body());
+        assertEquals(DisponibilidadStreamService.EVENTO_CONECTADO, suscripcion.siguiente().nombre());
+        return suscripcion;
+    }
+
+    private record Evento(String nombre, String datos) {
+    }
+
+    /** Lector mínimo de eventos SSE; ignora los comentarios (latidos). */
+    private static final class Suscripcion implements AutoCloseable {
+
+        private final InputStream cuerpo;
+        private final BufferedReader lector;
+
+        Suscripcion(InputStream cuerpo) {
+            this.cuerpo = cuerpo;
+            this.lector = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8));
+        }
+
+        Evento siguiente() throws Exception {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    String nombre = null;
+                    StringBuilder datos = new StringBuilder();
+                    String linea;
+                    while ((linea = lector.readLine()) != null) {
+                        if (linea.isEmpty()) {
+                            if (nombre != null) {
+                                return new Evento(nombre, datos.toString());
+                            }
+                        } else if (linea.startsWith("event:")) {
+                            nombre = linea.substring(6).trim();
+                        } else if (linea.startsWith("data:")) {
+                            datos.append(linea.substring(5));
+                        }
+                    }
+                    throw new IllegalStateException("Stream cerrado");
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() throws Exception {
+            cuerpo.close();
+        }
+    }
+}
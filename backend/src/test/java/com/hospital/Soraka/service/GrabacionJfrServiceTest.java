@@ -0,0 +1,128 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.exception.Jfr.GrabacionJfrNoActivaException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.support.TokensJwt;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ciclo de vida de la grabación JFR y presencia en el volcado de los eventos que emiten las
+ * reservas de citas y la validación de tokens JWT.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+class GrabacionJfrServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @Autowired
+    private GrabacionJfrService servicio;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @AfterEach
+    void detener() {
+        if (servicio.estado().isActiva()) {
+            servicio.detener();
+        }
+    }
+
+    @Test
+    void elVolcadoIncluyeLasReservasYLasValidacionesJwt() throws Exception {
+        String admin = tokens.bearer(DataInitializer.EMAIL_ADMIN);
+        mockMvc.perform(post("/api/jfr/grabacion").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isOk());
+        // Iniciar dos veces no crea otra grabación
+        assertTrue(servicio.iniciar().isActiva());
+
+        Cita cita = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now()).get(0);
+        mockMvc.perform(post("/api/citas/{id}/reservar", cita.getId())
+                        .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_PACIENTE))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"motivo\": \"Revisión\"}"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/citas/disponibles").header(HttpHeaders.AUTHORIZATION, "Bearer no-es-un-token"))
+                .andExpect(status().isForbidden());
+
+        byte[] contenido = mockMvc.perform(get("/api/jfr/grabacion/volcado").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        Path volcado = Files.createTempFile("soraka-test", ".jfr");
+        List<RecordedEvent> eventos;
+        try {
+            Files.write(volcado, contenido);
+            eventos = RecordingFile.readAllEvents(volcado);
+        } finally {
+            Files.deleteIfExists(volcado);
+        }
+
+        List<RecordedEvent> reservas = eventos.stream()
+                .filter(e -> e.getEventType().getName().equals("soraka.OperacionCita"))
+                .filter(e -> e.getLong("citaId") == cita.getId())
+                .toList();
+        assertEquals(1, reservas.size());
+        assertEquals("reservar", reservas.get(0).getString("operacion"));
+        assertEquals("ok", reservas.get(0).getString("resultado"));
+
+        List<String> validaciones = eventos.stream()
+                .filter(e -> e.getEventType().getName().equals("soraka.AutenticacionJwt"))
+                .map(e -> e.getString("resultado"))
+                .toList();
+        assertTrue(validaciones.contains("ok"), validaciones::toString);
+        assertTrue(validaciones.contains("error"), validaciones::toString);
+
+        mockMvc.perform(delete("/api/jfr/grabacion").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isNoContent());
+        assertFalse(servicio.estado().isActiva());
+    }
+
+    @Test
+    void sinGrabacionNoSePuedeVolcarNiDetener() {
+        assertFalse(servicio.estado().isActiva());
+        assertThrows(GrabacionJfrNoActivaException.class, servicio::volcar);
+        assertThrows(GrabacionJfrNoActivaException.class, servicio::detener);
+    }
+
+    @Test
+    void soloParaAdministradores() throws Exception {
+        mockMvc.perform(post("/api/jfr/grabacion")
+                        .header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_MEDICO)))
+                .andExpect(status().isForbidden());
+        assertFalse(servicio.estado().isActiva());
+    }
+}
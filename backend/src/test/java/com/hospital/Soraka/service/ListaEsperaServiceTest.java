@@ -0,0 +1,157 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.dto.listaespera.ListaEsperaPostDTO;
+import com.hospital.Soraka.dto.listaespera.ListaEsperaResponseDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.exception.ListaEspera.ListaEsperaInvalidaException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lista de espera: los huecos cancelados se ofrecen en orden de prioridad y pasan al
+ * siguiente paciente si el primero no los reserva.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ListaEsperaServiceTest {
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private RetencionCitasService retencionCitasService;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void elHuecoCanceladoPasaDeUnPacienteAlSiguiente() throws Exception {
+        Cita cita = disponibles().get(0);
+        Usuario titular = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        Usuario primero = crearPaciente();
+        Usuario segundo = crearPaciente();
+        citaService.reservarCita(cita.getId(), titular, new ReservarCitaDTO());
+        apuntar(primero, cita.getMedico().getId(), null, cita.getFechaHora());
+        ListaEsperaResponseDTO delSegundo = apuntar(segundo, cita.getMedico().getId(), null, cita.getFechaHora());
+
+        citaService.cancelarCita(cita.getId(), titular);
+        esperar(() -> retencionCitasService.retenidaPorOtro(cita.getId(), segundo.getId()));
+        assertFalse(retencionCitasService.retenidaPorOtro(cita.getId(), primero.getId()));
+
+        // El primero deja pasar la oferta
+        retencionCitasService.liberar(cita.getId(), primero.getId());
+        esperar(() -> retencionCitasService.retenidaPorOtro(cita.getId(), primero.getId()));
+
+        citaService.reservarCita(cita.getId(), segundo, new ReservarCitaDTO());
+        assertEquals(EstadoCita.CONFIRMADA, citaRepository.findById(cita.getId()).orElseThrow().getEstado());
+        esperar(() -> listaEsperaService.listarPropias(segundo.getId()).isEmpty());
+        assertEquals(1, listaEsperaService.listarPropias(primero.getId()).size());
+        assertTrue(listaEsperaService.listarPropias(segundo.getId()).stream()
+                .noneMatch(e -> e.getId().equals(delSegundo.getId())));
+    }
+
+    @Test
+    void laPrioridadSeImponeAlOrdenDeAlta() throws Exception {
+        Cita cita = disponibles().get(1);
+        Usuario titular = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        Usuario porMedico = crearPaciente();
+        Usuario porEspecialidad = crearPaciente();
+        citaService.reservarCita(cita.getId(), titular, new ReservarCitaDTO());
+        apuntar(porMedico, cita.getMedico().getId(), null, cita.getFechaHora());
+        ListaEsperaResponseDTO prioritaria = apuntar(porEspecialidad, null,
+                cita.getMedico().getEspecialidad().getId(), cita.getFechaHora());
+        listaEsperaService.cambiarPrioridad(prioritaria.getId(), 5);
+
+        citaService.cancelarCita(cita.getId(), titular);
+
+        esperar(() -> retencionCitasService.retenidaPorOtro(cita.getId(), porMedico.getId()));
+        assertFalse(retencionCitasService.retenidaPorOtro(cita.getId(), porEspecialidad.getId()));
+    }
+
+    @Test
+    void lasPeticionesDeUnUsuarioBorradoSeDescartan() throws Exception {
+        // Un hueco lejano, fuera del rango de las peticiones que dejan las otras pruebas
+        Cita cita = citaRepository.save(new Cita(disponibles().get(0).getMedico(),
+                LocalDateTime.now().plusDays(300).withHour(10).withMinute(0).withSecond(0).withNano(0)));
+        Usuario titular = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        Usuario borrado = crearPaciente();
+        Usuario siguiente = crearPaciente();
+        citaService.reservarCita(cita.getId(), titular, new ReservarCitaDTO());
+        apuntar(borrado, cita.getMedico().getId(), null, cita.getFechaHora());
+        apuntar(siguiente, cita.getMedico().getId(), null, cita.getFechaHora());
+
+        usuarioRepository.delete(borrado);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM lista_espera WHERE usuario_id = ?", Integer.class, borrado.getId()));
+
+        citaService.cancelarCita(cita.getId(), titular);
+        // La petición del usuario borrado sale del índice y el hueco se ofrece al siguiente
+        esperar(() -> listaEsperaService.listarPropias(borrado.getId()).isEmpty());
+        esperar(() -> retencionCitasService.retenidaPorOtro(cita.getId(), borrado.getId()));
+        assertFalse(retencionCitasService.retenidaPorOtro(cita.getId(), siguiente.getId()));
+    }
+
+    @Test
+    void rechazaPeticionesSinMedicoNiEspecialidad() {
+        Usuario paciente = crearPaciente();
+        assertThrows(ListaEsperaInvalidaException.class,
+                () -> apuntar(paciente, null, null, LocalDateTime.now().plusDays(1)));
+    }
+
+    private ListaEsperaResponseDTO apuntar(Usuario paciente, Long medicoId, Long especialidadId, LocalDateTime fecha) {
+        ListaEsperaPostDTO dto = new ListaEsperaPostDTO();
+        dto.setMedicoId(medicoId);
+        dto.setEspecialidadId(especialidadId);
+        dto.setDesde(fecha.minusDays(1));
+        dto.setHasta(fecha.plusDays(1));
+        return listaEsperaService.apuntar(paciente, dto);
+    }
+
+    private Usuario crearPaciente() {
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        return usuarioRepository.save(new Usuario("Paciente " + id, id + "@espera.test", "x".repeat(60), Rol.PACIENTE));
+    }
+
+    private List<Cita> disponibles() {
+        return citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now().plusHours(1));
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError("La condición no se cumplió a tiempo");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
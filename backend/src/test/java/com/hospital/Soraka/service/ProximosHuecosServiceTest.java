@@ -0,0 +1,103 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.HuecoLibreDTO;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Índice de próximos huecos: coincide con la base de datos y sigue a las reservas,
+ * cancelaciones y retenciones.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProximosHuecosServiceTest {
+
+    @Autowired
+    private ProximosHuecosService proximosHuecosService;
+
+    @Autowired
+    private RetencionCitasService retencionCitasService;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void devuelveLosMismosHuecosQueLaBaseDeDatos() {
+        Long especialidadId = disponibles(null, null).get(0).getMedico().getEspecialidad().getId();
+
+        assertEquals(ids(disponiblesDe(especialidadId, null, null), 10),
+                proximosHuecosService.buscar(especialidadId, 10, null, null, 0L).stream().map(HuecoLibreDTO::citaId).toList());
+
+        LocalTime desde = LocalTime.of(10, 0);
+        LocalTime hasta = LocalTime.of(11, 0);
+        List<HuecoLibreDTO> enFranja = proximosHuecosService.buscar(especialidadId, 10, desde, hasta, 0L);
+        assertFalse(enFranja.isEmpty());
+        assertEquals(ids(disponiblesDe(especialidadId, desde, hasta), 10),
+                enFranja.stream().map(HuecoLibreDTO::citaId).toList());
+    }
+
+    @Test
+    void sigueALasReservasCancelacionesYRetenciones() {
+        Usuario paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        Cita primera = disponibles(null, null).get(0);
+        Long especialidadId = primera.getMedico().getEspecialidad().getId();
+
+        citaService.reservarCita(primera.getId(), paciente, new ReservarCitaDTO());
+        assertFalse(contiene(especialidadId, primera.getId(), 0L));
+
+        citaService.cancelarCita(primera.getId(), paciente);
+        assertTrue(contiene(especialidadId, primera.getId(), 0L));
+
+        retencionCitasService.retener(primera.getId(), paciente.getId());
+        assertFalse(contiene(especialidadId, primera.getId(), 0L));
+        assertTrue(contiene(especialidadId, primera.getId(), paciente.getId()));
+        retencionCitasService.liberar(primera.getId(), paciente.getId());
+    }
+
+    private boolean contiene(Long especialidadId, Long citaId, Long usuarioId) {
+        return proximosHuecosService.buscar(especialidadId, 50, null, null, usuarioId).stream()
+                .anyMatch(h -> h.citaId().equals(citaId));
+    }
+
+    private List<Cita> disponiblesDe(Long especialidadId, LocalTime desde, LocalTime hasta) {
+        return disponibles(desde, hasta).stream()
+                .filter(c -> c.getMedico().getEspecialidad().getId().equals(especialidadId))
+                .toList();
+    }
+
+    private List<Cita> disponibles(LocalTime desde, LocalTime hasta) {
+        return citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now()).stream()
+                .filter(c -> desde == null || !c.getFechaHora().toLocalTime().isBefore(desde))
+                .filter(c -> hasta == null || !c.getFechaHora().toLocalTime().isAfter(hasta))
+                .sorted(Comparator.comparing(Cita::getFechaHora).thenComparing(Cita::getId))
+                .toList();
+    }
+
+    private static List<Long> ids(List<Cita> citas, int n) {
+        return citas.stream().limit(n).map(Cita::getId).toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.entity.TokenConfirmacion;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.repository.TokenConfirmacionRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Purga de cuentas: solo se eliminan las que nunca se confirmaron (con su token caducado),
+ * nunca las que un administrador desactivó.
+ */
+@SpringBootTest(properties = "purga.usuarios-sin-activar.habilitado=true")
+@ActiveProfiles("test")
+class PurgaCuentasServiceTest {
+
+    @Autowired
+    private PurgaCuentasService purgaCuentasService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TokenConfirmacionRepository tokenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void soloSeEliminanLasCuentasQueNuncaSeConfirmaron() {
+        Usuario sinConfirmar = registradoHaceDosMeses(false);
+        TokenConfirmacion token = tokenRepository.save(
+                new TokenConfirmacion(UUID.randomUUID().toString(), sinConfirmar, LocalDateTime.now().minusDays(59)));
+        Usuario desactivado = registradoHaceDosMeses(false);
+        Usuario activo = registradoHaceDosMeses(true);
+        TokenConfirmacion tokenActivo = tokenRepository.save(
+                new TokenConfirmacion(UUID.randomUUID().toString(), activo, LocalDateTime.now().minusDays(59)));
+
+        // Los tokens de cuentas sin activar se conservan para que la purga de cuentas las reconozca
+        purgaCuentasService.purgarTokensExpirados();
+        assertTrue(tokenRepository.existsById(token.getId()));
+        assertFalse(tokenRepository.existsById(tokenActivo.getId()));
+
+        purgaCuentasService.purgarUsuariosSinActivar();
+        assertFalse(usuarioRepository.existsById(sinConfirmar.getId()));
+        assertFalse(tokenRepository.existsById(token.getId()));
+        assertTrue(usuarioRepository.existsById(desactivado.getId()));
+        assertTrue(usuarioRepository.existsById(activo.getId()));
+    }
+
+    private Usuario registradoHaceDosMeses(boolean activo) {
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        Usuario usuario = new Usuario("Usuario " + id, id + "@purga.test", "x".repeat(60), Rol.PACIENTE);
+        usuario.setActivo(activo);
+        usuario = usuarioRepository.save(usuario);
+        jdbcTemplate.update("UPDATE usuarios SET fecha_registro = ? WHERE id = ?",
+                LocalDateTime.now().minusDays(60), usuario.getId());
+        return usuario;
+    }
+}
@@ -0,0 +1,331 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.exception.Cita.CitaNoDisponibleException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.support.TokensJwt;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tormenta de reservas: muchos pacientes, cada uno en su hilo virtual, compiten por los
+ * mismos huecos a la vez.
+ * <p>
+ * Es la prueba de aceptación de cualquier cambio en la ruta de reserva o en el bloqueo
+ * optimista ({@code @Version}) de {@link Cita}: en ningún momento puede haber dos
+ * reservas ganadoras del mismo hueco. Cada escenario escribe en el log el rendimiento
+ * (operaciones por segundo) y las latencias p50/p99.
+ * <p>
+ * El tamaño se ajusta con {@code -Dtormenta.pacientes} y {@code -Dtormenta.rondas}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TokensJwt.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReservaConcurrenteTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservaConcurrenteTest.class);
+
+    private static final int PACIENTES = Integer.getInteger("tormenta.pacientes", 60);
+    private static final int RONDAS = Integer.getInteger("tormenta.rondas", 10);
+    private static final int HUECOS_CONTIGUOS = 8;
+    private static final int HUECOS_ROTACION = 4;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TokensJwt tokens;
+
+    @LocalServerPort
+    private int puerto;
+
+    private List<Usuario> pacientes;
+
+    /** Huecos DISPONIBLES de un mismo médico, consecutivos; cada escenario usa los suyos. */
+    private List<Long> huecos;
+    private int siguienteHueco;
+
+    @BeforeAll
+    void crearPacientes() {
+        List<Usuario> nuevos = new ArrayList<>();
+        for (int i = 0; i < PACIENTES; i++) {
+            Usuario paciente = new Usuario("Paciente " + i, "tormenta" + i + "@soraka.test", "x".repeat(60), Rol.PACIENTE);
+            paciente.setActivo(true);
+            nuevos.add(paciente);
+        }
+        pacientes = usuarioRepository.saveAll(nuevos);
+
+        List<Cita> disponibles = citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now());
+        Long medicoId = disponibles.get(0).getMedico().getId();
+        huecos = disponibles.stream()
+                .filter(c -> c.getMedico().getId().equals(medicoId))
+                .sorted(Comparator.comparing(Cita::getFechaHora))
+                .map(Cita::getId)
+                .toList();
+    }
+
+    @Test
+    void unSoloPacienteGanaElMismoHuecoPorHttp() throws Exception {
+        Long citaId = huecos(1).get(0);
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Map<Long, String> cabeceras = new ConcurrentHashMap<>();
+        pacientes.forEach(p -> cabeceras.put(p.getId(), tokens.bearer(p)));
+
+        // Calentamiento: que la primera petición (arranque del DispatcherServlet, JIT) no cuente en las latencias
+        for (int i = 0; i < 20; i++) {
+            cliente.send(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/citas/disponibles"))
+                    .header("Authorization", cabeceras.get(pacientes.get(i % PACIENTES).getId()))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+        }
+
+        Medidas medidas = new Medidas("mismo hueco (HTTP)");
+        Map<Integer, AtomicInteger> estados = new ConcurrentHashMap<>();
+        Queue<Long> ganadores = new ConcurrentLinkedQueue<>();
+
+        enTormenta(medidas, pacientes, paciente -> {
+            HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/citas/" + citaId + "/reservar"))
+                    .header("Authorization", cabeceras.get(paciente.getId()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"motivo\":\"Tormenta\"}"))
+                    .build();
+            int estado = medidas.medir(() -> cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode());
+            estados.computeIfAbsent(estado, e -> new AtomicInteger()).incrementAndGet();
+            if (estado == 204) {
+                medidas.exitos.incrementAndGet();
+                ganadores.add(paciente.getId());
+            } else if (estado == 409) {
+                medidas.conflictos.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, ganadores.size(), "respuestas por estado: " + estados);
+        assertEquals(PACIENTES - 1, estados.getOrDefault(409, new AtomicInteger()).get(), "respuestas por estado: " + estados);
+
+        Cita cita = citaRepository.findById(citaId).orElseThrow();
+        assertEquals(EstadoCita.CONFIRMADA, cita.getEstado());
+        assertEquals(ganadores.peek(), cita.getPaciente().getId());
+    }
+
+    @Test
+    void cadaHuecoContiguoTieneUnUnicoGanador() throws Exception {
+        List<Long> citaIds = huecos(HUECOS_CONTIGUOS);
+        Medidas medidas = new Medidas("huecos contiguos");
+        Map<Long, Long> ganadorPorHueco = new ConcurrentHashMap<>();
+        Set<Long> pacientesConCita = ConcurrentHashMap.newKeySet();
+
+        // Cada paciente recorre los huecos en un orden aleatorio hasta conseguir uno
+        enTormenta(medidas, pacientes, paciente -> {
+            List<Long> orden = new ArrayList<>(citaIds);
+            Collections.shuffle(orden, ThreadLocalRandom.current());
+            for (Long citaId : orden) {
+                if (reservar(medidas, citaId, paciente)) {
+                    assertNull(ganadorPorHueco.putIfAbsent(citaId, paciente.getId()), "hueco " + citaId + " con dos ganadores");
+                    assertTrue(pacientesConCita.add(paciente.getId()));
+                    return;
+                }
+            }
+        });
+
+        assertEquals(Math.min(PACIENTES, HUECOS_CONTIGUOS), ganadorPorHueco.size());
+        for (Long citaId : citaIds) {
+            Cita cita = citaRepository.findById(citaId).orElseThrow();
+            Long ganador = ganadorPorHueco.get(citaId);
+            if (ganador == null) {
+                assertEquals(EstadoCita.DISPONIBLE, cita.getEstado());
+            } else {
+                assertEquals(EstadoCita.CONFIRMADA, cita.getEstado());
+                assertEquals(ganador, cita.getPaciente().getId());
+            }
+        }
+    }
+
+    @Test
+    void reservarCancelarYVolverAReservarMantieneUnUnicoTitular() throws Exception {
+        List<Long> citaIds = huecos(HUECOS_ROTACION);
+        Medidas medidas = new Medidas("reservar / cancelar / volver a reservar");
+        // Titular de cada hueco según las reservas que han tenido éxito
+        AtomicReferenceArray<Usuario> titulares = new AtomicReferenceArray<>(citaIds.size());
+
+        enTormenta(medidas, pacientes, paciente -> {
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                int i = ThreadLocalRandom.current().nextInt(citaIds.size());
+                if (!reservar(medidas, citaIds.get(i), paciente)) {
+                    continue;
+                }
+                if (!titulares.compareAndSet(i, null, paciente)) {
+                    fail("El hueco " + citaIds.get(i) + " tiene dos titulares: " + titulares.get(i).getId() + " y " + paciente.getId());
+                }
+                // Se libera antes de cancelar: hasta que la cancelación se confirme nadie más puede reservarlo
+                titulares.set(i, null);
+                medidas.medir(() -> {
+                    citaService.cancelarCita(citaIds.get(i), paciente);
+                    return null;
+                });
+            }
+        });
+
+        assertTrue(medidas.exitos.get() > 0, "ninguna reserva tuvo éxito");
+        for (Long citaId : citaIds) {
+            Cita cita = citaRepository.findById(citaId).orElseThrow();
+            assertEquals(EstadoCita.DISPONIBLE, cita.getEstado());
+            assertNull(cita.getPaciente());
+        }
+    }
+
+    /* =========================
+       AUXILIARES
+       ========================= */
+
+    private synchronized List<Long> huecos(int cantidad) {
+        List<Long> reservados = huecos.subList(siguienteHueco, siguienteHueco + cantidad);
+        siguienteHueco += cantidad;
+        return reservados;
+    }
+
+    /**
+     * Intenta reservar un hueco; devuelve {@code false} si otro paciente se adelantó.
+     */
+    private boolean reservar(Medidas medidas, Long citaId, Usuario paciente) throws Exception {
+        ReservarCitaDTO dto = new ReservarCitaDTO();
+        dto.setMotivo("Tormenta de reservas");
+        try {
+            medidas.medir(() -> {
+                citaService.reservarCita(citaId, paciente, dto);
+                return null;
+            });
+            medidas.exitos.incrementAndGet();
+            return true;
+        } catch (CitaNoDisponibleException | OptimisticLockingFailureException e) {
+            medidas.conflictos.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Lanza una tarea por paciente en hilos virtuales, todas a la vez, y espera a que terminen.
+     * Al final escribe el informe de rendimiento del escenario.
+     */
+    private void enTormenta(Medidas medidas, List<Usuario> participantes, TareaPaciente tarea) throws Exception {
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        long inicio;
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Usuario paciente : participantes) {
+                futuros.add(hilos.submit(() -> {
+                    salida.await();
+                    tarea.ejecutar(paciente);
+                    return null;
+                }));
+            }
+            inicio = System.nanoTime();
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(2, TimeUnit.MINUTES);
+            }
+        }
+        medidas.informar(System.nanoTime() - inicio);
+    }
+
+    private interface TareaPaciente {
+        void ejecutar(Usuario paciente) throws Exception;
+    }
+
+    private interface Operacion<T> {
+        T ejecutar() throws Exception;
+    }
+
+    /**
+     * Latencias y resultados de las operaciones de un escenario.
+     */
+    private static final class Medidas {
+
+        private final String escenario;
+        private final Queue<Long> latencias = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger exitos = new AtomicInteger();
+        private final AtomicInteger conflictos = new AtomicInteger();
+
+        private Medidas(String escenario) {
+            this.escenario = escenario;
+        }
+
+        private <T> T medir(Operacion<T> operacion) throws Exception {
+            long inicio = System.nanoTime();
+            try {
+                return operacion.ejecutar();
+            } finally {
+                latencias.add(System.nanoTime() - inicio);
+            }
+        }
+
+        private void informar(long duracionNanos) {
+            List<Long> ordenadas = new ArrayList<>(latencias);
+            Collections.sort(ordenadas);
+            double segundos = duracionNanos / 1e9;
+            log.info(">>> [Tormenta] {}: {} operaciones en {} ms ({} op/s), {} reservas, {} conflictos, p50 {} ms, p99 {} ms",
+                    escenario, ordenadas.size(), Math.round(segundos * 1000),
+                    Math.round(ordenadas.size() / segundos), exitos.get(), conflictos.get(),
+                    String.format("%.2f", percentil(ordenadas, 50)), String.format("%.2f", percentil(ordenadas, 99)));
+        }
+
+        private static double percentil(List<Long> ordenadas, int percentil) {
+            if (ordenadas.isEmpty()) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(percentil / 100.0 * ordenadas.size()) - 1;
+            return ordenadas.get(Math.max(indice, 0)) / 1e6;
+        }
+    }
+}
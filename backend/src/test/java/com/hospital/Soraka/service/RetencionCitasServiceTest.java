@@ -0,0 +1,127 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.config.DataInitializer;
+import com.hospital.Soraka.dto.cita.CitaResponseDTO;
+import com.hospital.Soraka.dto.cita.ReservarCitaDTO;
+import com.hospital.Soraka.entity.Cita;
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.enums.EstadoCita;
+import com.hospital.Soraka.enums.Rol;
+import com.hospital.Soraka.exception.Cita.CitaRetenidaException;
+import com.hospital.Soraka.repository.CitaRepository;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retenciones temporales: bloquean el hueco a los demás pacientes mientras dura el TTL
+ * y lo devuelven al caducar.
+ */
+@SpringBootTest(properties = "citas.retencion.barrido-ms=3600000")
+@ActiveProfiles("test")
+class RetencionCitasServiceTest {
+
+    @Autowired
+    private RetencionCitasService retencionCitasService;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private Usuario paciente;
+    private Usuario otroPaciente;
+
+    @BeforeEach
+    void preparar() {
+        paciente = usuarioRepository.findByEmail(DataInitializer.EMAIL_PACIENTE).orElseThrow();
+        otroPaciente = usuarioRepository.findByEmail("otro@retencion.test")
+                .orElseGet(() -> usuarioRepository.save(
+                        new Usuario("Otro Paciente", "otro@retencion.test", "x".repeat(60), Rol.PACIENTE)));
+    }
+
+    @Test
+    void soloElTitularPuedeReservarLaCitaRetenida() {
+        Cita cita = disponibles().get(0);
+        retencionCitasService.retener(cita.getId(), paciente.getId());
+
+        assertThrows(CitaRetenidaException.class,
+                () -> retencionCitasService.retener(cita.getId(), otroPaciente.getId()));
+        assertThrows(CitaRetenidaException.class,
+                () -> citaService.reservarCita(cita.getId(), otroPaciente, new ReservarCitaDTO()));
+        assertTrue(citaService.listarDisponibles(otroPaciente.getId()).stream()
+                .noneMatch(c -> c.getId().equals(cita.getId())));
+        assertTrue(citaService.listarDisponibles(paciente.getId()).stream()
+                .anyMatch(c -> c.getId().equals(cita.getId())));
+
+        citaService.reservarCita(cita.getId(), paciente, new ReservarCitaDTO());
+
+        assertEquals(EstadoCita.CONFIRMADA, citaRepository.findById(cita.getId()).orElseThrow().getEstado());
+        assertFalse(retencionCitasService.retenidaPorOtro(cita.getId(), otroPaciente.getId()));
+    }
+
+    @Test
+    void laRetencionCaducadaDevuelveElHueco() throws Exception {
+        Cita cita = disponibles().get(0);
+        retencionCitasService.retener(cita, paciente.getId(), Duration.ofMillis(50));
+        assertTrue(retencionCitasService.retenidaPorOtro(cita.getId(), otroPaciente.getId()));
+
+        Thread.sleep(100);
+        retencionCitasService.barrerCaducadas();
+
+        assertFalse(retencionCitasService.retenidaPorOtro(cita.getId(), otroPaciente.getId()));
+        List<CitaResponseDTO> visibles = citaService.listarDisponibles(otroPaciente.getId());
+        assertTrue(visibles.stream().anyMatch(c -> c.getId().equals(cita.getId())));
+        retencionCitasService.retener(cita.getId(), otroPaciente.getId());
+        retencionCitasService.liberar(cita.getId(), otroPaciente.getId());
+    }
+
+    @Test
+    void quienOcupaUnaRetencionCaducadaLaQuitaAlTitularAnterior() throws Exception {
+        Cita cita = disponibles().get(0);
+        retencionCitasService.retener(cita, paciente.getId(), Duration.ofMillis(50));
+        Thread.sleep(100);
+
+        // Sin barrido de por medio
+        retencionCitasService.retener(cita.getId(), otroPaciente.getId());
+
+        assertFalse(retencionCitasService.tieneRetencion(paciente.getId()));
+        assertTrue(retencionCitasService.tieneRetencion(otroPaciente.getId()));
+        retencionCitasService.liberar(cita.getId(), otroPaciente.getId());
+    }
+
+    @Test
+    void cadaPacienteRetieneUnaSolaCita() {
+        List<Cita> disponibles = disponibles();
+        Cita primera = disponibles.get(0);
+        Cita segunda = disponibles.get(1);
+
+        retencionCitasService.retener(primera.getId(), paciente.getId());
+        retencionCitasService.retener(segunda.getId(), paciente.getId());
+
+        assertFalse(retencionCitasService.retenidaPorOtro(primera.getId(), otroPaciente.getId()));
+        assertTrue(retencionCitasService.retenidaPorOtro(segunda.getId(), otroPaciente.getId()));
+        retencionCitasService.liberar(segunda.getId(), paciente.getId());
+        assertFalse(retencionCitasService.retenidaPorOtro(segunda.getId(), otroPaciente.getId()));
+    }
+
+    private List<Cita> disponibles() {
+        return citaRepository.findByEstadoAndFechaHoraAfter(EstadoCita.DISPONIBLE, LocalDateTime.now().plusHours(1));
+    }
+}
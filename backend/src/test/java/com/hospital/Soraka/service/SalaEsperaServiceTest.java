@@ -0,0 +1,49 @@
+package com.hospital.Soraka.service;
+
+import com.hospital.Soraka.dto.salaespera.TurnoSalaEsperaDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Caducidad de los turnos que nunca llegan a admitirse. La tasa es tan baja que el barrido
+ * no admite a nadie.
+ */
+class SalaEsperaServiceTest {
+
+    @Test
+    void elBarridoDescartaLosTurnosQueSuperanLaEsperaMaxima() throws Exception {
+        SalaEsperaService sala = sala(0);
+        TurnoSalaEsperaDTO turno = sala.pedirTurno(1L);
+        assertFalse(turno.isAdmitido());
+        Thread.sleep(5);
+
+        sala.avanzar();
+
+        assertEquals(0, sala.estado().getTurnos());
+        assertNull(sala.consultarTurno(turno.getTurno(), 1L));
+        // Si vuelve, se le da un turno nuevo al final de la cola
+        assertNotEquals(turno.getTurno(), sala.pedirTurno(1L).getTurno());
+    }
+
+    @Test
+    void losTurnosDentroDeLaEsperaMaximaSeConservan() {
+        SalaEsperaService sala = sala(60);
+        TurnoSalaEsperaDTO turno = sala.pedirTurno(1L);
+
+        sala.avanzar();
+
+        assertEquals(1, sala.estado().getTurnos());
+        assertNotNull(sala.consultarTurno(turno.getTurno(), 1L));
+    }
+
+    private static SalaEsperaService sala(long maxEsperaMinutos) {
+        return new SalaEsperaService(new SimpleMeterRegistry(), true, 0.0001, 0.0001, 200, 0, 500, 1000, 10,
+                maxEsperaMinutos);
+    }
+}
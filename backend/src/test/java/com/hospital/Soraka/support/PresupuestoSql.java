@@ -0,0 +1,52 @@
+package com.hospital.Soraka.support;
+
+import com.hospital.Soraka.config.ContadorSql;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Comprueba que un bloque de código no supera un número máximo de sentencias SQL.
+ * <p>
+ * Pensado para envolver una petición de {@code MockMvc}, de modo que una regresión N+1
+ * en un endpoint haga fallar la build:
+ * <pre>
+ * PresupuestoSql.comprobar(2, () -&gt; mockMvc.perform(get("/api/citas/disponibles")));
+ * </pre>
+ */
+public final class PresupuestoSql {
+
+    private PresupuestoSql() {
+    }
+
+    /**
+     * Ejecuta la acción y falla si lanza más de {@code maximo} sentencias.
+     *
+     * @param maximo sentencias permitidas
+     * @param accion código a medir
+     * @return la medición, para comprobaciones adicionales
+     */
+    public static ContadorSql.Medicion comprobar(int maximo, Accion accion) throws Exception {
+        ContadorSql.Medicion medicion = ContadorSql.iniciar();
+        try {
+            accion.ejecutar();
+        } finally {
+            ContadorSql.finalizar(medicion);
+        }
+
+        if (medicion.getConsultas() > maximo) {
+            String detalle = medicion.getRepeticiones().entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .map(e -> "  " + e.getValue() + "x " + e.getKey())
+                    .collect(Collectors.joining("\n"));
+            throw new AssertionError("Se esperaban como máximo " + maximo + " sentencias SQL y se ejecutaron "
+                    + medicion.getConsultas() + ":\n" + detalle);
+        }
+        return medicion;
+    }
+
+    @FunctionalInterface
+    public interface Accion {
+        void ejecutar() throws Exception;
+    }
+}
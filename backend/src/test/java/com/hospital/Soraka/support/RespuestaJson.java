@@ -0,0 +1,28 @@
+package com.hospital.Soraka.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Lectura del cuerpo JSON de las respuestas de {@code MockMvc}.
+ */
+public final class RespuestaJson {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private RespuestaJson() {
+    }
+
+    /**
+     * Comprueba que la respuesta es un 200 y devuelve su cuerpo.
+     *
+     * @param peticion petición ya ejecutada
+     * @return cuerpo como árbol JSON
+     */
+    public static JsonNode ok(ResultActions peticion) throws Exception {
+        return MAPPER.readTree(peticion.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+}
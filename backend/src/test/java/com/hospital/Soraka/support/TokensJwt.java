@@ -0,0 +1,50 @@
+package com.hospital.Soraka.support;
+
+import com.hospital.Soraka.entity.Usuario;
+import com.hospital.Soraka.repository.UsuarioRepository;
+import com.hospital.Soraka.security.JwtService;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.util.Map;
+
+/**
+ * Cabeceras {@code Authorization} para las pruebas, firmadas con la clave del perfil de test.
+ * <p>
+ * Se añade al contexto con {@code @Import(TokensJwt.class)}:
+ * <pre>
+ * mockMvc.perform(get("/api/citas").header(HttpHeaders.AUTHORIZATION, tokens.bearer(DataInitializer.EMAIL_ADMIN)));
+ * </pre>
+ */
+@TestComponent
+public class TokensJwt {
+
+    private final JwtService jwtService;
+    private final UsuarioRepository usuarioRepository;
+
+    public TokensJwt(JwtService jwtService, UsuarioRepository usuarioRepository) {
+        this.jwtService = jwtService;
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    /**
+     * @param email email de un usuario existente
+     * @return {@code "Bearer <token>"}
+     */
+    public String bearer(String email) {
+        return bearer(usuarioRepository.findByEmail(email).orElseThrow());
+    }
+
+    /**
+     * @return {@code "Bearer <token>"}
+     */
+    public String bearer(Usuario usuario) {
+        return "Bearer " + token(usuario);
+    }
+
+    /**
+     * @return token JWT sin el prefijo {@code Bearer}
+     */
+    public String token(Usuario usuario) {
+        return jwtService.generateToken(usuario, Map.of());
+    }
+}
@@ -0,0 +1,34 @@
+-- Versión H2 de schema-mysql.sql para el perfil de test. Se ejecuta después de que
+-- Hibernate cree las tablas de las entidades (y con ellas el índice de citas).
+
+CREATE TABLE IF NOT EXISTS recordatorios_enviados (
+    cita_id     BIGINT      NOT NULL,
+    tipo        VARCHAR(20) NOT NULL,
+    fecha_envio DATETIME    NOT NULL,
+    PRIMARY KEY (cita_id, tipo),
+    CONSTRAINT fk_recordatorios_cita FOREIGN KEY (cita_id) REFERENCES citas (id) ON DELETE CASCADE
+);
+
+-- Leases de las tareas programadas (ver LeaseTareaRepository)
+CREATE TABLE IF NOT EXISTS tareas_lease (
+    nombre          VARCHAR(100) NOT NULL,
+    bloqueado_hasta DATETIME(3)  NOT NULL,
+    bloqueado_en    DATETIME(3)  NOT NULL,
+    bloqueado_por   VARCHAR(255) NOT NULL,
+    PRIMARY KEY (nombre)
+);
+
+-- Lista de espera de citas (ver ListaEsperaRepository)
+CREATE TABLE IF NOT EXISTS lista_espera (
+    id              BIGINT   NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    usuario_id      BIGINT   NOT NULL,
+    medico_id       BIGINT   NULL,
+    especialidad_id BIGINT   NULL,
+    desde           DATETIME NOT NULL,
+    hasta           DATETIME NOT NULL,
+    prioridad       INT      NOT NULL,
+    fecha_alta      DATETIME NOT NULL,
+    CONSTRAINT fk_lista_espera_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id) ON DELETE CASCADE,
+    CONSTRAINT fk_lista_espera_medico FOREIGN KEY (medico_id) REFERENCES medicos (id) ON DELETE CASCADE,
+    CONSTRAINT fk_lista_espera_especialidad FOREIGN KEY (especialidad_id) REFERENCES especialidades (id) ON DELETE CASCADE
+);